@@ -0,0 +1,113 @@
+package de.engehausen.mb;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import de.engehausen.mb.math.ExponentialMap;
+import de.engehausen.mb.math.MandelbrotSet;
+import de.engehausen.mb.math.PreciseNumber;
+import de.engehausen.mb.math.RenderStatistics;
+
+/**
+ * Renders a zoom into one point from a single {@link ExponentialMap} around the
+ * center of the deepest frame. The map covers the scales of all frames, each
+ * frame is then only a polar to cartesian remap of it. The map samples a frame
+ * at least as densely as its pixels if the center of the map lies within the
+ * circle around the frame; frames further away are rendered directly.
+ */
+class ExponentialMapRenderer {
+
+	private final MandelbrotSet mandelbrot;
+	private final Dimension dimension;
+	private final int[] colors;
+	private final double halfDiagonal;
+
+	/**
+	 * Creates the renderer.
+	 * @param mandelbrot the Mandelbrot set to render with
+	 * @param dimension the size of the frames
+	 * @param colors the colors to render with
+	 */
+	ExponentialMapRenderer(final MandelbrotSet mandelbrot, final Dimension dimension, final int... colors) {
+		this.mandelbrot = mandelbrot;
+		this.dimension = dimension;
+		this.colors = colors;
+		halfDiagonal = Math.hypot(dimension.width, dimension.height) / 2;
+	}
+
+	/**
+	 * Renders the frames of the stream and passes them to the consumer in order.
+	 * All frames are collected before the first frame is rendered. If the consumer
+	 * returns {@code false}, the remaining frames are discarded.
+	 * @param frames the frames to render, the stream may reuse its instances
+	 * @param consumer the consumer of the rendered frames
+	 */
+	void run(final Stream<FrameData> frames, final FramePipeline.Consumer consumer) {
+		final List<FrameData> list = new ArrayList<>();
+		frames.forEach(frameData -> list.add(new FrameData(frameData)));
+		if (list.isEmpty()) {
+			return;
+		}
+		final ExponentialMap map = createMap(list);
+		for (final FrameData frameData : list) {
+			final BufferedImage image = new BufferedImage(dimension.width, dimension.height, BufferedImage.TYPE_3BYTE_BGR);
+			final double spacing = spacing(frameData);
+			final double real = offset(frameData, map.getCenter(), true);
+			final double imaginary = offset(frameData, map.getCenter(), false);
+			final FramePipeline.Frame frame;
+			if (Math.hypot(real, imaginary) <= halfDiagonal * spacing) {
+				map.remap(real - spacing * dimension.width / 2, imaginary - spacing * dimension.height / 2, spacing, frameData.frameOffset, image, colors);
+				frame = new FramePipeline.Frame(image, map.getStatistics());
+			} else {
+				final RenderStatistics statistics = new RenderStatistics();
+				frame = new FramePipeline.Frame(mandelbrot.render(frameData, image, statistics, colors), statistics);
+			}
+			if (!consumer.accept(frame)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Creates the map around the center of the deepest frame, covering all
+	 * frames which can be remapped from it.
+	 * @param frames the frames of the movie, must not be empty
+	 * @return the map
+	 */
+	private ExponentialMap createMap(final List<FrameData> frames) {
+		FrameData deepest = frames.get(0);
+		for (final FrameData frameData : frames) {
+			if (frameData.logScale < deepest.logScale) {
+				deepest = frameData;
+			}
+		}
+		double inner = Double.POSITIVE_INFINITY;
+		double outer = 0;
+		for (final FrameData frameData : frames) {
+			final double spacing = spacing(frameData);
+			final double distance = Math.hypot(offset(frameData, deepest.center, true), offset(frameData, deepest.center, false));
+			if (distance <= halfDiagonal * spacing) {
+				inner = Math.min(inner, spacing / 2);
+				outer = Math.max(outer, distance + halfDiagonal * spacing);
+			}
+		}
+		// the samples of the outermost ring of a frame are one pixel apart,
+		// the deepest frame needs the most iterations
+		final int max = mandelbrot.getIterations(deepest.getTopLeft(dimension.width, dimension.height), deepest.getScale(), dimension.width, dimension.height, colors.length);
+		return mandelbrot.createExponentialMap(deepest.center, inner, outer, (int) Math.ceil(2 * Math.PI * halfDiagonal), max);
+	}
+
+	private double spacing(final FrameData frameData) {
+		return frameData.getScale() / Math.min(dimension.width, dimension.height);
+	}
+
+	private static double offset(final FrameData frameData, final PreciseNumber center, final boolean real) {
+		return real
+			? frameData.center.getReal().subtract(center.getReal()).doubleValue()
+			: frameData.center.getImaginary().subtract(center.getImaginary()).doubleValue();
+	}
+
+}
@@ -1,26 +1,36 @@
 package de.engehausen.mb;
 
 import java.awt.Dimension;
+import java.math.BigDecimal;
+import java.math.MathContext;
 import java.util.StringTokenizer;
 
 import de.engehausen.mb.math.Number;
+import de.engehausen.mb.math.PreciseNumber;
 
 /**
- * Describes a Mandelbrot zoom frame.
+ * Describes a Mandelbrot zoom frame. The position is given by the center
+ * of the frame with arbitrary precision and the zoom by the natural
+ * logarithm of the scale, so frames can be arbitrarily deep.
  */
 public class FrameData {
 
+	// decimal digits kept beyond the pixel spacing
+	private static final int EXTRA_DIGITS = 20;
+	private static final double LN_10 = Math.log(10);
+
 	/** dimension of the frame */
 	public Dimension dimension;
-	/** top left corner (complex number) */
-	public Number topLeft;
-	/** zoom scale */
-	public double scale;
+	/** center of the frame (complex number) */
+	public PreciseNumber center;
+	/** natural logarithm of the zoom scale */
+	public double logScale;
 	/** color offset */
 	public int frameOffset;
 
 	/**
-	 * Parses a string representation into frame data.
+	 * Parses a string representation into frame data. Strings written before
+	 * the center was stored with arbitrary precision are accepted as well.
 	 * @param string a string previously generated via {@link #toString(FrameData)}.
 	 * @return the frame data
 	 */
@@ -35,38 +45,67 @@ public class FrameData {
 			Double.parseDouble(tokenizer.nextToken())
 		);
 		final double scale = Double.parseDouble(tokenizer.nextToken());
-		return new FrameData(dimension, topLeft, scale, Integer.parseInt(tokenizer.nextToken()));
+		final int frameOffset = Integer.parseInt(tokenizer.nextToken());
+		if (tokenizer.hasMoreTokens()) {
+			final PreciseNumber center = new PreciseNumber(
+				new BigDecimal(tokenizer.nextToken()),
+				new BigDecimal(tokenizer.nextToken())
+			);
+			return new FrameData(dimension, center, Double.parseDouble(tokenizer.nextToken()), frameOffset);
+		}
+		return new FrameData(dimension, topLeft, scale, frameOffset);
 	}
 
 	/**
 	 * Serializes the given frame data into a string representation.
+	 * The top left corner and scale are written as {@code double} values
+	 * first, followed by the precise center and the logarithmic scale.
 	 * @param frameData the data to describe as a string.
 	 * @return the data described as a string
 	 */
 	public static String toString(final FrameData frameData) {
-		final StringBuilder builder = new StringBuilder(64);
+		final Number topLeft = frameData.getTopLeft().toNumber();
+		final StringBuilder builder = new StringBuilder(128);
 		builder
 			.append(frameData.dimension.width).append(',')
 			.append(frameData.dimension.height).append(',')
-			.append(frameData.topLeft.getReal()).append(',')
-			.append(frameData.topLeft.getImaginary()).append(',')
-			.append(frameData.scale).append(',')
-			.append(frameData.frameOffset);
+			.append(topLeft.getReal()).append(',')
+			.append(topLeft.getImaginary()).append(',')
+			.append(frameData.getScale()).append(',')
+			.append(frameData.frameOffset).append(',')
+			.append(frameData.center.getReal()).append(',')
+			.append(frameData.center.getImaginary()).append(',')
+			.append(frameData.logScale);
 		return builder.toString();
 	}
 
 	/**
 	 * Creates a new frame data instance.
 	 * @param dimension the frame width and height
+	 * @param center the center of the frame
+	 * @param logScale the natural logarithm of the zoom scale
+	 * @param frameOffset the color offset
+	 */
+	public FrameData(final Dimension dimension, final PreciseNumber center, final double logScale, final int frameOffset) {
+		this.dimension = dimension;
+		this.center = center;
+		this.logScale = logScale;
+		this.frameOffset = frameOffset;
+	}
+
+	/**
+	 * Creates a new frame data instance from its top left corner.
+	 * @param dimension the frame width and height
 	 * @param topLeft the top left corner
 	 * @param scale the zoom scale
 	 * @param frameOffset the color offset
 	 */
 	public FrameData(final Dimension dimension, final Number topLeft, final double scale, final int frameOffset) {
 		this.dimension = dimension;
-		this.topLeft = topLeft;
-		this.scale = scale;
+		this.logScale = Math.log(scale);
 		this.frameOffset = frameOffset;
+		final double steps = scale / Math.min(dimension.width, dimension.height);
+		this.center = new PreciseNumber(topLeft).add(steps * dimension.width / 2, steps * dimension.height / 2, getMathContext());
 	}
 
 	/**
@@ -75,9 +114,65 @@ public class FrameData {
 	 */
 	public FrameData(final FrameData data) {
 		this.dimension = data.dimension;
-		this.topLeft = new Number(data.topLeft);
-		this.scale = data.scale;
+		this.center = data.center;
+		this.logScale = data.logScale;
 		this.frameOffset = data.frameOffset;
 	}
 
+	/**
+	 * Returns the zoom scale, which is the extent of the smaller side of the frame.
+	 * @return the zoom scale
+	 */
+	public double getScale() {
+		return Math.exp(logScale);
+	}
+
+	/**
+	 * Returns the top left corner of the frame.
+	 * @return the top left corner of the frame.
+	 */
+	public PreciseNumber getTopLeft() {
+		return getTopLeft(dimension.width, dimension.height);
+	}
+
+	/**
+	 * Returns the top left corner of the frame when showing it with the given
+	 * size. Images of the same aspect ratio as the frame show the same area.
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @return the top left corner
+	 */
+	public PreciseNumber getTopLeft(final int width, final int height) {
+		final double steps = getScale() / Math.min(width, height);
+		return center.add(-steps * width / 2, -steps * height / 2, getMathContext());
+	}
+
+	/**
+	 * Zooms into the frame. The given pixel becomes the new top left
+	 * corner and the scale is multiplied by the given factor.
+	 * @param x the pixel column of the new top left corner
+	 * @param y the pixel row of the new top left corner
+	 * @param factor the factor to multiply the scale with
+	 */
+	public void zoom(final double x, final double y, final double factor) {
+		final int min = Math.min(dimension.width, dimension.height);
+		final double steps = getScale() / min;
+		logScale += Math.log(factor);
+		final double zoomed = getScale() / min;
+		center = center.add(
+			steps * (x - dimension.width / 2d) + zoomed * dimension.width / 2,
+			steps * (y - dimension.height / 2d) + zoomed * dimension.height / 2,
+			getMathContext()
+		);
+	}
+
+	/**
+	 * Returns the precision needed to represent points of the frame.
+	 * @return the precision needed to represent points of the frame.
+	 */
+	public MathContext getMathContext() {
+		final double digits = Math.log10(Math.min(dimension.width, dimension.height)) - logScale / LN_10;
+		return new MathContext(EXTRA_DIGITS + (int) Math.max(0, Math.ceil(digits)));
+	}
+
 }
@@ -0,0 +1,201 @@
+package de.engehausen.mb;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import de.engehausen.mb.math.MandelbrotSet;
+import de.engehausen.mb.math.RenderStatistics;
+
+/**
+ * Renders the frames of a stream concurrently and hands them to a single
+ * consumer in stream order. The number of frames in flight, that is being
+ * rendered, waiting or being consumed, is limited; this bounds the memory
+ * used by frames and blocks the renderers when the consumer falls behind.
+ * Of the frames waiting to be rendered, the one with the highest estimated
+ * cost is rendered first, so a cheap frame does not hold up an expensive one.
+ */
+class FramePipeline {
+
+	// marks the end of the stream in the queue
+	private static final Future<Frame> END = new FutureTask<>(() -> null);
+
+	private final MandelbrotSet mandelbrot;
+	private final Dimension dimension;
+	private final int[] colors;
+	private final int capacity;
+
+	/**
+	 * Creates the pipeline. The number of frames in flight defaults to twice the
+	 * parallelism of the Mandelbrot set, limited to a quarter of the maximum heap,
+	 * and can be overridden with the system property {@code mb.framesInFlight}.
+	 * @param mandelbrot the Mandelbrot set to render with
+	 * @param dimension the size of the frames
+	 * @param colors the colors to render with
+	 */
+	FramePipeline(final MandelbrotSet mandelbrot, final Dimension dimension, final int... colors) {
+		this(mandelbrot, dimension, Integer.getInteger("mb.framesInFlight", defaultCapacity(mandelbrot, dimension)).intValue(), colors); //$NON-NLS-1$
+	}
+
+	/**
+	 * Creates the pipeline.
+	 * @param mandelbrot the Mandelbrot set to render with
+	 * @param dimension the size of the frames
+	 * @param capacity the maximum number of frames in flight, must be positive
+	 * @param colors the colors to render with
+	 */
+	FramePipeline(final MandelbrotSet mandelbrot, final Dimension dimension, final int capacity, final int... colors) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive"); //$NON-NLS-1$
+		}
+		this.mandelbrot = mandelbrot;
+		this.dimension = dimension;
+		this.colors = colors;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the maximum number of frames in flight.
+	 * @return the maximum number of frames in flight.
+	 */
+	int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Renders the frames of the stream and passes them to the consumer in order.
+	 * The consumer is called on the calling thread. If the consumer returns
+	 * {@code false}, the remaining frames are discarded.
+	 * @param frames the frames to render, the stream may reuse its instances
+	 * @param consumer the consumer of the rendered frames
+	 * @throws InterruptedException if the calling thread is interrupted
+	 * @throws ExecutionException if rendering a frame fails
+	 */
+	void run(final Stream<FrameData> frames, final Consumer consumer) throws InterruptedException, ExecutionException {
+		final int threads = Math.min(capacity, mandelbrot.getParallelism());
+		final ExecutorService renderers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+		final Semaphore permits = new Semaphore(capacity);
+		final BlockingQueue<Future<Frame>> queue = new LinkedBlockingQueue<>();
+		final Thread feeder = new Thread(() -> {
+			try {
+				frames.forEach(frameData -> {
+					final FrameData copy = new FrameData(frameData);
+					try {
+						permits.acquire();
+					} catch (InterruptedException e) {
+						throw new CancellationException();
+					}
+					// the budget is decided once, automatic budgets run a pre-pass
+					final int max = mandelbrot.getIterations(copy, colors.length);
+					final RenderTask task = new RenderTask(copy, max, mandelbrot.estimateCost(copy, max));
+					renderers.execute(task);
+					queue.add(task);
+				});
+			} catch (CancellationException e) {
+				// stopped by the consumer
+			} catch (RuntimeException e) {
+				final FutureTask<Frame> failure = new FutureTask<>(() -> {
+					throw e;
+				});
+				failure.run();
+				queue.add(failure);
+			}
+			queue.add(END);
+		}, "frame feeder"); //$NON-NLS-1$
+		feeder.setDaemon(true);
+		feeder.start();
+		try {
+			for (Future<Frame> next = queue.take(); next != END; next = queue.take()) {
+				final boolean proceed = consumer.accept(next.get());
+				permits.release();
+				if (!proceed) {
+					break;
+				}
+			}
+		} finally {
+			feeder.interrupt();
+			renderers.shutdownNow();
+			for (final Future<Frame> pending : queue) {
+				pending.cancel(true);
+			}
+		}
+	}
+
+	private Frame render(final FrameData frameData, final int max) {
+		final RenderStatistics statistics = new RenderStatistics();
+		final BufferedImage image = mandelbrot.render(
+			frameData,
+			max,
+			new BufferedImage(dimension.width, dimension.height, BufferedImage.TYPE_3BYTE_BGR),
+			statistics,
+			colors
+		);
+		return new Frame(image, statistics);
+	}
+
+	/**
+	 * Renders a frame, tasks with a higher estimated cost are ordered first.
+	 */
+	private class RenderTask extends FutureTask<Frame> implements Comparable<RenderTask> {
+
+		private final long cost;
+
+		protected RenderTask(final FrameData frameData, final int max, final long cost) {
+			super(() -> render(frameData, max));
+			this.cost = cost;
+		}
+
+		@Override
+		public int compareTo(final RenderTask other) {
+			return Long.compare(other.cost, cost);
+		}
+
+	}
+
+	private static int defaultCapacity(final MandelbrotSet mandelbrot, final Dimension dimension) {
+		final long frameSize = 3L * dimension.width * dimension.height;
+		final long memory = Runtime.getRuntime().maxMemory() / 4;
+		return (int) Math.max(1, Math.min(2L * mandelbrot.getParallelism(), memory / frameSize));
+	}
+
+	/**
+	 * A rendered frame.
+	 */
+	static class Frame {
+
+		protected final BufferedImage image;
+		protected final RenderStatistics statistics;
+
+		Frame(final BufferedImage image, final RenderStatistics statistics) {
+			this.image = image;
+			this.statistics = statistics;
+		}
+
+	}
+
+	/**
+	 * Consumes the rendered frames in order.
+	 */
+	interface Consumer {
+
+		/**
+		 * Consumes the next frame.
+		 * @param frame the rendered frame
+		 * @return {@code true} to continue, {@code false} to stop rendering
+		 */
+		boolean accept(Frame frame);
+
+	}
+
+}
@@ -0,0 +1,137 @@
+package de.engehausen.mb;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The frames of a movie between key frames, with random access. The scale of
+ * a frame is a closed function of its index; the center is interpolated between
+ * the two key frames enclosing the scale with the precision of the frame, so key
+ * frames can be arbitrarily deep. Every call returns a new {@link FrameData}
+ * owned by the caller, so frames can be computed concurrently, out of order or
+ * starting at any index.
+ */
+public final class FrameSchedule {
+
+	private static final double BASE = 0.95d;
+	private static final double LOG_BASE = Math.log(BASE);
+
+	private final FrameData[] keyFrames;
+	private final int max;
+	private final boolean logarithmic;
+	private final double logScaleStart;
+	private final double step;
+	private final int[] starts;
+
+	private FrameSchedule(final List<FrameData> frames, final int max, final boolean logarithmic) {
+		if (frames.size() < 2) {
+			throw new IllegalArgumentException("must have at least two frames"); //$NON-NLS-1$
+		}
+		if (max < 1) {
+			throw new IllegalArgumentException("must have at least one step"); //$NON-NLS-1$
+		}
+		this.keyFrames = frames.toArray(new FrameData[frames.size()]);
+		this.max = max;
+		this.logarithmic = logarithmic;
+		logScaleStart = keyFrames[0].logScale;
+		final double logScaleEnd = keyFrames[keyFrames.length - 1].logScale;
+		if (logarithmic) {
+			step = ((logScaleEnd - logScaleStart - LOG_BASE) / LOG_BASE) / max;
+		} else {
+			step = Math.expm1(logScaleEnd - logScaleStart) / max;
+		}
+		// a frame moves on to the next pair of key frames once its scale passes
+		// the second key frame, but never by more than one key frame per frame
+		final int[] result = new int[keyFrames.length - 1];
+		int segment = 0;
+		for (int i = 0; i <= max && segment + 2 < keyFrames.length; i++) {
+			if (getLogScale(i) < keyFrames[segment + 1].logScale) {
+				result[++segment] = i;
+			}
+		}
+		starts = Arrays.copyOf(result, segment + 1);
+	}
+
+	/**
+	 * Creates the schedule of a movie whose scale changes linearly
+	 * from the first to the last key frame.
+	 * @param frames the key frames, at least two
+	 * @param frameCount the number of steps, the movie has one frame more
+	 * @return the schedule
+	 */
+	public static FrameSchedule linear(final List<FrameData> frames, final int frameCount) {
+		return new FrameSchedule(frames, frameCount, false);
+	}
+
+	/**
+	 * Creates the schedule of a movie whose scale changes exponentially from
+	 * the first to the last key frame, that is the zoom has a constant speed.
+	 * The centers move along a smooth curve through the key frames.
+	 * @param frames the key frames, at least two
+	 * @param frameCount the number of steps, the movie has one frame more
+	 * @return the schedule
+	 */
+	public static FrameSchedule logarithmic(final List<FrameData> frames, final int frameCount) {
+		return new FrameSchedule(frames, frameCount, true);
+	}
+
+	/**
+	 * Returns the number of frames.
+	 * @return the number of frames.
+	 */
+	public int size() {
+		return max + 1;
+	}
+
+	/**
+	 * Returns the frame with the given index.
+	 * @param index the index of the frame, from zero to {@code size() - 1}
+	 * @return a new instance holding the frame
+	 */
+	public FrameData get(final int index) {
+		if (index < 0 || index > max) {
+			throw new IndexOutOfBoundsException(Integer.toString(index));
+		}
+		final int found = Arrays.binarySearch(starts, index);
+		final int segment = found >= 0 ? found : -found - 2;
+		final FrameData current = keyFrames[segment];
+		final FrameData next = keyFrames[segment + 1];
+		final double t = Math.expm1(getLogScale(index) - current.logScale) / Math.expm1(next.logScale - current.logScale);
+		// Bezier curve with the control points on the key frames
+		final double weight = logarithmic ? t * t * (3 - 2 * t) : t;
+		// s = s0 + (s1 - s0) * weight, computed on the logarithms
+		final double logScale = current.logScale + Math.log1p(Math.expm1(next.logScale - current.logScale) * weight);
+		final FrameData result = new FrameData(keyFrames[0].dimension, current.center, logScale, current.frameOffset);
+		result.center = current.center.interpolate(next.center, weight, result.getMathContext());
+		return result;
+	}
+
+	/**
+	 * Returns all frames in order. The stream can be processed in parallel.
+	 * @return the frames in order
+	 */
+	public Stream<FrameData> stream() {
+		return stream(0);
+	}
+
+	/**
+	 * Returns the frames starting at the given index in order, for
+	 * example to resume rendering a movie. The stream can be processed in parallel.
+	 * @param from the index of the first frame
+	 * @return the frames from the given index on
+	 */
+	public Stream<FrameData> stream(final int from) {
+		return IntStream.rangeClosed(from, max).mapToObj(this::get);
+	}
+
+	private double getLogScale(final int index) {
+		return logarithmic
+			// initial * BASE^(step * index)
+			? logScaleStart + step * index * LOG_BASE
+			// the scale changes linearly from the first to the last frame
+			: logScaleStart + Math.log1p(step * index);
+	}
+
+}
@@ -0,0 +1,162 @@
+package de.engehausen.mb;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import de.engehausen.mb.math.MandelbrotSet;
+import de.engehausen.mb.math.PreciseNumber;
+import de.engehausen.mb.math.RenderStatistics;
+import de.engehausen.mb.math.Resampler;
+
+/**
+ * Renders a zoom by rendering only every n-th frame, as a key frame covering
+ * the following frames with the pixel spacing of the finest of them. The
+ * frames are then resampled from the key frame. Longer intervals save more
+ * rendering, but the key frames get larger and the early frames of an interval
+ * are shrunk more.
+ */
+class KeyFrameRenderer {
+
+	// limit of the pixels of a key frame, relative to the pixels of a frame
+	private static final int MAX_AREA = 4;
+
+	private final MandelbrotSet mandelbrot;
+	private final Dimension dimension;
+	private final int interval;
+	private final int[] colors;
+
+	/**
+	 * Creates the renderer.
+	 * @param mandelbrot the Mandelbrot set to render with
+	 * @param dimension the size of the frames
+	 * @param interval the maximum number of frames resampled from one key frame, must be positive
+	 * @param colors the colors to render with
+	 */
+	KeyFrameRenderer(final MandelbrotSet mandelbrot, final Dimension dimension, final int interval, final int... colors) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("interval must be positive"); //$NON-NLS-1$
+		}
+		this.mandelbrot = mandelbrot;
+		this.dimension = dimension;
+		this.interval = interval;
+		this.colors = colors;
+	}
+
+	/**
+	 * Renders the frames of the stream and passes them to the consumer in order.
+	 * If the consumer returns {@code false}, the remaining frames are discarded.
+	 * @param frames the frames to render, the stream may reuse its instances
+	 * @param consumer the consumer of the rendered frames
+	 */
+	void run(final Stream<FrameData> frames, final FramePipeline.Consumer consumer) {
+		final Iterator<FrameData> iterator = frames.iterator();
+		FrameData pending = iterator.hasNext() ? new FrameData(iterator.next()) : null;
+		while (pending != null) {
+			final List<FrameData> group = new ArrayList<>(interval);
+			group.add(pending);
+			pending = null;
+			KeyFrame key = new KeyFrame(group);
+			while (group.size() < interval && iterator.hasNext()) {
+				final FrameData next = new FrameData(iterator.next());
+				if (next.frameOffset == group.get(0).frameOffset) {
+					group.add(next);
+					final KeyFrame extended = new KeyFrame(group);
+					if (extended.width * (long) extended.height <= MAX_AREA * (long) dimension.width * dimension.height) {
+						key = extended;
+						continue;
+					}
+					group.remove(group.size() - 1);
+				}
+				pending = next;
+				break;
+			}
+			if (pending == null && iterator.hasNext()) {
+				pending = new FrameData(iterator.next());
+			}
+			if (!render(key, group, consumer)) {
+				return;
+			}
+		}
+	}
+
+	private boolean render(final KeyFrame key, final List<FrameData> group, final FramePipeline.Consumer consumer) {
+		final RenderStatistics statistics = new RenderStatistics();
+		final FrameData first = group.get(0);
+		final FrameData keyData = new FrameData(new Dimension(key.width, key.height), key.center(first), Math.log(key.spacing * Math.min(key.width, key.height)), first.frameOffset);
+		final Resampler resampler = mandelbrot.createResampler(mandelbrot.render(keyData, new BufferedImage(key.width, key.height, BufferedImage.TYPE_INT_RGB), statistics, colors));
+		for (int i = 0; i < group.size(); i++) {
+			final double spacing = spacing(group.get(i));
+			final BufferedImage frame = resampler.resample(
+				(key.offsets[2 * i] - spacing * dimension.width / 2 - key.left) / key.spacing,
+				(key.offsets[2 * i + 1] - spacing * dimension.height / 2 - key.top) / key.spacing,
+				spacing / key.spacing,
+				new BufferedImage(dimension.width, dimension.height, BufferedImage.TYPE_3BYTE_BGR)
+			);
+			if (!consumer.accept(new FramePipeline.Frame(frame, statistics))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private double spacing(final FrameData frameData) {
+		return frameData.getScale() / Math.min(dimension.width, dimension.height);
+	}
+
+	/**
+	 * The area covered by the frames of an interval. Positions are
+	 * relative to the center of the first frame.
+	 */
+	private class KeyFrame {
+
+		protected final double[] offsets;
+		protected final double spacing;
+		protected final double left;
+		protected final double top;
+		protected final int width;
+		protected final int height;
+
+		protected KeyFrame(final List<FrameData> group) {
+			final PreciseNumber origin = group.get(0).center;
+			offsets = new double[2 * group.size()];
+			double minSpacing = Double.POSITIVE_INFINITY;
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < group.size(); i++) {
+				final FrameData frameData = group.get(i);
+				final double x = frameData.center.getReal().subtract(origin.getReal()).doubleValue();
+				final double y = frameData.center.getImaginary().subtract(origin.getImaginary()).doubleValue();
+				offsets[2 * i] = x;
+				offsets[2 * i + 1] = y;
+				final double frameSpacing = spacing(frameData);
+				minSpacing = Math.min(minSpacing, frameSpacing);
+				minX = Math.min(minX, x - frameSpacing * dimension.width / 2);
+				minY = Math.min(minY, y - frameSpacing * dimension.height / 2);
+				maxX = Math.max(maxX, x + frameSpacing * (dimension.width / 2d - 1));
+				maxY = Math.max(maxY, y + frameSpacing * (dimension.height / 2d - 1));
+			}
+			spacing = minSpacing;
+			left = minX;
+			top = minY;
+			width = (int) Math.ceil((maxX - minX) / spacing) + 1;
+			height = (int) Math.ceil((maxY - minY) / spacing) + 1;
+		}
+
+		/**
+		 * Returns the center of the key frame.
+		 * @param first the first frame of the interval
+		 * @return the center of the key frame
+		 */
+		protected PreciseNumber center(final FrameData first) {
+			return first.center.add(left + spacing * width / 2, top + spacing * height / 2, first.getMathContext());
+		}
+
+	}
+
+}
@@ -0,0 +1,46 @@
+package de.engehausen.mb;
+
+/**
+ * The kinds of movies the {@link MovieRenderer} can produce.
+ */
+public enum MovieMode {
+
+	/** zooms from the first to the last frame of the designer */
+	ZOOM("movie.zoom"), //$NON-NLS-1$
+	/**
+	 * zooms like {@link #ZOOM}, but renders only key frames covering the next
+	 * frames in higher resolution; the frames in between are resampled
+	 */
+	RESAMPLED_ZOOM("movie.resampled.zoom"), //$NON-NLS-1$
+	/**
+	 * zooms like {@link #ZOOM}, but computes the zoom into the center of the deepest
+	 * frame only once in log-polar coordinates; the frames are remapped from it
+	 */
+	EXPONENTIAL_ZOOM("movie.exponential.zoom"), //$NON-NLS-1$
+	/**
+	 * zooms like {@link #ZOOM}, but reuses the iteration counts of the previous frame
+	 * inside uniform regions; only the remaining pixels are computed
+	 */
+	REPROJECTED_ZOOM("movie.reprojected.zoom"), //$NON-NLS-1$
+	/**
+	 * shows the current frame of the designer with a cycling palette; the
+	 * iteration counts are computed only once and colored again for each frame
+	 */
+	COLOR_CYCLE("movie.color.cycle"); //$NON-NLS-1$
+
+	private final String key;
+
+	private MovieMode(final String key) {
+		this.key = key;
+	}
+
+	/**
+	 * Returns the localized name of the mode, which is shown in the movie dialog.
+	 * @return the localized name of the mode.
+	 */
+	@Override
+	public String toString() {
+		return Messages.getString(key);
+	}
+
+}
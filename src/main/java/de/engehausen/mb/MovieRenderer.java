@@ -1,9 +1,12 @@
 package de.engehausen.mb;
 
 import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.text.MessageFormat;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 import javax.swing.ProgressMonitor;
 import javax.swing.SwingWorker;
@@ -16,13 +19,21 @@ import com.xuggle.xuggler.ICodec;
 import com.xuggle.xuggler.IRational;
 import com.xuggle.xuggler.IStreamCoder;
 
+import de.engehausen.mb.math.Formula;
+import de.engehausen.mb.math.IterationField;
 import de.engehausen.mb.math.MandelbrotSet;
+import de.engehausen.mb.math.PreciseNumber;
+import de.engehausen.mb.math.RenderStatistics;
 import de.engehausen.mb.ui.Designer;
 
 /**
  * Renders the frames defined in the {@link Designer} into a
  * MP4 movie with the given frames per second and number of frames
- * per zoom step.
+ * per zoom step. The zoom can also be resampled from sparse key frames
+ * or remapped from a single log-polar map, or reuse the iteration counts
+ * of the previous frame.
+ * Alternatively the current frame of the designer is rendered once and
+ * shown with a cycling palette.
  */
 public class MovieRenderer extends SwingWorker<Void, Void> {
 
@@ -33,6 +44,8 @@ public class MovieRenderer extends SwingWorker<Void, Void> {
 	private final int bitRate;
 	private final ProgressMonitor progress;
 	private final String fileName;
+	private final MovieMode mode;
+	private final int keyFrameInterval;
 
 	/**
 	 * Creates the render.
@@ -42,6 +55,8 @@ public class MovieRenderer extends SwingWorker<Void, Void> {
 	 * @param quality the quality (1..51, from best to worst)
 	 * @param bitrate bitrate for the video
 	 * @param fileName the file name of the result video
+	 * @param mode the kind of movie to render
+	 * @param keyFrameInterval the number of frames resampled from one key frame in {@link MovieMode#RESAMPLED_ZOOM}
 	 * @param monitor a progress monitor
 	 */
 	public MovieRenderer(
@@ -51,10 +66,14 @@ public class MovieRenderer extends SwingWorker<Void, Void> {
 		final int quality,
 		final int bitrate,
 		final String fileName,
+		final MovieMode mode,
+		final int keyFrameInterval,
 		final ProgressMonitor monitor
 	) {
 		this.designer = designer;
 		this.fileName = fileName;
+		this.mode = mode;
+		this.keyFrameInterval = keyFrameInterval;
 		framesPerSecond = fps;
 		frameCount = fps * seconds;
 		qScale = quality;
@@ -98,29 +117,55 @@ public class MovieRenderer extends SwingWorker<Void, Void> {
 		final AtomicInteger count = new AtomicInteger();
 		final AtomicLong timestamp = new AtomicLong(-msGoal);
 		try {
-			FrameStreams
-				.buildLogarithmic(
-					designer.getFrameDataList(),
-					frameCount
-				).forEach(frameData -> {
+			if (mode == MovieMode.COLOR_CYCLE) {
+				final FrameData frameData = designer.getFramePreview().getFrameData();
+				final PreciseNumber topLeft = frameData.getTopLeft(dimension.width, dimension.height);
+				final IterationField field = mandelbrot.computeField(
+					topLeft,
+					frameData.getScale(),
+					dimension.width,
+					dimension.height,
+					mandelbrot.getIterations(topLeft, frameData.getScale(), dimension.width, dimension.height, colors.length),
+					mandelbrot.getRenderMode()
+				);
+				final BufferedImage image = new BufferedImage(dimension.width, dimension.height, BufferedImage.TYPE_3BYTE_BGR);
+				for (int i = 0; i < frameCount && !progress.isCanceled(); i++) {
+					mandelbrot.colorize(field, (frameData.frameOffset + i) % colors.length, image, colors);
+					encode(writer, image, timestamp.addAndGet(msGoal), note(field.getStatistics()), count.incrementAndGet());
+				}
+			} else if (mode == MovieMode.REPROJECTED_ZOOM) {
+				final boolean validate = Boolean.getBoolean("mb.validateReuse"); //$NON-NLS-1$
+				final ReprojectingRenderer renderer = new ReprojectingRenderer(mandelbrot, dimension, validate, colors);
+				renderer.run(FrameStreams.buildLogarithmic(designer.getFrameDataList(), frameCount), frame -> {
 					if (progress.isCanceled()) {
-						return;
+						return false;
 					}
-					writer
-						.encodeVideo(
-							0,
-							mandelbrot.render(
-								frameData.topLeft,
-								frameData.scale,
-								dimension.width,
-								dimension.height,
-								frameData.frameOffset,
-								colors
-							),
-							timestamp.addAndGet(msGoal),
-							TimeUnit.MILLISECONDS);
-					progress.setProgress(count.incrementAndGet());
+					final Long reused = Long.valueOf(Math.round(100 * renderer.getReuseRate()));
+					final String note = validate
+						? MessageFormat.format(Messages.getString("frame.reuse.validation"), reused, Double.valueOf(100 * renderer.getErrorRate())) //$NON-NLS-1$
+						: MessageFormat.format(Messages.getString("frame.reuse"), reused); //$NON-NLS-1$
+					encode(writer, frame.image, timestamp.addAndGet(msGoal), note, count.incrementAndGet());
+					return true;
 				});
+			} else {
+				final FramePipeline.Consumer encoder = frame -> {
+					if (progress.isCanceled()) {
+						return false;
+					}
+					encode(writer, frame.image, timestamp.addAndGet(msGoal), note(frame.statistics), count.incrementAndGet());
+					return true;
+				};
+				final Stream<FrameData> frames = FrameStreams.buildLogarithmic(designer.getFrameDataList(), frameCount);
+				if (mode == MovieMode.RESAMPLED_ZOOM) {
+					new KeyFrameRenderer(mandelbrot, dimension, keyFrameInterval, colors).run(frames, encoder);
+				} else if (mode == MovieMode.EXPONENTIAL_ZOOM && mandelbrot.getFormula() == Formula.MANDELBROT) {
+					new ExponentialMapRenderer(mandelbrot, dimension, colors).run(frames, encoder);
+				} else {
+					// frames are rendered concurrently, this thread encodes them in order;
+					// formulas without an exponential map also end up here
+					new FramePipeline(mandelbrot, dimension, colors).run(frames, encoder);
+				}
+			}
 		} finally {
 			writer.close();
 			progress.close();
@@ -128,4 +173,26 @@ public class MovieRenderer extends SwingWorker<Void, Void> {
 		return null;
 	}
 
+	private void encode(final IMediaWriter writer, final BufferedImage image, final long timestamp, final String note, final int count) {
+		writer
+			.encodeVideo(
+				0,
+				image,
+				timestamp,
+				TimeUnit.MILLISECONDS);
+		progress.setNote(note);
+		progress.setProgress(count);
+	}
+
+	private static String note(final RenderStatistics statistics) {
+		final Long skipped = Long.valueOf(100 * statistics.getSkippedPixels() / statistics.getPixels());
+		if (statistics.getVerifiedPixels() > 0) {
+			return MessageFormat.format(Messages.getString("frame.statistics.verified"), skipped, Long.valueOf(statistics.getMismatchedPixels()), Long.valueOf(statistics.getVerifiedPixels())); //$NON-NLS-1$
+		}
+		if (statistics.getSupersampledPixels() > 0) {
+			return MessageFormat.format(Messages.getString("frame.statistics.supersampled"), skipped, Long.valueOf(statistics.getExtraSamples()), Long.valueOf(statistics.getSupersampledPixels())); //$NON-NLS-1$
+		}
+		return MessageFormat.format(Messages.getString("frame.statistics"), skipped); //$NON-NLS-1$
+	}
+
 }
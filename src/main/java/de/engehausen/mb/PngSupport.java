@@ -19,6 +19,8 @@ import javax.imageio.stream.ImageOutputStream;
 
 import org.w3c.dom.NodeList;
 
+import de.engehausen.mb.math.Formula;
+
 /**
  * Writes and reads Mandelbrot frames in PNG format.
  */
@@ -31,6 +33,7 @@ public class PngSupport {
 
 	private static final String KEY_COLORS = "colors"; //$NON-NLS-1$
 	private static final String KEY_FRAME_DATA = "frameData"; //$NON-NLS-1$
+	private static final String KEY_FORMULA = "formula"; //$NON-NLS-1$
 
 	/**
 	 * Writes the image in PNG format and attached the given meta data.
@@ -71,6 +74,8 @@ public class PngSupport {
 						result.frameData = FrameData.parseFrameData(node.getAttribute(META_VALUE));
 					} else if (KEY_COLORS.equals(key)) {
 						result.colors = parseColors(node.getAttribute(META_VALUE));
+					} else if (KEY_FORMULA.equals(key)) {
+						result.formula = Formula.valueOf(node.getAttribute(META_VALUE));
 					}
 				}
 			} else {
@@ -98,6 +103,7 @@ public class PngSupport {
 				final IIOMetadata data = image.getMetadata();
 				addMetaData(data, KEY_FRAME_DATA, FrameData.toString(metaData.frameData));
 				addMetaData(data, KEY_COLORS, toString(metaData.colors));
+				addMetaData(data, KEY_FORMULA, metaData.formula.toString());
 
 				final ImageWriter writer = ImageIO.getImageWriter(reader);
 				writer.setOutput(output);
@@ -158,6 +164,8 @@ public class PngSupport {
 
 		public FrameData frameData;
 		public int[] colors;
+		/** the formula of the frame, images without it show the Mandelbrot set */
+		public Formula formula = Formula.MANDELBROT;
 
 		/**
 		 * Returns the color array. This method
@@ -0,0 +1,92 @@
+package de.engehausen.mb;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import de.engehausen.mb.math.IterationField;
+import de.engehausen.mb.math.MandelbrotSet;
+import de.engehausen.mb.math.PreciseNumber;
+
+/**
+ * Renders a zoom frame by frame, reusing the iteration counts of the previous
+ * frame wherever they are found in a uniform region (see
+ * {@link MandelbrotSet#computeField(PreciseNumber, double, int, int, int, de.engehausen.mb.math.RenderMode, IterationField)}).
+ * In validation mode every frame is computed a second time without reuse
+ * and the pixels differing between both are counted.
+ */
+class ReprojectingRenderer {
+
+	private final MandelbrotSet mandelbrot;
+	private final Dimension dimension;
+	private final boolean validate;
+	private final int[] colors;
+	private long pixels;
+	private long reused;
+	private long wrong;
+
+	/**
+	 * Creates the renderer.
+	 * @param mandelbrot the Mandelbrot set to render with
+	 * @param dimension the size of the frames
+	 * @param validate {@code true} to compare every frame with a full render
+	 * @param colors the colors to render with
+	 */
+	ReprojectingRenderer(final MandelbrotSet mandelbrot, final Dimension dimension, final boolean validate, final int... colors) {
+		this.mandelbrot = mandelbrot;
+		this.dimension = dimension;
+		this.validate = validate;
+		this.colors = colors;
+	}
+
+	/**
+	 * Renders the frames of the stream and passes them to the consumer in order.
+	 * If the consumer returns {@code false}, the remaining frames are discarded.
+	 * @param frames the frames to render, the stream may reuse its instances
+	 * @param consumer the consumer of the rendered frames
+	 */
+	void run(final Stream<FrameData> frames, final FramePipeline.Consumer consumer) {
+		final Iterator<FrameData> iterator = frames.iterator();
+		IterationField previous = null;
+		while (iterator.hasNext()) {
+			final FrameData frameData = iterator.next();
+			final PreciseNumber topLeft = frameData.getTopLeft(dimension.width, dimension.height);
+			final int max = mandelbrot.getIterations(topLeft, frameData.getScale(), dimension.width, dimension.height, colors.length);
+			final IterationField field = mandelbrot.computeField(topLeft, frameData.getScale(), dimension.width, dimension.height, max, mandelbrot.getRenderMode(), previous);
+			pixels += field.getStatistics().getPixels();
+			reused += field.getStatistics().getReusedPixels();
+			if (validate) {
+				final int[] expected = mandelbrot.computeField(topLeft, frameData.getScale(), dimension.width, dimension.height, max, mandelbrot.getRenderMode()).getCounts();
+				final int[] actual = field.getCounts();
+				for (int i = 0; i < actual.length; i++) {
+					if (actual[i] != expected[i]) {
+						wrong++;
+					}
+				}
+			}
+			previous = field;
+			if (!consumer.accept(new FramePipeline.Frame(mandelbrot.colorize(field, frameData.frameOffset, new BufferedImage(dimension.width, dimension.height, BufferedImage.TYPE_3BYTE_BGR), colors), field.getStatistics()))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the share of the pixels rendered so far which were reused from the previous frame.
+	 * @return the share of reused pixels, between zero and one
+	 */
+	double getReuseRate() {
+		return pixels > 0 ? reused / (double) pixels : 0;
+	}
+
+	/**
+	 * Returns the share of the reused pixels rendered so far which differ from a full
+	 * render. This is only available in validation mode.
+	 * @return the share of wrong pixels among the reused pixels, between zero and one
+	 */
+	double getErrorRate() {
+		return reused > 0 ? wrong / (double) reused : 0;
+	}
+
+}
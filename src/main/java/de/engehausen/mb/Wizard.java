@@ -29,8 +29,11 @@ import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
+import de.engehausen.mb.math.Colorizer;
+import de.engehausen.mb.math.IterationField;
 import de.engehausen.mb.math.MandelbrotSet;
 import de.engehausen.mb.math.Number;
+import de.engehausen.mb.math.PreciseNumber;
 import de.engehausen.mb.ui.AbstractDialog;
 import de.engehausen.mb.ui.Designer;
 
@@ -59,6 +62,7 @@ public class Wizard extends AbstractDialog implements ActionListener, KeyListene
 	private final GradientPreview preview;
 	private final MandelbrotPreview setPreview;
 	private final JCheckBox mirrorColors;
+	private final JCheckBox smoothColors;
 
 	/**
 	 * Creates the wizard
@@ -84,6 +88,9 @@ public class Wizard extends AbstractDialog implements ActionListener, KeyListene
 
 		mirrorColors = new JCheckBox();
 		mirrorColors.setSelected(true);
+		smoothColors = new JCheckBox();
+		smoothColors.setSelected(Boolean.getBoolean("mb.smoothColoring")); //$NON-NLS-1$
+		smoothColors.addActionListener(this);
 
 		setPreview = new MandelbrotPreview(new Dimension(224, 128));
 
@@ -110,6 +117,7 @@ public class Wizard extends AbstractDialog implements ActionListener, KeyListene
 			Messages.getString("brightness.freq"), //$NON-NLS-1$
 			Messages.getString("gradient"), //$NON-NLS-1$
 			Messages.getString("seamless"), //$NON-NLS-1$
+			Messages.getString("smooth"), //$NON-NLS-1$
 			Messages.getString("preview") //$NON-NLS-1$
 		};
 		final JComponent[] components = {
@@ -122,6 +130,7 @@ public class Wizard extends AbstractDialog implements ActionListener, KeyListene
 			brightnessFreq,
 			preview,
 			mirrorColors,
+			smoothColors,
 			setPreview
 		};
 		addRows(labels, components, gridbag, contentPane);
@@ -162,12 +171,12 @@ public class Wizard extends AbstractDialog implements ActionListener, KeyListene
 	 * @return the color gradient.
 	 */
 	public int[] getColors() {
-		final Color[] colors  = preview.getColors();
+		final int[] colors = preview.getColors();
 		final boolean seamless = mirrorColors.isSelected();
 		final int max = 2 * colors.length - 1;
 		final int[] rgbs = new int[seamless ? max : colors.length];
 		for (int i = 0; i < colors.length; i++) {
-			rgbs[i] = colors[i].getRGB();
+			rgbs[i] = colors[i];
 			if (seamless && i > 0) {
 				rgbs[max-i] = rgbs[i];
 			}
@@ -193,8 +202,9 @@ public class Wizard extends AbstractDialog implements ActionListener, KeyListene
 					2d,
 					0
 				);
+				final MandelbrotSet mandelbrot = createMandelbrotSet();
 				SwingUtilities.invokeLater(() -> {
-					new Designer(frameData, colors).setVisible(true);
+					new Designer(frameData, mandelbrot, colors).setVisible(true);
 				});
 			}
 		} else if (load.equals(source)) {
@@ -205,9 +215,12 @@ public class Wizard extends AbstractDialog implements ActionListener, KeyListene
 					final PngSupport.MandelbrotMetaData metaData = new PngSupport().readMetaData(fileChooser.getSelectedFile());
 					dialog.setVisible(false);
 					dialog.dispose();
+					final MandelbrotSet mandelbrot = createMandelbrotSet();
+					mandelbrot.setFormula(metaData.formula);
 					SwingUtilities.invokeLater(() -> {
 						new Designer(
 							metaData.frameData,
+							mandelbrot,
 							metaData.getColors()
 						).setVisible(true);
 					});
@@ -215,10 +228,18 @@ public class Wizard extends AbstractDialog implements ActionListener, KeyListene
 					JOptionPane.showMessageDialog(this, Messages.getString("cannot.load")); //$NON-NLS-1$
 				}
 			}
+		} else if (smoothColors.equals(source)) {
+			stateChanged(null);
 		}
 		
 	}
 
+	private MandelbrotSet createMandelbrotSet() {
+		final MandelbrotSet result = new MandelbrotSet();
+		result.setSmoothColoring(smoothColors.isSelected());
+		return result;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -229,9 +250,11 @@ public class Wizard extends AbstractDialog implements ActionListener, KeyListene
 			hueOffset.getValue() / 360f,
 			hueRange.getValue() / 100f,
 			saturationFreq.getValue() / 400f,
-			brightnessFreq.getValue() / 400f);
+			brightnessFreq.getValue() / 400f,
+			smoothColors.isSelected());
 		final int[] colors = getColors();
-		SwingUtilities.invokeLater(() -> setPreview.preview(colors));
+		final boolean smooth = smoothColors.isSelected();
+		SwingUtilities.invokeLater(() -> setPreview.preview(smooth, colors));
 	}
 
 	/**
@@ -280,9 +303,9 @@ public class Wizard extends AbstractDialog implements ActionListener, KeyListene
 		private static final long serialVersionUID = 1L;
 		
 		private BufferedImage image;
-		private Color[] colors;
+		private int[] colors;
 		
-		protected Color[] getColors() {
+		protected int[] getColors() {
 			return colors;
 		}
 
@@ -293,27 +316,28 @@ public class Wizard extends AbstractDialog implements ActionListener, KeyListene
 		 * @param maxColor maximum number of colors
 		 * @param saturationFreq saturation frequency
 		 * @param brightnessFreq brightness frequency
+		 * @param smooth {@code true} to show the colors interpolated for smooth coloring
 		 */
 		public void generate(final int count,
 			final float offset,
 			final float maxColor,
 			final float saturationFreq,
-			final float brightnessFreq) {
-			colors = new Color[count];
+			final float brightnessFreq,
+			final boolean smooth) {
+			colors = new int[count];
 			final double hueStep = maxColor / count;
 			float hue = offset;
 			float saturation = saturationFreq;
 			float brightness = brightnessFreq;
 			for (int i = 0; i < count; i++) {
-				colors[i] = Color.getHSBColor(hue, (float) (1 + Math.cos(saturation))/2, (float) (1 + Math.cos(brightness))/2);
+				colors[i] = Color.HSBtoRGB(hue, (float) (1 + Math.cos(saturation))/2, (float) (1 + Math.cos(brightness))/2);
 				hue += hueStep;
 				saturation += saturationFreq;
 				brightness += brightnessFreq;
 			}
-			image = new BufferedImage(count, 1, BufferedImage.TYPE_INT_RGB);
-			for (int i = 0; i < count; i++) {
-				image.setRGB(i, 0, colors[i].getRGB());
-			}
+			final int[] rgbs = smooth ? Colorizer.lut(colors) : colors;
+			image = new BufferedImage(rgbs.length, 1, BufferedImage.TYPE_INT_RGB);
+			image.setRGB(0, 0, rgbs.length, 1, rgbs, 0, rgbs.length);
 			repaint();
 		}
 
@@ -334,7 +358,8 @@ public class Wizard extends AbstractDialog implements ActionListener, KeyListene
 		private final Dimension dimension;
 		private final MandelbrotSet mandelbrot;
 		private BufferedImage image;
-		private final Number topLeft = new Number(-2.25, -1);
+		private IterationField field;
+		private final PreciseNumber topLeft = new PreciseNumber(new Number(-2.25, -1));
 		
 		public MandelbrotPreview(final Dimension size) {
 			dimension = size;
@@ -342,11 +367,19 @@ public class Wizard extends AbstractDialog implements ActionListener, KeyListene
 		}
 
 		/**
-		 * Updates the preview image.
+		 * Updates the preview image. The iteration counts are kept and only
+		 * computed again if the iteration budget for the colors or the coloring
+		 * mode changes; for smooth coloring they include their fractions.
+		 * @param smooth {@code true} for smooth coloring
 		 * @param colors the colors to use to generate the image
 		 */
-		public void preview(final int... colors) {
-			image = mandelbrot.render(topLeft, 2d, dimension.width, dimension.height, 0, colors);
+		public void preview(final boolean smooth, final int... colors) {
+			final int max = mandelbrot.getIterations(topLeft, 2d, dimension.width, dimension.height, colors.length);
+			if (field == null || field.getMax() != max || (field.getFractions() != null) != smooth) {
+				field = mandelbrot.computeField(topLeft, 2d, dimension.width, dimension.height, max, mandelbrot.getRenderMode(), null, smooth);
+			}
+			final BufferedImage target = new BufferedImage(dimension.width, dimension.height, BufferedImage.TYPE_INT_RGB);
+			image = smooth ? mandelbrot.colorizeSmooth(field, 0, target, colors) : mandelbrot.colorize(field, 0, target, colors);
 			repaint();
 		}
 
@@ -0,0 +1,174 @@
+package de.engehausen.mb.math;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A rectangular area of the image, rendered as a fork/join task.
+ * Areas of the Mandelbrot set lying completely inside the main cardioid or
+ * the period-2 bulb are filled without any iteration; other formulas are
+ * iterated by the {@link Formula} of the job.
+ * Pixels are iterated in double-double arithmetic if the job provides
+ * the trailing parts of the coordinates and in {@code float} arithmetic if the
+ * job asks for {@link Precision#FLOAT}. Pixels whose iteration count is
+ * already known are not iterated at all.
+ */
+abstract class Area extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+	// distance to the boundary of the cardioid and bulb which the coordinates
+	// rounded to double must keep to be safely inside in double-double precision
+	private static final double MARGIN = 1e-12;
+
+	protected final RenderJob job;
+	private int interior;
+	private int reused;
+	private int verified;
+	private int mismatched;
+
+	protected Area(final RenderJob job) {
+		this.job = job;
+	}
+
+	/**
+	 * Returns the iteration count for the given pixel.
+	 * @param px the pixel column
+	 * @param py the pixel row
+	 * @return the iteration count
+	 */
+	protected int iterate(final int px, final int py) {
+		final int count = lookup(px, py);
+		if (count != Reprojection.UNKNOWN) {
+			return count;
+		}
+		if (job.xsLow != null) {
+			return EscapeTimeKernel.iterate(job.xs[px], job.xsLow[px], job.ys[py], job.ysLow[py], job.max, job.epsilon);
+		}
+		final double x = job.xs[px];
+		final double y = job.ys[py];
+		if (job.formula != Formula.MANDELBROT) {
+			// not used by the areas, which hand formulas rows or batches
+			return job.formula.iterate(x, y, job.max, job.epsilon);
+		}
+		if (job.precision == Precision.FLOAT) {
+			final int single = EscapeTimeKernel.iterate((float) x, (float) y, job.max, (float) job.epsilon);
+			if (job.verify) {
+				verified++;
+				if (single != EscapeTimeKernel.iterate(x, y, job.max, job.epsilon)) {
+					mismatched++;
+				}
+			}
+			return single;
+		}
+		return EscapeTimeKernel.iterate(x, y, job.max, job.epsilon);
+	}
+
+	/**
+	 * Returns the iteration counts for the given pixels. Formulas other than
+	 * the Mandelbrot set iterate all pixels which are not known in a single batch.
+	 * @param pxs the pixel columns
+	 * @param pys the pixel rows
+	 * @param size the number of pixels
+	 * @param counts receives the iteration counts
+	 */
+	protected void iterate(final int[] pxs, final int[] pys, final int size, final int[] counts) {
+		if (job.formula == Formula.MANDELBROT) {
+			for (int i = 0; i < size; i++) {
+				counts[i] = iterate(pxs[i], pys[i]);
+			}
+			return;
+		}
+		final double[] real = new double[size];
+		final double[] imaginary = new double[size];
+		final int[] pending = new int[size];
+		int unknown = 0;
+		for (int i = 0; i < size; i++) {
+			counts[i] = lookup(pxs[i], pys[i]);
+			if (counts[i] == Reprojection.UNKNOWN) {
+				real[unknown] = job.xs[pxs[i]];
+				imaginary[unknown] = job.ys[pys[i]];
+				pending[unknown++] = i;
+			}
+		}
+		final int[] results = new int[unknown];
+		job.formula.iterate(real, imaginary, unknown, job.max, job.epsilon, results);
+		for (int i = 0; i < unknown; i++) {
+			counts[pending[i]] = results[i];
+		}
+	}
+
+	/**
+	 * Returns the iteration count for the given pixel if it is known without
+	 * iterating, because it was reused or lies inside the cardioid or bulb.
+	 * @param px the pixel column
+	 * @param py the pixel row
+	 * @return the iteration count, {@link Reprojection#UNKNOWN} if the pixel needs to be iterated
+	 */
+	protected int lookup(final int px, final int py) {
+		if (job.known != null) {
+			final int count = job.known[py * job.xs.length + px];
+			if (count != Reprojection.UNKNOWN) {
+				reused++;
+				return count;
+			}
+		}
+		if (job.formula != Formula.MANDELBROT) {
+			return Reprojection.UNKNOWN;
+		}
+		if (job.xsLow != null ? isInterior(px, py, px, py) : EscapeTimeKernel.isInterior(job.xs[px], job.ys[py])) {
+			interior++;
+			return job.max + 1;
+		}
+		return Reprojection.UNKNOWN;
+	}
+
+	/**
+	 * Tests if the given pixel rectangle lies inside the main cardioid or the period-2 bulb.
+	 * @param left the first column
+	 * @param top the first row
+	 * @param right the last column (inclusive)
+	 * @param bottom the last row (inclusive)
+	 * @return {@code true} if all pixels of the rectangle are inside the set,
+	 * always {@code false} for formulas other than the Mandelbrot set
+	 */
+	protected boolean isInterior(final int left, final int top, final int right, final int bottom) {
+		if (job.formula != Formula.MANDELBROT) {
+			return false;
+		}
+		final double margin = job.xsLow == null ? 0 : MARGIN;
+		return EscapeTimeKernel.isInterior(job.xs[left] - margin, job.ys[top] - margin, job.xs[right] + margin, job.ys[bottom] + margin);
+	}
+
+	/**
+	 * Fills the given pixel rectangle with the interior color.
+	 * @param left the first column
+	 * @param top the first row
+	 * @param right the last column (exclusive)
+	 * @param bottom the last row (exclusive)
+	 */
+	protected void fillInterior(final int left, final int top, final int right, final int bottom) {
+		final int[] rgbs = new int[right - left];
+		Arrays.fill(rgbs, job.palette[job.max + 1]);
+		for (int py = top; py < bottom; py++) {
+			job.writer.write(left, py, rgbs.length, rgbs);
+		}
+		job.statistics.addPixels(rgbs.length * (bottom - top));
+		job.statistics.addInteriorTilePixels(rgbs.length * (bottom - top));
+	}
+
+	/**
+	 * Adds the pixels found inside the cardioid or bulb, the reused pixels
+	 * and the verified pixels of {@link #iterate(int, int)} to the statistics.
+	 */
+	protected void flushStatistics() {
+		job.statistics.addInteriorPixels(interior);
+		job.statistics.addReusedPixels(reused);
+		job.statistics.addVerifiedPixels(verified);
+		job.statistics.addMismatchedPixels(mismatched);
+		interior = 0;
+		reused = 0;
+		verified = 0;
+		mismatched = 0;
+	}
+
+}
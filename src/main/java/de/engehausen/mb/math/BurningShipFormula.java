@@ -0,0 +1,81 @@
+package de.engehausen.mb.math;
+
+/**
+ * The Burning Ship fractal, z² + c with the absolute values of the components
+ * of z taken before squaring. The imaginary axis points down in images, so the
+ * ship is upright.
+ */
+final class BurningShipFormula extends Formula {
+
+	/** id of the formula */
+	static final String ID = "burningShip"; //$NON-NLS-1$
+
+	private static final double[] NONE = new double[0];
+
+	@Override
+	public String getId() {
+		return ID;
+	}
+
+	@Override
+	public double[] getParameters() {
+		return NONE;
+	}
+
+	@Override
+	public boolean isConjugateSymmetric() {
+		return false;
+	}
+
+	@Override
+	public int iterate(final double real, final double imaginary, final int max, final double epsilon) {
+		return iterateShip(real, imaginary, max, epsilon);
+	}
+
+	@Override
+	public void iterate(final double[] real, final int from, final int to, final double imaginary, final int max, final double epsilon, final int[] counts) {
+		for (int i = from; i < to; i++) {
+			if (counts[i - from] < 0) {
+				counts[i - from] = iterateShip(real[i], imaginary, max, epsilon);
+			}
+		}
+	}
+
+	@Override
+	public void iterate(final double[] real, final double[] imaginary, final int count, final int max, final double epsilon, final int[] counts) {
+		for (int i = 0; i < count; i++) {
+			counts[i] = iterateShip(real[i], imaginary[i], max, epsilon);
+		}
+	}
+
+	private static int iterateShip(final double cr, final double ci, final int max, final double epsilon) {
+		double x = 0;
+		double y = 0;
+		double x2 = 0;
+		double y2 = 0;
+		double savedX = 0;
+		double savedY = 0;
+		int check = EscapeTimeKernel.CYCLE_START;
+		int i = 0;
+		while (true) {
+			y = Math.abs(2 * x * y) + ci;
+			x = x2 - y2 + cr;
+			x2 = x * x;
+			y2 = y * y;
+			if (i++ >= max || !(x2 + y2 < 4)) {
+				return i;
+			}
+			if (epsilon > 0) {
+				if (Math.abs(x - savedX) < epsilon && Math.abs(y - savedY) < epsilon) {
+					return max + 1;
+				}
+				if (i == check) {
+					savedX = x;
+					savedY = y;
+					check += check;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,161 @@
+package de.engehausen.mb.math;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Maps the iteration counts of an {@link IterationField} to colors. The colors
+ * are indexed by the iteration count modulo their number, so the maximum number
+ * of iterations is independent of the number of colors (see {@link IterationBudget}).
+ * Coloring a field gives the same image as rendering it directly with the same
+ * maximum number of iterations (up to the pixels guessed by {@link RenderMode#SUBDIVISION}).
+ * For smooth coloring the colors are interpolated into a lookup table of
+ * fixed size, see {@link #lut(int...)}, and fields computed with fractions
+ * are colored by their normalized iteration counts.
+ * <p>The static methods color in the common pool; {@link MandelbrotSet#colorize(IterationField, int, BufferedImage, int...)}
+ * and {@link MandelbrotSet#colorizeSmooth(IterationField, int, BufferedImage, int...)}
+ * color in the pool of the set instead.</p>
+ */
+public final class Colorizer {
+
+	/** number of entries of the lookup table for smooth coloring */
+	public static final int LUT_SIZE = 4096;
+
+	private Colorizer() {
+	}
+
+	/**
+	 * Colors the field into the given image.
+	 * @param field the iteration counts
+	 * @param offset the color offset for the input colors
+	 * @param img the image to write to, must have the size of the field
+	 * @param colors the RGB colors to use
+	 * @return the image passed in
+	 */
+	public static BufferedImage colorize(final IterationField field, final int offset, final BufferedImage img, final int... colors) {
+		writer(field, offset, img, colors).invoke();
+		return img;
+	}
+
+	/**
+	 * Colors the field into a new image.
+	 * @param field the iteration counts
+	 * @param offset the color offset for the input colors
+	 * @param colors the RGB colors to use
+	 * @return the colored image
+	 */
+	public static BufferedImage colorize(final IterationField field, final int offset, final int... colors) {
+		return colorize(field, offset, new BufferedImage(field.getWidth(), field.getHeight(), BufferedImage.TYPE_3BYTE_BGR), colors);
+	}
+
+	/**
+	 * Colors the field smoothly into the given image: escaped pixels get the color
+	 * of their normalized iteration count from the lookup table, like images rendered with
+	 * {@link MandelbrotSet#setSmoothColoring(boolean)}. Fields without fractions
+	 * are colored like {@link #colorize(IterationField, int, BufferedImage, int...)}.
+	 * @param field the iteration counts with their fractions
+	 * @param offset the color offset for the input colors
+	 * @param img the image to write to, must have the size of the field
+	 * @param colors the RGB colors to use
+	 * @return the image passed in
+	 */
+	public static BufferedImage colorizeSmooth(final IterationField field, final int offset, final BufferedImage img, final int... colors) {
+		smoothWriter(field, offset, img, colors).invoke();
+		return img;
+	}
+
+	/**
+	 * Colors the field smoothly into a new image.
+	 * @param field the iteration counts with their fractions
+	 * @param offset the color offset for the input colors
+	 * @param colors the RGB colors to use
+	 * @return the colored image
+	 */
+	public static BufferedImage colorizeSmooth(final IterationField field, final int offset, final int... colors) {
+		return colorizeSmooth(field, offset, new BufferedImage(field.getWidth(), field.getHeight(), BufferedImage.TYPE_3BYTE_BGR), colors);
+	}
+
+	/**
+	 * Creates the task coloring the field into the given image.
+	 * @param field the iteration counts
+	 * @param offset the color offset for the input colors
+	 * @param img the image to write to, must have the size of the field
+	 * @param colors the RGB colors to use
+	 * @return the task writing the whole image
+	 */
+	static FieldWriter writer(final IterationField field, final int offset, final BufferedImage img, final int... colors) {
+		if (img.getWidth() != field.getWidth() || img.getHeight() != field.getHeight()) {
+			throw new IllegalArgumentException("image and field differ in size"); //$NON-NLS-1$
+		}
+		return new FieldWriter(PixelWriter.create(img), field.getCounts(), field.getWidth(), palette(field.getMax(), offset, colors), 0, field.getHeight());
+	}
+
+	/**
+	 * Creates the task coloring the field smoothly into the given image,
+	 * or plainly if the field has no fractions.
+	 * @param field the iteration counts with their fractions
+	 * @param offset the color offset for the input colors
+	 * @param img the image to write to, must have the size of the field
+	 * @param colors the RGB colors to use
+	 * @return the task writing the whole image
+	 */
+	static FieldWriter smoothWriter(final IterationField field, final int offset, final BufferedImage img, final int... colors) {
+		if (field.getFractions() == null) {
+			return writer(field, offset, img, colors);
+		}
+		if (img.getWidth() != field.getWidth() || img.getHeight() != field.getHeight()) {
+			throw new IllegalArgumentException("image and field differ in size"); //$NON-NLS-1$
+		}
+		return new FieldWriter(PixelWriter.create(img), field.getCounts(), field.getFractions(), field.getWidth(), palette(field.getMax(), offset, colors), new SmoothPalette(offset, colors), 0, field.getHeight());
+	}
+
+	/**
+	 * Creates the lookup table for smooth coloring: the colors, repeated cyclically,
+	 * with linearly interpolated colors in between. Entry {@code i * LUT_SIZE / colors.length}
+	 * is color {@code i}, the entries in between fade to the next color, and the
+	 * last entries fade back to the first color.
+	 * @param colors the RGB colors
+	 * @return the lookup table with {@link #LUT_SIZE} entries
+	 */
+	public static int[] lut(final int... colors) {
+		if (colors.length == 0) {
+			throw new IllegalArgumentException("no colors"); //$NON-NLS-1$
+		}
+		final int[] result = new int[LUT_SIZE];
+		for (int i = 0; i < LUT_SIZE; i++) {
+			final double position = (double) i * colors.length / LUT_SIZE;
+			final int index = (int) position;
+			final double weight = position - index;
+			final int from = colors[index];
+			final int to = colors[(index + 1) % colors.length];
+			result[i] = blend(from >> 16, to >> 16, weight) << 16
+				| blend(from >> 8, to >> 8, weight) << 8
+				| blend(from, to, weight);
+		}
+		return result;
+	}
+
+	private static int blend(final int from, final int to, final double weight) {
+		final int a = from & 0xff;
+		return a + (int) Math.round(((to & 0xff) - a) * weight);
+	}
+
+	/**
+	 * Creates the palette indexed by iteration count. The colors repeat
+	 * for counts beyond their number; points not escaping within the maximum
+	 * number of iterations always get the color of the count {@code colors.length + 1},
+	 * as if the budget were the number of colors.
+	 * @param max the maximum number of iterations
+	 * @param offset the color offset for the input colors
+	 * @param colors the RGB colors
+	 * @return the palette for counts up to {@code max + 1}
+	 */
+	static int[] palette(final int max, final int offset, final int... colors) {
+		final int[] palette = new int[max + 2];
+		for (int i = 0; i <= max; i++) {
+			palette[i] = colors[(offset + i) % colors.length];
+		}
+		palette[max + 1] = colors[(offset + colors.length + 1) % colors.length];
+		return palette;
+	}
+
+}
@@ -0,0 +1,155 @@
+package de.engehausen.mb.math;
+
+import java.math.BigDecimal;
+
+/**
+ * An unevaluated sum of two {@code double} values, giving about 106 bits
+ * of mantissa. The arithmetic uses the error-free transformations of
+ * Knuth (two-sum) and Dekker (two-product), which need no FMA instruction.
+ * Instances are immutable; the error-free transformations are also available
+ * on primitive values for loops which must not allocate.
+ */
+final class DoubleDouble {
+
+	/** zero */
+	static final DoubleDouble ZERO = new DoubleDouble(0, 0);
+
+	private static final double SPLITTER = 134217729; // 2^27 + 1
+
+	final double hi;
+	final double lo;
+
+	/**
+	 * Creates the number hi + lo.
+	 * @param hi the leading part
+	 * @param lo the trailing part, smaller than half an ulp of the leading part
+	 */
+	DoubleDouble(final double hi, final double lo) {
+		this.hi = hi;
+		this.lo = lo;
+	}
+
+	/**
+	 * Rounds the given number to double-double.
+	 * @param value the number to round
+	 * @return the rounded number
+	 */
+	static DoubleDouble valueOf(final BigDecimal value) {
+		final double hi = value.doubleValue();
+		return new DoubleDouble(hi, value.subtract(new BigDecimal(hi)).doubleValue());
+	}
+
+	/**
+	 * Computes a + b * n in double-double. This is
+	 * how the pixel coordinates are derived from their index.
+	 * @param a the origin
+	 * @param b the step
+	 * @param n the index
+	 * @return the coordinate of the index
+	 */
+	static DoubleDouble valueOf(final DoubleDouble a, final double b, final int n) {
+		return a.add(product(b, n));
+	}
+
+	/**
+	 * Returns the sum of this and the given number.
+	 * @param other the number to add
+	 * @return the sum
+	 */
+	DoubleDouble add(final DoubleDouble other) {
+		final double s = hi + other.hi;
+		return normalize(s, sumError(hi, other.hi, s) + lo + other.lo);
+	}
+
+	/**
+	 * Returns the difference of this and the given number.
+	 * @param other the number to subtract
+	 * @return the difference
+	 */
+	DoubleDouble subtract(final DoubleDouble other) {
+		return add(new DoubleDouble(-other.hi, -other.lo));
+	}
+
+	/**
+	 * Returns the product of this and the given number.
+	 * @param other the number to multiply with
+	 * @return the product
+	 */
+	DoubleDouble multiply(final DoubleDouble other) {
+		final DoubleDouble p = product(hi, other.hi);
+		return normalize(p.hi, p.lo + hi * other.lo + lo * other.hi);
+	}
+
+	/**
+	 * Returns this number multiplied by two, which is exact.
+	 * @return the doubled number
+	 */
+	DoubleDouble twice() {
+		return new DoubleDouble(2 * hi, 2 * lo);
+	}
+
+	/**
+	 * Returns the value rounded to a {@code double}.
+	 * @return the value rounded to a {@code double}.
+	 */
+	double doubleValue() {
+		return hi + lo;
+	}
+
+	/**
+	 * Returns the rounding error of the sum s = a + b (Knuth's two-sum).
+	 * @param a the first summand
+	 * @param b the second summand
+	 * @param s the rounded sum of both
+	 * @return the error, a + b - s exactly
+	 */
+	static double sumError(final double a, final double b, final double s) {
+		final double v = s - a;
+		return (a - (s - v)) + (b - v);
+	}
+
+	/**
+	 * Returns the rounding error of the product p = a * b (Dekker's two-product).
+	 * @param a the first factor
+	 * @param b the second factor
+	 * @param p the rounded product of both
+	 * @return the error, a * b - p exactly
+	 */
+	static double productError(final double a, final double b, final double p) {
+		final double as = SPLITTER * a;
+		final double ah = as - (as - a);
+		final double al = a - ah;
+		final double bs = SPLITTER * b;
+		final double bh = bs - (bs - b);
+		final double bl = b - bh;
+		return ((ah * bh - p) + ah * bl + al * bh) + al * bl;
+	}
+
+	/**
+	 * Returns the trailing part of hi + lo after renormalizing it to s = hi + lo,
+	 * where hi is larger in magnitude than lo (fast two-sum).
+	 * @param hi the leading part
+	 * @param lo the trailing part
+	 * @param s the rounded sum of both
+	 * @return the new trailing part
+	 */
+	static double normalizeError(final double hi, final double lo, final double s) {
+		return lo - (s - hi);
+	}
+
+	private static DoubleDouble product(final double a, final double b) {
+		final double p = a * b;
+		return new DoubleDouble(p, productError(a, b, p));
+	}
+
+	private static DoubleDouble normalize(final double hi, final double lo) {
+		final double s = hi + lo;
+		return new DoubleDouble(s, normalizeError(hi, lo, s));
+	}
+
+	@Override
+	public String toString() {
+		return hi + "+" + lo; //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,302 @@
+package de.engehausen.mb.math;
+
+/**
+ * The escape-time iteration z = z² + c on primitive {@code double} values.
+ * This is the hot loop of the renderer, it does not allocate and computes
+ * the squares of the components only once per iteration.
+ */
+public final class EscapeTimeKernel {
+
+	/** iteration at which the cycle detection saves the first orbit point */
+	static final int CYCLE_START = 8;
+
+	// squared escape radius of the continuous iteration count, a large radius
+	// makes the count independent of where exactly the orbit escaped
+	private static final double SMOOTH_RADIUS2 = 1 << 16;
+	private static final double LOG2 = Math.log(2);
+
+	private EscapeTimeKernel() {
+	}
+
+	/**
+	 * Iterates the point c until it leaves the radius of two or the
+	 * maximum number of iterations is exceeded. The result is identical
+	 * to iterating with {@link Number#multiply(Number)}, {@link Number#add(Number)}
+	 * and {@link Number#inside()}.
+	 * @param cr the real component of c
+	 * @param ci the imaginary component of c
+	 * @param max the maximum number of iterations
+	 * @return the iteration count, {@code max + 1} if the point did not escape
+	 */
+	public static int iterate(final double cr, final double ci, final int max) {
+		double x = 0;
+		double y = 0;
+		double x2 = 0;
+		double y2 = 0;
+		int i = 0;
+		do {
+			y = 2 * x * y + ci;
+			x = x2 - y2 + cr;
+			x2 = x * x;
+			y2 = y * y;
+		} while (i++ < max && x2 + y2 < 4);
+		return i;
+	}
+
+	/**
+	 * Iterates the point c like {@link #iterate(double, double, int)}, but detects
+	 * orbits running into a cycle. Following Brent, the orbit point is saved at
+	 * iterations which are powers of two and each further point is compared to it;
+	 * if both components differ by less than the tolerance, the point is
+	 * considered inside the set.
+	 * @param cr the real component of c
+	 * @param ci the imaginary component of c
+	 * @param max the maximum number of iterations
+	 * @param epsilon the tolerance for detecting a cycle, zero disables the detection
+	 * @return the iteration count, {@code max + 1} if the point did not escape
+	 */
+	public static int iterate(final double cr, final double ci, final int max, final double epsilon) {
+		if (epsilon <= 0) {
+			return iterate(cr, ci, max);
+		}
+		double x = 0;
+		double y = 0;
+		double x2 = 0;
+		double y2 = 0;
+		double savedX = 0;
+		double savedY = 0;
+		int check = CYCLE_START;
+		int i = 0;
+		while (true) {
+			y = 2 * x * y + ci;
+			x = x2 - y2 + cr;
+			x2 = x * x;
+			y2 = y * y;
+			if (i++ >= max || !(x2 + y2 < 4)) {
+				return i;
+			}
+			if (Math.abs(x - savedX) < epsilon && Math.abs(y - savedY) < epsilon) {
+				return max + 1;
+			}
+			if (i == check) {
+				savedX = x;
+				savedY = y;
+				check += check;
+			}
+		}
+	}
+
+	/**
+	 * Iterates the point c like {@link #iterate(double, double, int, double)} and
+	 * returns the normalized iteration count {@code n - log2(log2 |z|)}, which
+	 * is continuous across the bands of equal iteration counts. The orbit has to
+	 * leave a radius of 256 instead of two, which takes about three iterations more;
+	 * the normalization takes them off again, so the result is close to the count
+	 * of {@link #iterate(double, double, int, double)}.
+	 * @param cr the real component of c
+	 * @param ci the imaginary component of c
+	 * @param max the maximum number of iterations
+	 * @param epsilon the tolerance for detecting a cycle, zero disables the detection
+	 * @return the normalized iteration count, not negative; {@code max + 1} if the point did not escape
+	 */
+	public static double smooth(final double cr, final double ci, final int max, final double epsilon) {
+		double x = 0;
+		double y = 0;
+		double x2 = 0;
+		double y2 = 0;
+		double savedX = 0;
+		double savedY = 0;
+		int check = CYCLE_START;
+		int i = 0;
+		while (true) {
+			y = 2 * x * y + ci;
+			x = x2 - y2 + cr;
+			x2 = x * x;
+			y2 = y * y;
+			if (i++ >= max) {
+				return max + 1;
+			}
+			if (!(x2 + y2 < SMOOTH_RADIUS2)) {
+				// log2 |z| = log(|z|²) / (2 log 2)
+				return Math.max(0, i - Math.log(Math.log(x2 + y2) / (2 * LOG2)) / LOG2);
+			}
+			if (epsilon > 0) {
+				if (Math.abs(x - savedX) < epsilon && Math.abs(y - savedY) < epsilon) {
+					return max + 1;
+				}
+				if (i == check) {
+					savedX = x;
+					savedY = y;
+					check += check;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Iterates the point c like {@link #iterate(double, double, int, double)},
+	 * but in single precision. This is only exact enough for a pixel spacing
+	 * well above the precision of {@code float}; even then points close to the
+	 * boundary of the set can get a different count than in {@code double}.
+	 * @param cr the real component of c
+	 * @param ci the imaginary component of c
+	 * @param max the maximum number of iterations
+	 * @param epsilon the tolerance for detecting a cycle, zero disables the detection
+	 * @return the iteration count, {@code max + 1} if the point did not escape
+	 */
+	public static int iterate(final float cr, final float ci, final int max, final float epsilon) {
+		float x = 0;
+		float y = 0;
+		float x2 = 0;
+		float y2 = 0;
+		float savedX = 0;
+		float savedY = 0;
+		int check = CYCLE_START;
+		int i = 0;
+		while (true) {
+			y = 2 * x * y + ci;
+			x = x2 - y2 + cr;
+			x2 = x * x;
+			y2 = y * y;
+			if (i++ >= max || !(x2 + y2 < 4)) {
+				return i;
+			}
+			if (epsilon > 0) {
+				if (Math.abs(x - savedX) < epsilon && Math.abs(y - savedY) < epsilon) {
+					return max + 1;
+				}
+				if (i == check) {
+					savedX = x;
+					savedY = y;
+					check += check;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Iterates the point c like {@link #iterate(double, double, int, double)},
+	 * but in double-double arithmetic. Each component is an unevaluated sum of a leading
+	 * and a trailing {@code double}, the operations are those of {@link DoubleDouble}
+	 * written out on local variables, so the loop does not allocate.
+	 * This is still much slower than the {@code double} iteration and only
+	 * used when the pixel spacing exceeds its precision.
+	 * @param crHi the leading part of the real component of c
+	 * @param crLo the trailing part of the real component of c
+	 * @param ciHi the leading part of the imaginary component of c
+	 * @param ciLo the trailing part of the imaginary component of c
+	 * @param max the maximum number of iterations
+	 * @param epsilon the tolerance for detecting a cycle, zero disables the detection
+	 * @return the iteration count, {@code max + 1} if the point did not escape
+	 */
+	static int iterate(final double crHi, final double crLo, final double ciHi, final double ciLo, final int max, final double epsilon) {
+		double xHi = 0;
+		double xLo = 0;
+		double yHi = 0;
+		double yLo = 0;
+		double x2Hi = 0;
+		double x2Lo = 0;
+		double y2Hi = 0;
+		double y2Lo = 0;
+		double savedXHi = 0;
+		double savedXLo = 0;
+		double savedYHi = 0;
+		double savedYLo = 0;
+		int check = CYCLE_START;
+		int i = 0;
+		while (true) {
+			// y = 2xy + ci
+			double p = xHi * yHi;
+			double e = DoubleDouble.productError(xHi, yHi, p) + xHi * yLo + xLo * yHi;
+			double hi = p + e;
+			double lo = DoubleDouble.normalizeError(p, e, hi);
+			double s = 2 * hi + ciHi;
+			e = DoubleDouble.sumError(2 * hi, ciHi, s) + 2 * lo + ciLo;
+			yHi = s + e;
+			yLo = DoubleDouble.normalizeError(s, e, yHi);
+			// x = x² - y² + cr
+			s = x2Hi - y2Hi;
+			e = DoubleDouble.sumError(x2Hi, -y2Hi, s) + x2Lo - y2Lo;
+			hi = s + e;
+			lo = DoubleDouble.normalizeError(s, e, hi);
+			s = hi + crHi;
+			e = DoubleDouble.sumError(hi, crHi, s) + lo + crLo;
+			xHi = s + e;
+			xLo = DoubleDouble.normalizeError(s, e, xHi);
+			// the squares
+			p = xHi * xHi;
+			e = DoubleDouble.productError(xHi, xHi, p) + xHi * xLo + xLo * xHi;
+			x2Hi = p + e;
+			x2Lo = DoubleDouble.normalizeError(p, e, x2Hi);
+			p = yHi * yHi;
+			e = DoubleDouble.productError(yHi, yHi, p) + yHi * yLo + yLo * yHi;
+			y2Hi = p + e;
+			y2Lo = DoubleDouble.normalizeError(p, e, y2Hi);
+			if (i++ >= max || !(x2Hi + y2Hi < 4)) {
+				return i;
+			}
+			if (epsilon > 0) {
+				if (Math.abs(difference(xHi, xLo, savedXHi, savedXLo)) < epsilon && Math.abs(difference(yHi, yLo, savedYHi, savedYLo)) < epsilon) {
+					return max + 1;
+				}
+				if (i == check) {
+					savedXHi = xHi;
+					savedXLo = xLo;
+					savedYHi = yHi;
+					savedYLo = yLo;
+					check += check;
+				}
+			}
+		}
+	}
+
+	// the leading part of the double-double difference a - b
+	private static double difference(final double aHi, final double aLo, final double bHi, final double bLo) {
+		final double s = aHi - bHi;
+		final double e = DoubleDouble.sumError(aHi, -bHi, s) + aLo - bLo;
+		return s + e;
+	}
+
+	/**
+	 * Tests if the point c lies in the main cardioid or the period-2 bulb.
+	 * Such points belong to the Mandelbrot set and need no iteration.
+	 * @param cr the real component of c
+	 * @param ci the imaginary component of c
+	 * @return {@code true} if the point is known to be inside the set
+	 */
+	public static boolean isInterior(final double cr, final double ci) {
+		return inCardioid(cr, ci) || inBulb(cr, ci);
+	}
+
+	/**
+	 * Tests if a whole rectangle lies in the main cardioid or the period-2 bulb.
+	 * The bulb is a disc, so it contains the rectangle if it contains all four corners.
+	 * The cardioid is convex except for the cusp at 1/4, so a rectangle crossing
+	 * the real axis must also stay left of the cusp.
+	 * @param left the smallest real component
+	 * @param top the smallest imaginary component
+	 * @param right the largest real component
+	 * @param bottom the largest imaginary component
+	 * @return {@code true} if all points of the rectangle are known to be inside the set
+	 */
+	public static boolean isInterior(final double left, final double top, final double right, final double bottom) {
+		if (inBulb(left, top) && inBulb(right, top) && inBulb(left, bottom) && inBulb(right, bottom)) {
+			return true;
+		}
+		return (top > 0 || bottom < 0 || right < 0.25)
+			&& inCardioid(left, top) && inCardioid(right, top) && inCardioid(left, bottom) && inCardioid(right, bottom);
+	}
+
+	private static boolean inCardioid(final double cr, final double ci) {
+		final double x = cr - 0.25;
+		final double y2 = ci * ci;
+		final double q = x * x + y2;
+		return q * (q + x) <= 0.25 * y2;
+	}
+
+	private static boolean inBulb(final double cr, final double ci) {
+		final double x = cr + 1;
+		return x * x + ci * ci <= 0.0625;
+	}
+
+}
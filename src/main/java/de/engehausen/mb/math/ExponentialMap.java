@@ -0,0 +1,285 @@
+package de.engehausen.mb.math;
+
+import java.awt.image.BufferedImage;
+import java.math.MathContext;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The iteration counts around a center point in log-polar coordinates.
+ * Column {@code j} holds the angle {@code 2πj/angles}, row {@code k} the radius
+ * {@code outer * exp(-2πk/angles)}, so the samples are spaced equally along
+ * both axes and every row covers a ring of the same shape at a smaller scale.
+ * One map holds a zoom into its center over any range of scales; each frame
+ * of the zoom is remapped from it instead of being rendered.
+ * <p>The rows are computed in segments on demand and segments not needed by
+ * the most recent frame are dropped, so a map covering a deep zoom only keeps
+ * the rows of a few frames in memory. The map is not thread-safe.</p>
+ */
+public final class ExponentialMap {
+
+	// number of rows computed at once
+	private static final int SEGMENT_ROWS = 32;
+
+	private final MandelbrotSet mandelbrot;
+	private final PreciseNumber center;
+	private final double outer;
+	private final double logOuter;
+	private final int angles;
+	private final int rows;
+	private final int max;
+	private final double step;
+	private final double[] cos;
+	private final double[] sin;
+	private final int[][] segments;
+	private final RenderStatistics statistics;
+	private ReferenceOrbit orbit;
+
+	/**
+	 * Creates the map, no rows are computed yet.
+	 * @param mandelbrot the Mandelbrot set to compute the rows with
+	 * @param center the center of the map
+	 * @param innerRadius the radius of the innermost row
+	 * @param outerRadius the radius of the outermost row
+	 * @param angles the number of columns
+	 * @param max the maximum number of iterations
+	 */
+	ExponentialMap(final MandelbrotSet mandelbrot, final PreciseNumber center, final double innerRadius, final double outerRadius, final int angles, final int max) {
+		if (!(innerRadius > 0 && innerRadius < outerRadius) || angles < 4 || max < 1) {
+			throw new IllegalArgumentException("invalid radii, angles or max"); //$NON-NLS-1$
+		}
+		this.mandelbrot = mandelbrot;
+		this.center = center;
+		this.outer = outerRadius;
+		this.angles = angles;
+		this.max = max;
+		logOuter = Math.log(outerRadius);
+		step = 2 * Math.PI / angles;
+		rows = (int) Math.ceil((logOuter - Math.log(innerRadius)) / step) + 1;
+		cos = new double[angles];
+		sin = new double[angles];
+		for (int i = 0; i < angles; i++) {
+			cos[i] = Math.cos(i * step);
+			sin[i] = Math.sin(i * step);
+		}
+		segments = new int[(rows + SEGMENT_ROWS - 1) / SEGMENT_ROWS][];
+		statistics = new RenderStatistics();
+	}
+
+	/**
+	 * Returns the center of the map.
+	 * @return the center of the map.
+	 */
+	public PreciseNumber getCenter() {
+		return center;
+	}
+
+	/**
+	 * Returns the number of columns, that is angles, of the map.
+	 * @return the number of columns of the map.
+	 */
+	public int getAngles() {
+		return angles;
+	}
+
+	/**
+	 * Returns the number of rows, that is radii, of the map.
+	 * @return the number of rows of the map.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the maximum number of iterations.
+	 * @return the maximum number of iterations.
+	 */
+	public int getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the statistics of all rows computed so far.
+	 * @return the statistics of all rows computed so far.
+	 */
+	public RenderStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Colors the given part of the plane from the map into the target image.
+	 * The target pixel (x, y) shows the point (left + x * spacing, top + y * spacing)
+	 * relative to the center of the map. The colors of the four samples around
+	 * a point are interpolated bilinearly; points closer to the center than the
+	 * innermost row show the innermost row.
+	 * @param left the real offset of the first target column to the center
+	 * @param top the imaginary offset of the first target row to the center
+	 * @param spacing the pixel spacing of the target image, must be positive
+	 * @param offset the color offset for the input colors
+	 * @param target the image to write to
+	 * @param colors the RGB colors to use
+	 * @return the target image
+	 */
+	public BufferedImage remap(final double left, final double top, final double spacing, final int offset, final BufferedImage target, final int... colors) {
+		if (!(spacing > 0)) {
+			throw new IllegalArgumentException("spacing must be positive"); //$NON-NLS-1$
+		}
+		final double right = left + spacing * (target.getWidth() - 1);
+		final double bottom = top + spacing * (target.getHeight() - 1);
+		final double far = Math.max(Math.hypot(left, top), Math.max(Math.hypot(right, top), Math.max(Math.hypot(left, bottom), Math.hypot(right, bottom))));
+		final double near = Math.hypot(Math.max(0, Math.max(left, -right)), Math.max(0, Math.max(top, -bottom)));
+		prepare((int) row(far), near > 0 ? (int) Math.ceil(row(near)) + 1 : rows);
+		mandelbrot.invoke(new Rows(left, top, spacing, Colorizer.palette(max, offset, colors), PixelWriter.create(target), target.getWidth(), 0, target.getHeight()));
+		return target;
+	}
+
+	/**
+	 * Returns the real offset of a sample to the center.
+	 * @param row the row of the sample
+	 * @param column the column of the sample
+	 * @return the real offset of the sample
+	 */
+	double real(final int row, final int column) {
+		return radius(row) * cos[column];
+	}
+
+	/**
+	 * Returns the imaginary offset of a sample to the center.
+	 * @param row the row of the sample
+	 * @param column the column of the sample
+	 * @return the imaginary offset of the sample
+	 */
+	double imaginary(final int row, final int column) {
+		return radius(row) * sin[column];
+	}
+
+	/**
+	 * Returns the distance between neighbouring samples of a row.
+	 * @param row the row
+	 * @return the distance between neighbouring samples
+	 */
+	double spacing(final int row) {
+		return radius(row) * step;
+	}
+
+	/**
+	 * Returns the orbit of the center, which is computed on first use.
+	 * @return the orbit of the center
+	 */
+	ReferenceOrbit orbit() {
+		if (orbit == null) {
+			orbit = new ReferenceOrbit(center.getReal(), center.getImaginary(), max, context());
+		}
+		return orbit;
+	}
+
+	/**
+	 * Returns the precision of reference orbits for the innermost row.
+	 * @return the precision of reference orbits
+	 */
+	MathContext context() {
+		return ReferenceOrbit.precision(spacing(rows - 1));
+	}
+
+	private double radius(final int row) {
+		return outer * Math.exp(-row * step);
+	}
+
+	private double row(final double radius) {
+		return Math.max(0, Math.min(rows - 1, (logOuter - Math.log(radius)) / step));
+	}
+
+	/**
+	 * Makes sure the segments covering the given rows are computed
+	 * and drops all other segments. The row following the last one needed
+	 * is computed as well, as a point on the last row is interpolated with it.
+	 * @param from the first row needed
+	 * @param to the last row needed (exclusive)
+	 */
+	private void prepare(final int from, final int to) {
+		final int first = from / SEGMENT_ROWS;
+		final int last = (Math.min(to + 1, rows) - 1) / SEGMENT_ROWS;
+		for (int i = 0; i < segments.length; i++) {
+			if (i < first || i > last) {
+				segments[i] = null;
+			} else if (segments[i] == null) {
+				final int start = i * SEGMENT_ROWS;
+				final int end = Math.min(rows, start + SEGMENT_ROWS);
+				final int[] counts = new int[(end - start) * angles];
+				mandelbrot.computeRows(this, start, end, counts, statistics);
+				segments[i] = counts;
+			}
+		}
+	}
+
+	private int count(final int row, final int column) {
+		return segments[row / SEGMENT_ROWS][(row % SEGMENT_ROWS) * angles + column];
+	}
+
+	/**
+	 * Remaps a range of target rows.
+	 */
+	private class Rows extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private static final int ROWS = 16;
+
+		private final double left;
+		private final double top;
+		private final double spacing;
+		private final int[] palette;
+		private final PixelWriter writer;
+		private final int width;
+		private final int from;
+		private final int to;
+
+		protected Rows(final double left, final double top, final double spacing, final int[] palette, final PixelWriter writer, final int width, final int from, final int to) {
+			this.left = left;
+			this.top = top;
+			this.spacing = spacing;
+			this.palette = palette;
+			this.writer = writer;
+			this.width = width;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > ROWS) {
+				final int middle = (from + to) / 2;
+				invokeAll(
+					new Rows(left, top, spacing, palette, writer, width, from, middle),
+					new Rows(left, top, spacing, palette, writer, width, middle, to)
+				);
+			} else {
+				final int[] rgbs = new int[width];
+				for (int y = from; y < to; y++) {
+					final double im = top + y * spacing;
+					for (int x = 0; x < width; x++) {
+						final double re = left + x * spacing;
+						final double v = row(Math.sqrt(re * re + im * im));
+						double u = Math.atan2(im, re) / step;
+						if (u < 0) {
+							u += angles;
+						}
+						final int j0 = Math.min((int) u, angles - 1);
+						final int j1 = j0 + 1 == angles ? 0 : j0 + 1;
+						final int i0 = Math.min((int) v, rows - 2);
+						rgbs[x] = Resampler.blend(
+							palette[count(i0, j0)],
+							palette[count(i0, j1)],
+							palette[count(i0 + 1, j0)],
+							palette[count(i0 + 1, j1)],
+							u - j0,
+							v - i0
+						);
+					}
+					writer.write(0, y, width, rgbs);
+				}
+			}
+		}
+
+	}
+
+}
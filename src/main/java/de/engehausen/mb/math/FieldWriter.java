@@ -0,0 +1,89 @@
+package de.engehausen.mb.math;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Writes rows of a field of iteration counts into an image, using a palette
+ * indexed by iteration count. If the field has fractions, the escaped pixels
+ * are colored by their normalized iteration counts through a {@link SmoothPalette}
+ * instead. Larger row ranges are split in halves.
+ */
+class FieldWriter extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int ROWS = 16;
+
+	private final PixelWriter writer;
+	private final int[] field;
+	private final float[] fractions;
+	private final int width;
+	private final int[] palette;
+	private final SmoothPalette smooth;
+	private final int top;
+	private final int bottom;
+
+	/**
+	 * Creates the writer task.
+	 * @param writer the writer for the image
+	 * @param field the iteration counts, row by row
+	 * @param width the width of the image
+	 * @param palette the colors, indexed by iteration count
+	 * @param top the first row
+	 * @param bottom the last row (exclusive)
+	 */
+	FieldWriter(final PixelWriter writer, final int[] field, final int width, final int[] palette, final int top, final int bottom) {
+		this(writer, field, null, width, palette, null, top, bottom);
+	}
+
+	/**
+	 * Creates the writer task for smooth coloring.
+	 * @param writer the writer for the image
+	 * @param field the iteration counts, row by row
+	 * @param fractions the fractional parts of the normalized iteration counts, row by row
+	 * @param width the width of the image
+	 * @param palette the colors, indexed by iteration count, for the points which did not escape
+	 * @param smooth the colors of the normalized iteration counts
+	 * @param top the first row
+	 * @param bottom the last row (exclusive)
+	 */
+	FieldWriter(final PixelWriter writer, final int[] field, final float[] fractions, final int width, final int[] palette, final SmoothPalette smooth, final int top, final int bottom) {
+		this.writer = writer;
+		this.field = field;
+		this.fractions = fractions;
+		this.width = width;
+		this.palette = palette;
+		this.smooth = smooth;
+		this.top = top;
+		this.bottom = bottom;
+	}
+
+	@Override
+	protected void compute() {
+		if (bottom - top > ROWS) {
+			final int middle = (top + bottom) / 2;
+			invokeAll(
+				new FieldWriter(writer, field, fractions, width, palette, smooth, top, middle),
+				new FieldWriter(writer, field, fractions, width, palette, smooth, middle, bottom)
+			);
+		} else {
+			final int[] rgbs = new int[width];
+			final int max = palette.length - 2;
+			for (int py = top; py < bottom; py++) {
+				final int row = py * width;
+				if (smooth != null) {
+					for (int px = 0; px < width; px++) {
+						final int count = field[row + px];
+						rgbs[px] = count > max ? palette[count] : smooth.get(count + fractions[row + px]);
+					}
+				} else {
+					for (int px = 0; px < width; px++) {
+						rgbs[px] = palette[field[row + px]];
+					}
+				}
+				writer.write(0, py, width, rgbs);
+			}
+		}
+	}
+
+}
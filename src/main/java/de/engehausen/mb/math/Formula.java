@@ -0,0 +1,171 @@
+package de.engehausen.mb.math;
+
+import java.util.Arrays;
+
+/**
+ * The iteration rendered by {@link MandelbrotSet}. The formula is chosen once
+ * per image; tiles hand it whole rows of pixels and the other parts of the
+ * renderer hand it batches of points, so each formula runs its own loop and
+ * the JIT compiler can inline the iteration of a single point into it.
+ * Implementations should therefore be final classes implementing the batch methods
+ * with their own loops.
+ * <p>Only the Mandelbrot set z² + c is rendered with double-double precision
+ * and perturbation and skips its main cardioid and period-2 bulb; other formulas
+ * are always iterated with {@code double} precision, so zooms into them end
+ * where {@code double} does.</p>
+ */
+public abstract class Formula {
+
+	/** the Mandelbrot set z² + c */
+	public static final Formula MANDELBROT = new MandelbrotFormula();
+
+	private static final String SEPARATOR = ":"; //$NON-NLS-1$
+
+	/**
+	 * Creates the formula.
+	 */
+	protected Formula() {
+	}
+
+	/**
+	 * Returns the Multibrot set z<sup>d</sup> + c.
+	 * @param degree the exponent d, at least two
+	 * @return the Multibrot formula
+	 */
+	public static Formula multibrot(final int degree) {
+		return new MultibrotFormula(degree);
+	}
+
+	/**
+	 * Returns the Burning Ship fractal (|Re z| + i|Im z|)² + c.
+	 * @return the Burning Ship formula
+	 */
+	public static Formula burningShip() {
+		return new BurningShipFormula();
+	}
+
+	/**
+	 * Returns the Julia set of z² + c for a fixed c, iterated from z = pixel.
+	 * @param real the real component of c
+	 * @param imaginary the imaginary component of c
+	 * @return the Julia formula
+	 */
+	public static Formula julia(final double real, final double imaginary) {
+		return new JuliaFormula(real, imaginary);
+	}
+
+	/**
+	 * Parses a formula as given by {@link #toString()}: the id followed by
+	 * the parameters, separated by colons, for example {@code multibrot:3}
+	 * or {@code julia:-0.8:0.156}.
+	 * @param text the text to parse
+	 * @return the formula
+	 */
+	public static Formula valueOf(final String text) {
+		final String[] parts = text.trim().split(SEPARATOR);
+		try {
+			if (parts.length == 1 && MandelbrotFormula.ID.equals(parts[0])) {
+				return MANDELBROT;
+			} else if (parts.length == 1 && BurningShipFormula.ID.equals(parts[0])) {
+				return burningShip();
+			} else if (parts.length == 2 && MultibrotFormula.ID.equals(parts[0])) {
+				return multibrot(Integer.parseInt(parts[1]));
+			} else if (parts.length == 3 && JuliaFormula.ID.equals(parts[0])) {
+				return julia(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("invalid formula: " + text, e); //$NON-NLS-1$
+		}
+		throw new IllegalArgumentException("invalid formula: " + text); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the id of the formula.
+	 * @return the id of the formula.
+	 */
+	public abstract String getId();
+
+	/**
+	 * Returns the parameters of the formula.
+	 * @return the parameters, empty if the formula has none
+	 */
+	public abstract double[] getParameters();
+
+	/**
+	 * Returns whether the image of the formula is symmetric to the real axis,
+	 * so images crossing the axis can be mirrored.
+	 * @return {@code true} if the image is symmetric to the real axis
+	 */
+	public abstract boolean isConjugateSymmetric();
+
+	/**
+	 * Iterates a single point.
+	 * @param real the real component of the point
+	 * @param imaginary the imaginary component of the point
+	 * @param max the maximum number of iterations
+	 * @param epsilon the tolerance for detecting a cycle, zero disables the detection
+	 * @return the iteration count, {@code max + 1} if the point did not escape
+	 */
+	public abstract int iterate(double real, double imaginary, int max, double epsilon);
+
+	/**
+	 * Iterates the points of a row whose count is not known yet.
+	 * @param real the real components of the columns
+	 * @param from the first column
+	 * @param to the last column (exclusive)
+	 * @param imaginary the imaginary component of the row
+	 * @param max the maximum number of iterations
+	 * @param epsilon the tolerance for detecting a cycle, zero disables the detection
+	 * @param counts the counts of the columns, column {@code from} at index zero;
+	 * negative counts are replaced by the count of their point, others are kept
+	 */
+	public abstract void iterate(double[] real, int from, int to, double imaginary, int max, double epsilon, int[] counts);
+
+	/**
+	 * Iterates scattered points, for example the border of a rectangle or
+	 * a few samples of a tile.
+	 * @param real the real components of the points
+	 * @param imaginary the imaginary components of the points
+	 * @param count the number of points
+	 * @param max the maximum number of iterations
+	 * @param epsilon the tolerance for detecting a cycle, zero disables the detection
+	 * @param counts receives the counts of the points
+	 */
+	public abstract void iterate(double[] real, double[] imaginary, int count, int max, double epsilon, int[] counts);
+
+	/**
+	 * Returns the id followed by the parameters, which can be parsed
+	 * with {@link #valueOf(String)}.
+	 * @return the id and parameters of the formula
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(getId());
+		for (final double parameter : getParameters()) {
+			builder.append(SEPARATOR).append(parameter);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Formulas are equal if they have the same id and parameters.
+	 * @param other the object to compare with
+	 * @return {@code true} if the other object is the same formula
+	 */
+	@Override
+	public boolean equals(final Object other) {
+		return other instanceof Formula
+			&& getId().equals(((Formula) other).getId())
+			&& Arrays.equals(getParameters(), ((Formula) other).getParameters());
+	}
+
+	/**
+	 * Returns a hash code consistent with {@link #equals(Object)}.
+	 * @return the hash code
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * getId().hashCode() + Arrays.hashCode(getParameters());
+	}
+
+}
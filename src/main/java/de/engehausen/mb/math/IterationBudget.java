@@ -0,0 +1,282 @@
+package de.engehausen.mb.math;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decides the maximum number of iterations of an image. The colors are indexed
+ * by the iteration count modulo their number (see {@link Colorizer}), so the
+ * budget does not depend on the palette: a deep zoom can iterate far more often
+ * than there are colors. The budget is either
+ * <ul>
+ * <li>the number of colors, which was the only choice before and is the default,</li>
+ * <li>fixed,</li>
+ * <li>scaled with the zoom depth, growing linearly with {@code -log(scale)}, or</li>
+ * <li>tuned automatically from the escape-time histogram of a low-resolution
+ * pre-pass, which takes the smallest budget resolving nearly all escaping
+ * points of the pre-pass.</li>
+ * </ul>
+ */
+public abstract class IterationBudget {
+
+	/** scale of the initial view, the scaled budget starts growing below it */
+	public static final double INITIAL_SCALE = 2d;
+	/** default budget at the initial scale */
+	public static final int DEFAULT_BASE = 256;
+	/** default growth of the budget per decade of zoom */
+	public static final int DEFAULT_PER_DECADE = 128;
+	/** default lower bound of the automatic budget */
+	public static final int DEFAULT_MIN = 64;
+	/** default upper bound of the automatic budget, which is also the budget of the pre-pass */
+	public static final int DEFAULT_LIMIT = 1 << 16;
+
+	// the pre-pass has a pixel for every DIVISOR x DIVISOR pixels of the image
+	private static final int DIVISOR = 8;
+	// minimum edge length of the pre-pass
+	private static final int MIN_SIZE = 16;
+	// share of the escaping pre-pass samples which must escape within the budget
+	private static final double COVERAGE = 0.995;
+	// number of images whose automatic budget is remembered
+	private static final int CACHE_SIZE = 32;
+
+	private static final IterationBudget PALETTE = new IterationBudget() {
+		@Override
+		int getMax(final MandelbrotSet set, final PreciseNumber topLeft, final double scale, final int width, final int height, final int colors) {
+			return colors;
+		}
+		@Override
+		public String toString() {
+			return "palette"; //$NON-NLS-1$
+		}
+	};
+
+	IterationBudget() {
+	}
+
+	/**
+	 * Returns the budget which iterates as often as there are colors.
+	 * @return the budget of the number of colors
+	 */
+	public static IterationBudget palette() {
+		return PALETTE;
+	}
+
+	/**
+	 * Returns a fixed budget.
+	 * @param max the maximum number of iterations, must be positive
+	 * @return the fixed budget
+	 */
+	public static IterationBudget fixed(final int max) {
+		if (max < 1) {
+			throw new IllegalArgumentException("max must be positive"); //$NON-NLS-1$
+		}
+		return new IterationBudget() {
+			@Override
+			int getMax(final MandelbrotSet set, final PreciseNumber topLeft, final double scale, final int width, final int height, final int colors) {
+				return max;
+			}
+			@Override
+			public String toString() {
+				return Integer.toString(max);
+			}
+		};
+	}
+
+	/**
+	 * Returns a budget growing with the zoom depth. At the initial scale
+	 * and above it is the base; every decade of zoom adds the given number
+	 * of iterations.
+	 * @param base the budget at the initial scale, must be positive
+	 * @param perDecade the growth per decade of zoom, must not be negative
+	 * @return the scaled budget
+	 */
+	public static IterationBudget scaled(final int base, final int perDecade) {
+		if (base < 1 || perDecade < 0) {
+			throw new IllegalArgumentException("invalid base or growth"); //$NON-NLS-1$
+		}
+		return new IterationBudget() {
+			@Override
+			int getMax(final MandelbrotSet set, final PreciseNumber topLeft, final double scale, final int width, final int height, final int colors) {
+				final double decades = Math.max(0, Math.log10(INITIAL_SCALE / scale));
+				return (int) Math.min(Integer.MAX_VALUE - 2, base + Math.round(perDecade * decades));
+			}
+			@Override
+			public String toString() {
+				return "scaled:" + base + ':' + perDecade; //$NON-NLS-1$
+			}
+		};
+	}
+
+	/**
+	 * Returns a budget tuned from a pre-pass of the image at an eighth of its
+	 * resolution, iterated with the upper bound as budget. The budget is the
+	 * smallest number of iterations within which 99.5% of the escaping samples
+	 * of the pre-pass escape, but at least the lower bound. The pre-pass costs
+	 * about the upper bound times the number of interior samples which are not
+	 * detected as interior by the cycle detection, so the upper bound should
+	 * not be chosen too generously. The budgets of the most recent images are
+	 * remembered, so asking again for the same image, for example when a
+	 * preview is colored again, does not repeat the pre-pass.
+	 * @param min the lower bound, must be positive
+	 * @param limit the upper bound, must not be less than the lower bound
+	 * @return the automatic budget
+	 */
+	public static IterationBudget auto(final int min, final int limit) {
+		if (min < 1 || limit < min) {
+			throw new IllegalArgumentException("invalid bounds"); //$NON-NLS-1$
+		}
+		return new IterationBudget() {
+			private final Map<Image, Integer> cache = new LinkedHashMap<Image, Integer>(CACHE_SIZE, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<Image, Integer> eldest) {
+					return size() > CACHE_SIZE;
+				}
+			};
+			@Override
+			int getMax(final MandelbrotSet set, final PreciseNumber topLeft, final double scale, final int width, final int height, final int colors) {
+				final Image image = new Image(set, topLeft, scale, width, height);
+				synchronized (cache) {
+					final Integer known = cache.get(image);
+					if (known != null) {
+						return known.intValue();
+					}
+				}
+				final int[] counts = set.computeField(
+					topLeft,
+					scale,
+					Math.max(MIN_SIZE, width / DIVISOR),
+					Math.max(MIN_SIZE, height / DIVISOR),
+					limit,
+					RenderMode.BRUTE_FORCE
+				).getCounts();
+				final int result = tune(counts, min, limit);
+				synchronized (cache) {
+					cache.put(image, Integer.valueOf(result));
+				}
+				return result;
+			}
+			@Override
+			public String toString() {
+				return "auto:" + min + ':' + limit; //$NON-NLS-1$
+			}
+		};
+	}
+
+	/**
+	 * Parses a budget as given by {@link #toString()}: {@code palette}, a number for
+	 * a fixed budget, {@code scaled[:base:perDecade]} or {@code auto[:min:limit]}.
+	 * @param text the text to parse
+	 * @return the budget
+	 */
+	public static IterationBudget valueOf(final String text) {
+		final String[] parts = text.trim().split(":"); //$NON-NLS-1$
+		try {
+			if (parts.length == 1) {
+				if ("palette".equals(parts[0])) { //$NON-NLS-1$
+					return palette();
+				} else if ("scaled".equals(parts[0])) { //$NON-NLS-1$
+					return scaled(DEFAULT_BASE, DEFAULT_PER_DECADE);
+				} else if ("auto".equals(parts[0])) { //$NON-NLS-1$
+					return auto(DEFAULT_MIN, DEFAULT_LIMIT);
+				}
+				return fixed(Integer.parseInt(parts[0]));
+			} else if (parts.length == 3) {
+				final int first = Integer.parseInt(parts[1]);
+				final int second = Integer.parseInt(parts[2]);
+				if ("scaled".equals(parts[0])) { //$NON-NLS-1$
+					return scaled(first, second);
+				} else if ("auto".equals(parts[0])) { //$NON-NLS-1$
+					return auto(first, second);
+				}
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("invalid budget: " + text, e); //$NON-NLS-1$
+		}
+		throw new IllegalArgumentException("invalid budget: " + text); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the maximum number of iterations for the given image.
+	 * @param set the Mandelbrot set rendering the image
+	 * @param topLeft the top left corner of the image
+	 * @param scale the scale of the image
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param colors the number of colors
+	 * @return the maximum number of iterations, positive
+	 */
+	abstract int getMax(MandelbrotSet set, PreciseNumber topLeft, double scale, int width, int height, int colors);
+
+	/**
+	 * Returns the smallest budget within which the required share of the
+	 * escaping counts escapes.
+	 * @param counts the counts of the pre-pass, {@code limit + 1} for points not escaping
+	 * @param min the lower bound
+	 * @param limit the upper bound, which was the budget of the pre-pass
+	 * @return the budget
+	 */
+	static int tune(final int[] counts, final int min, final int limit) {
+		final int[] escaped = new int[counts.length];
+		int size = 0;
+		for (final int count : counts) {
+			if (count <= limit) {
+				escaped[size++] = count;
+			}
+		}
+		if (size == 0) {
+			return min;
+		}
+		Arrays.sort(escaped, 0, size);
+		return Math.max(min, escaped[(int) Math.ceil(COVERAGE * size) - 1]);
+	}
+
+	/**
+	 * The area and size of an image and the set rendering it, which
+	 * identify the pre-pass of an automatic budget.
+	 */
+	private static final class Image {
+
+		private final MandelbrotSet set;
+		private final Formula formula;
+		private final BigDecimal real;
+		private final BigDecimal imaginary;
+		private final double scale;
+		private final int width;
+		private final int height;
+
+		protected Image(final MandelbrotSet set, final PreciseNumber topLeft, final double scale, final int width, final int height) {
+			this.set = set;
+			this.formula = set.getFormula();
+			this.real = topLeft.getReal();
+			this.imaginary = topLeft.getImaginary();
+			this.scale = scale;
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		public boolean equals(final Object other) {
+			if (!(other instanceof Image)) {
+				return false;
+			}
+			final Image image = (Image) other;
+			return set == image.set
+				&& formula.equals(image.formula)
+				&& real.equals(image.real)
+				&& imaginary.equals(image.imaginary)
+				&& Double.compare(scale, image.scale) == 0
+				&& width == image.width
+				&& height == image.height;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((real.hashCode() * 31 + imaginary.hashCode()) * 31 + Double.hashCode(scale)) * 31 + width * 17 + height;
+		}
+
+	}
+
+}
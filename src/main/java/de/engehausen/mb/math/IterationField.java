@@ -0,0 +1,121 @@
+package de.engehausen.mb.math;
+
+/**
+ * The iteration counts of an image, without colors. A field can be
+ * colored any number of times with different colors and color offsets
+ * using the {@link Colorizer}, which is much cheaper than rendering again.
+ * A field computed for smooth coloring also holds the fractional parts
+ * of the normalized iteration counts.
+ */
+public class IterationField {
+
+	private final int width;
+	private final int height;
+	private final int max;
+	private final int[] counts;
+	private final float[] fractions;
+	private final PreciseNumber topLeft;
+	private final double spacing;
+	private final RenderStatistics statistics;
+
+	/**
+	 * Creates the field.
+	 * @param width the width of the field
+	 * @param height the height of the field
+	 * @param max the maximum number of iterations
+	 * @param counts the iteration counts, row by row
+	 * @param fractions the fractional parts of the normalized iteration counts, row by row; {@code null} if not computed
+	 * @param topLeft the point of the top left pixel
+	 * @param spacing the distance between neighbouring pixels
+	 * @param statistics the statistics of computing the field
+	 */
+	IterationField(final int width, final int height, final int max, final int[] counts, final float[] fractions, final PreciseNumber topLeft, final double spacing, final RenderStatistics statistics) {
+		this.width = width;
+		this.height = height;
+		this.max = max;
+		this.counts = counts;
+		this.fractions = fractions;
+		this.topLeft = topLeft;
+		this.spacing = spacing;
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Returns the width of the field.
+	 * @return the width of the field.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the field.
+	 * @return the height of the field.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the maximum number of iterations the field was computed with.
+	 * @return the maximum number of iterations.
+	 */
+	public int getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the iteration count of the given pixel, {@code max + 1} if the point did not escape.
+	 * @param x the pixel column
+	 * @param y the pixel row
+	 * @return the iteration count of the pixel
+	 */
+	public int getCount(final int x, final int y) {
+		return counts[y * width + x];
+	}
+
+	/**
+	 * Returns the iteration counts row by row. The array is not copied
+	 * and must not be modified.
+	 * @return the iteration counts row by row.
+	 */
+	public int[] getCounts() {
+		return counts;
+	}
+
+	/**
+	 * Returns the fractional parts of the normalized iteration counts row by row,
+	 * which added to the counts give the normalized counts. The array is not copied
+	 * and must not be modified.
+	 * @return the fractional parts of the counts row by row, {@code null} if the field
+	 * was computed without them.
+	 */
+	public float[] getFractions() {
+		return fractions;
+	}
+
+	/**
+	 * Returns the point of the top left pixel.
+	 * @return the point of the top left pixel.
+	 */
+	public PreciseNumber getTopLeft() {
+		return topLeft;
+	}
+
+	/**
+	 * Returns the distance between neighbouring pixels on the complex plane.
+	 * @return the pixel spacing.
+	 */
+	public double getSpacing() {
+		return spacing;
+	}
+
+	/**
+	 * Returns the statistics of computing the field.
+	 * @return the statistics of computing the field.
+	 */
+	public RenderStatistics getStatistics() {
+		return statistics;
+	}
+
+}
@@ -0,0 +1,102 @@
+package de.engehausen.mb.math;
+
+/**
+ * The Julia set of z² + c for a fixed c: each pixel is the starting point
+ * z of the iteration. The escape radius is two or the magnitude of c,
+ * whichever is larger.
+ */
+final class JuliaFormula extends Formula {
+
+	/** id of the formula */
+	static final String ID = "julia"; //$NON-NLS-1$
+
+	private final double cr;
+	private final double ci;
+	private final double radius2;
+
+	/**
+	 * Creates the formula.
+	 * @param cr the real component of c
+	 * @param ci the imaginary component of c
+	 */
+	JuliaFormula(final double cr, final double ci) {
+		if (Double.isNaN(cr) || Double.isNaN(ci) || Double.isInfinite(cr) || Double.isInfinite(ci)) {
+			throw new IllegalArgumentException("c must be finite"); //$NON-NLS-1$
+		}
+		this.cr = cr;
+		this.ci = ci;
+		radius2 = Math.max(4, cr * cr + ci * ci);
+	}
+
+	@Override
+	public String getId() {
+		return ID;
+	}
+
+	@Override
+	public double[] getParameters() {
+		return new double[] { cr, ci };
+	}
+
+	/**
+	 * Julia sets are point symmetric to the origin; they are also symmetric
+	 * to the real axis if c is real.
+	 * @return {@code true} if c is real
+	 */
+	@Override
+	public boolean isConjugateSymmetric() {
+		return ci == 0;
+	}
+
+	@Override
+	public int iterate(final double real, final double imaginary, final int max, final double epsilon) {
+		return iterate(real, imaginary, max, epsilon, cr, ci, radius2);
+	}
+
+	@Override
+	public void iterate(final double[] real, final int from, final int to, final double imaginary, final int max, final double epsilon, final int[] counts) {
+		for (int i = from; i < to; i++) {
+			if (counts[i - from] < 0) {
+				counts[i - from] = iterate(real[i], imaginary, max, epsilon, cr, ci, radius2);
+			}
+		}
+	}
+
+	@Override
+	public void iterate(final double[] real, final double[] imaginary, final int count, final int max, final double epsilon, final int[] counts) {
+		for (int i = 0; i < count; i++) {
+			counts[i] = iterate(real[i], imaginary[i], max, epsilon, cr, ci, radius2);
+		}
+	}
+
+	private static int iterate(final double zr, final double zi, final int max, final double epsilon, final double cr, final double ci, final double radius2) {
+		double x = zr;
+		double y = zi;
+		double x2 = x * x;
+		double y2 = y * y;
+		double savedX = x;
+		double savedY = y;
+		int check = EscapeTimeKernel.CYCLE_START;
+		int i = 0;
+		while (true) {
+			y = 2 * x * y + ci;
+			x = x2 - y2 + cr;
+			x2 = x * x;
+			y2 = y * y;
+			if (i++ >= max || !(x2 + y2 < radius2)) {
+				return i;
+			}
+			if (epsilon > 0) {
+				if (Math.abs(x - savedX) < epsilon && Math.abs(y - savedY) < epsilon) {
+					return max + 1;
+				}
+				if (i == check) {
+					savedX = x;
+					savedY = y;
+					check += check;
+				}
+			}
+		}
+	}
+
+}
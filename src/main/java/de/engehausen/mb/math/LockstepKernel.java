@@ -0,0 +1,117 @@
+package de.engehausen.mb.math;
+
+/**
+ * Iterates several points in lockstep, one point per lane, with the state of
+ * the lanes in separate arrays (structure of arrays). The step of all lanes is
+ * a loop without branches over these arrays, which the JIT compiler can turn
+ * into SIMD instructions; escapes and cycles are then checked lane by lane.
+ * A lane whose point is done takes the next point right away, so the lanes
+ * stay busy while the iteration counts of their points differ.
+ * <p>Every lane performs exactly the operations of
+ * {@link EscapeTimeKernel#iterate(double, double, int, double)} in the same
+ * order, so the iteration counts are identical. An instance is not thread-safe.</p>
+ */
+final class LockstepKernel {
+
+	/** number of points iterated in lockstep */
+	static final int LANES = 8;
+
+	private static final int CYCLE_START = 8;
+	private static final int IDLE = -1;
+
+	private final double[] cr = new double[LANES];
+	private final double[] ci = new double[LANES];
+	private final double[] x = new double[LANES];
+	private final double[] y = new double[LANES];
+	private final double[] x2 = new double[LANES];
+	private final double[] y2 = new double[LANES];
+	private final double[] savedX = new double[LANES];
+	private final double[] savedY = new double[LANES];
+	private final int[] iteration = new int[LANES];
+	private final int[] check = new int[LANES];
+	private final int[] point = new int[LANES];
+
+	/**
+	 * Iterates the given points.
+	 * @param real the real components of the points
+	 * @param imaginary the imaginary components of the points
+	 * @param count the number of points
+	 * @param max the maximum number of iterations
+	 * @param epsilon the tolerance for detecting a cycle, zero disables the detection
+	 * @param counts receives the iteration count of every point, {@code max + 1} if it did not escape
+	 */
+	void iterate(final double[] real, final double[] imaginary, final int count, final int max, final double epsilon, final int[] counts) {
+		int next = 0;
+		int active = 0;
+		for (int lane = 0; lane < LANES; lane++) {
+			if (next < count) {
+				load(lane, next++, real, imaginary);
+				active++;
+			} else {
+				unload(lane);
+			}
+		}
+		final boolean detectCycles = epsilon > 0;
+		while (active > 0) {
+			// the step of all lanes, including idle ones, so the loop has no branches
+			for (int lane = 0; lane < LANES; lane++) {
+				y[lane] = 2 * x[lane] * y[lane] + ci[lane];
+				x[lane] = x2[lane] - y2[lane] + cr[lane];
+				x2[lane] = x[lane] * x[lane];
+				y2[lane] = y[lane] * y[lane];
+			}
+			for (int lane = 0; lane < LANES; lane++) {
+				if (point[lane] == IDLE) {
+					continue;
+				}
+				final int i = ++iteration[lane];
+				final int result;
+				if (i > max || !(x2[lane] + y2[lane] < 4)) {
+					result = i;
+				} else if (detectCycles && Math.abs(x[lane] - savedX[lane]) < epsilon && Math.abs(y[lane] - savedY[lane]) < epsilon) {
+					result = max + 1;
+				} else {
+					if (detectCycles && i == check[lane]) {
+						savedX[lane] = x[lane];
+						savedY[lane] = y[lane];
+						check[lane] += check[lane];
+					}
+					continue;
+				}
+				counts[point[lane]] = result;
+				if (next < count) {
+					load(lane, next++, real, imaginary);
+				} else {
+					unload(lane);
+					active--;
+				}
+			}
+		}
+	}
+
+	private void load(final int lane, final int index, final double[] real, final double[] imaginary) {
+		point[lane] = index;
+		cr[lane] = real[index];
+		ci[lane] = imaginary[index];
+		reset(lane);
+	}
+
+	private void unload(final int lane) {
+		point[lane] = IDLE;
+		cr[lane] = 0;
+		ci[lane] = 0;
+		reset(lane);
+	}
+
+	private void reset(final int lane) {
+		x[lane] = 0;
+		y[lane] = 0;
+		x2[lane] = 0;
+		y2[lane] = 0;
+		savedX[lane] = 0;
+		savedY[lane] = 0;
+		iteration[lane] = 0;
+		check[lane] = CYCLE_START;
+	}
+
+}
@@ -0,0 +1,49 @@
+package de.engehausen.mb.math;
+
+/**
+ * The Mandelbrot set z² + c, iterated by the {@link EscapeTimeKernel}.
+ */
+final class MandelbrotFormula extends Formula {
+
+	/** id of the formula */
+	static final String ID = "mandelbrot"; //$NON-NLS-1$
+
+	private static final double[] NONE = new double[0];
+
+	@Override
+	public String getId() {
+		return ID;
+	}
+
+	@Override
+	public double[] getParameters() {
+		return NONE;
+	}
+
+	@Override
+	public boolean isConjugateSymmetric() {
+		return true;
+	}
+
+	@Override
+	public int iterate(final double real, final double imaginary, final int max, final double epsilon) {
+		return EscapeTimeKernel.iterate(real, imaginary, max, epsilon);
+	}
+
+	@Override
+	public void iterate(final double[] real, final int from, final int to, final double imaginary, final int max, final double epsilon, final int[] counts) {
+		for (int i = from; i < to; i++) {
+			if (counts[i - from] < 0) {
+				counts[i - from] = EscapeTimeKernel.iterate(real[i], imaginary, max, epsilon);
+			}
+		}
+	}
+
+	@Override
+	public void iterate(final double[] real, final double[] imaginary, final int count, final int max, final double epsilon, final int[] counts) {
+		for (int i = 0; i < count; i++) {
+			counts[i] = EscapeTimeKernel.iterate(real[i], imaginary[i], max, epsilon);
+		}
+	}
+
+}
@@ -1,14 +1,444 @@
 package de.engehausen.mb.math;
 
 import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import de.engehausen.mb.FrameData;
 
 /**
- * Mandelbrot set. This is the core of the tool
+ * Mandelbrot set. This is the core of the tool.
+ * Images are rendered in square tiles on a work-stealing
+ * {@link ForkJoinPool}, so all available cores take part.
+ * The arithmetic is chosen per image from the zoom depth, see {@link Precision}:
+ * plain {@code double}, double-double once the pixel spacing gets close to
+ * the precision of {@code double} and perturbation theory beyond that.
+ * Other formulas than z² + c can be rendered, see {@link Formula}.
  */
 public class MandelbrotSet {
 
+	/** default edge length of a tile in pixels */
+	public static final int DEFAULT_TILE_SIZE = 64;
+	/** default tolerance for the cycle detection, relative to the pixel spacing */
+	public static final double DEFAULT_CYCLE_TOLERANCE = 1e-3;
+	/** default largest difference of a color channel between neighbouring pixels which is not anti-aliased */
+	public static final int DEFAULT_SUPERSAMPLING_THRESHOLD = 32;
+
+	// samples per axis for estimating the cost of a frame
+	private static final int COST_SAMPLES = 16;
+	// largest distance in pixels of the real axis to a row or the middle between two rows,
+	// for the rows to be mirrored at the axis; this only absorbs the rounding errors of
+	// the coordinates, rows are never mirrored to a position they do not have
+	private static final double AXIS_TOLERANCE = 1e-9;
+
+	private final ForkJoinPool pool;
+	private final int tileSize;
+	private final PerturbationEngine perturbation;
+	private volatile RenderStatistics statistics = new RenderStatistics();
+	private volatile double cycleTolerance = DEFAULT_CYCLE_TOLERANCE;
+	private volatile RenderMode renderMode = RenderMode.BRUTE_FORCE;
+	private volatile boolean costScheduling = true;
+	private volatile boolean lockstep;
+	private volatile boolean singlePrecision;
+	private volatile boolean symmetry = true;
+	private volatile boolean verifySinglePrecision;
+	private volatile IterationBudget iterationBudget = IterationBudget.palette();
+	private volatile Formula formula = Formula.MANDELBROT;
+	private volatile int supersampling = 1;
+	private volatile boolean smoothColoring;
+	private volatile int supersamplingThreshold = DEFAULT_SUPERSAMPLING_THRESHOLD;
+
+	/**
+	 * Creates the Mandelbrot set renderer. The pool size defaults to the number
+	 * of available processors and can be overridden with the system property
+	 * {@code mb.threads}; the tile size can be set with {@code mb.tileSize},
+	 * the render mode with {@code mb.renderMode}, the iteration budget with
+	 * {@code mb.iterations} (see {@link IterationBudget#valueOf(String)}) and the
+	 * scheduling of tiles by predicted cost can be switched off with
+	 * {@code mb.costScheduling=false}; {@code mb.lockstep=true} iterates
+	 * several pixels in lockstep, {@code mb.singlePrecision=true} allows
+	 * {@link Precision#FLOAT} and {@code mb.verifySinglePrecision=true}
+	 * checks it against {@code double} precision. Mirroring images at the real
+	 * axis can be switched off with {@code mb.symmetry=false} and the formula
+	 * is set with {@code mb.formula} (see {@link Formula#valueOf(String)}).
+	 * Edges are anti-aliased with {@code mb.supersampling} samples per axis
+	 * and {@code mb.supersamplingThreshold}, see {@link #setSupersampling(int)};
+	 * {@code mb.smoothColoring=true} switches to smooth coloring.
+	 */
+	public MandelbrotSet() {
+		this(
+			Integer.getInteger("mb.threads", Runtime.getRuntime().availableProcessors()).intValue(), //$NON-NLS-1$
+			Integer.getInteger("mb.tileSize", DEFAULT_TILE_SIZE).intValue() //$NON-NLS-1$
+		);
+		setRenderMode(RenderMode.valueOf(System.getProperty("mb.renderMode", RenderMode.BRUTE_FORCE.name()))); //$NON-NLS-1$
+		setCostScheduling(Boolean.parseBoolean(System.getProperty("mb.costScheduling", Boolean.TRUE.toString()))); //$NON-NLS-1$
+		setIterationBudget(IterationBudget.valueOf(System.getProperty("mb.iterations", IterationBudget.palette().toString()))); //$NON-NLS-1$
+		setLockstep(Boolean.getBoolean("mb.lockstep")); //$NON-NLS-1$
+		setSinglePrecision(Boolean.getBoolean("mb.singlePrecision")); //$NON-NLS-1$
+		setVerifySinglePrecision(Boolean.getBoolean("mb.verifySinglePrecision")); //$NON-NLS-1$
+		setSymmetry(Boolean.parseBoolean(System.getProperty("mb.symmetry", Boolean.TRUE.toString()))); //$NON-NLS-1$
+		setFormula(Formula.valueOf(System.getProperty("mb.formula", Formula.MANDELBROT.toString()))); //$NON-NLS-1$
+		setSupersampling(Integer.getInteger("mb.supersampling", 1).intValue()); //$NON-NLS-1$
+		setSupersamplingThreshold(Integer.getInteger("mb.supersamplingThreshold", DEFAULT_SUPERSAMPLING_THRESHOLD).intValue()); //$NON-NLS-1$
+		setSmoothColoring(Boolean.getBoolean("mb.smoothColoring")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Creates the Mandelbrot set renderer.
+	 * @param parallelism the number of threads used for rendering, must be positive
+	 * @param tileSize the edge length of a tile in pixels, must be positive
+	 */
+	public MandelbrotSet(final int parallelism, final int tileSize) {
+		if (parallelism < 1 || tileSize < 1) {
+			throw new IllegalArgumentException("parallelism and tile size must be positive"); //$NON-NLS-1$
+		}
+		this.pool = new ForkJoinPool(parallelism);
+		this.tileSize = tileSize;
+		this.perturbation = new PerturbationEngine(pool, tileSize);
+	}
+
+	/**
+	 * Returns the number of threads used for rendering.
+	 * @return the number of threads used for rendering.
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Returns the edge length of a tile in pixels.
+	 * @return the edge length of a tile in pixels.
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Returns the tolerance for detecting orbit cycles, relative to the pixel spacing.
+	 * @return the tolerance for detecting orbit cycles.
+	 */
+	public double getCycleTolerance() {
+		return cycleTolerance;
+	}
+
+	/**
+	 * Sets the tolerance for detecting orbit cycles, relative to the pixel spacing.
+	 * Orbits repeating within this tolerance are considered inside the set, which
+	 * stops the iteration early. Zero disables the cycle detection.
+	 * @param tolerance the tolerance, must not be negative
+	 */
+	public void setCycleTolerance(final double tolerance) {
+		if (tolerance < 0) {
+			throw new IllegalArgumentException("tolerance must not be negative"); //$NON-NLS-1$
+		}
+		cycleTolerance = tolerance;
+	}
+
+	/**
+	 * Returns the render mode used if none is given explicitly.
+	 * @return the default render mode.
+	 */
+	public RenderMode getRenderMode() {
+		return renderMode;
+	}
+
+	/**
+	 * Sets the render mode used if none is given explicitly.
+	 * @param mode the default render mode, must not be {@code null}
+	 */
+	public void setRenderMode(final RenderMode mode) {
+		if (mode == null) {
+			throw new IllegalArgumentException("mode must not be null"); //$NON-NLS-1$
+		}
+		renderMode = mode;
+	}
+
+	/**
+	 * Returns whether the tiles of {@link RenderMode#BRUTE_FORCE} renders are
+	 * scheduled by predicted cost.
+	 * @return {@code true} if the most expensive tiles are rendered first.
+	 */
+	public boolean isCostScheduling() {
+		return costScheduling;
+	}
+
+	/**
+	 * Sets whether the tiles of {@link RenderMode#BRUTE_FORCE} renders are
+	 * scheduled by predicted cost. If so, the cost of every tile is predicted
+	 * from a few sample pixels and the most expensive tiles are rendered first,
+	 * otherwise the image is split in halves recursively.
+	 * @param enabled {@code true} to render the most expensive tiles first
+	 */
+	public void setCostScheduling(final boolean enabled) {
+		costScheduling = enabled;
+	}
+
+	/**
+	 * Returns whether pixels in {@code double} precision are iterated in lockstep.
+	 * @return {@code true} if pixels are iterated in lockstep.
+	 */
+	public boolean isLockstep() {
+		return lockstep;
+	}
+
+	/**
+	 * Sets whether the pixels of a tile in {@code double} precision are iterated
+	 * in lockstep, several at a time, in a loop the JIT compiler can vectorize.
+	 * The iteration counts are identical to iterating pixel by pixel; whether
+	 * it is faster depends on the processor and the JVM.
+	 * @param enabled {@code true} to iterate pixels in lockstep
+	 */
+	public void setLockstep(final boolean enabled) {
+		lockstep = enabled;
+	}
+
+	/**
+	 * Returns whether shallow images may be rendered in {@link Precision#FLOAT}.
+	 * @return {@code true} if single precision may be used.
+	 */
+	public boolean isSinglePrecision() {
+		return singlePrecision;
+	}
+
+	/**
+	 * Sets whether shallow images may be rendered in {@link Precision#FLOAT}, which
+	 * is selected automatically while the pixel spacing is well above the precision
+	 * of {@code float}. A small share of the pixels along the boundary of the set
+	 * gets a different iteration count than in {@code double} precision, see
+	 * {@link #setVerifySinglePrecision(boolean)}.
+	 * @param enabled {@code true} to allow single precision
+	 */
+	public void setSinglePrecision(final boolean enabled) {
+		singlePrecision = enabled;
+	}
+
+	/**
+	 * Returns whether pixels rendered in {@link Precision#FLOAT} are verified.
+	 * @return {@code true} if pixels in single precision are verified.
+	 */
+	public boolean isVerifySinglePrecision() {
+		return verifySinglePrecision;
+	}
+
+	/**
+	 * Sets whether every pixel rendered in {@link Precision#FLOAT} is iterated
+	 * a second time in {@code double} precision. The image keeps the counts of
+	 * single precision, the statistics report how many pixels differ
+	 * (see {@link RenderStatistics#getMismatchedPixels()}).
+	 * @param enabled {@code true} to verify pixels in single precision
+	 */
+	public void setVerifySinglePrecision(final boolean enabled) {
+		verifySinglePrecision = enabled;
+	}
+
+	/**
+	 * Returns whether images crossing the real axis are mirrored at it.
+	 * @return {@code true} if images are mirrored at the real axis.
+	 */
+	public boolean isSymmetry() {
+		return symmetry;
+	}
+
+	/**
+	 * Sets whether images crossing the real axis are mirrored at it. The set is
+	 * symmetric to the real axis, so if the axis runs along a row of pixels or
+	 * right between two rows, only the larger half of the image is computed and
+	 * the rows of the other half are copied from their mirror images. The mirrored
+	 * rows take the negated coordinates of their counterparts, which may differ
+	 * from their own coordinates in the last bit. If the axis misses the rows, no
+	 * row has an exact mirror image and all rows are computed. This does not apply to deep zooms
+	 * rendered by perturbation nor to fields reusing the counts of a previous field.
+	 * @param enabled {@code true} to mirror images at the real axis
+	 */
+	public void setSymmetry(final boolean enabled) {
+		symmetry = enabled;
+	}
+
+	/**
+	 * Returns the formula of rendered images.
+	 * @return the formula.
+	 */
+	public Formula getFormula() {
+		return formula;
+	}
+
+	/**
+	 * Sets the formula of rendered images. It is read once when a render starts.
+	 * Formulas other than {@link Formula#MANDELBROT} are rendered in {@code double}
+	 * precision only, are mirrored at the real axis only if they are symmetric to it
+	 * and have no exponential map.
+	 * @param formula the formula, must not be {@code null}
+	 */
+	public void setFormula(final Formula formula) {
+		if (formula == null) {
+			throw new IllegalArgumentException("formula must not be null"); //$NON-NLS-1$
+		}
+		this.formula = formula;
+	}
+
+	/**
+	 * Returns the number of samples per axis of anti-aliased pixels.
+	 * @return the number of samples per axis, one if images are not anti-aliased.
+	 */
+	public int getSupersampling() {
+		return supersampling;
+	}
+
+	/**
+	 * Sets the number of samples per axis of anti-aliased pixels. Rendered images
+	 * are then anti-aliased at their edges only: pixels whose color differs from
+	 * a neighbour by more than the threshold (see {@link #setSupersamplingThreshold(int)})
+	 * are sampled on a grid and get the average color, all other pixels keep
+	 * a single sample. The number of extra samples is reported by
+	 * {@link RenderStatistics#getExtraSamples()}. The samples of deep zooms are
+	 * computed by perturbation like their pixels. This applies to images only,
+	 * not to fields of iteration counts and not to images with smooth coloring
+	 * (see {@link #setSmoothColoring(boolean)}).
+	 * @param grid the number of samples per axis, one switches anti-aliasing off
+	 */
+	public void setSupersampling(final int grid) {
+		if (grid < 1) {
+			throw new IllegalArgumentException("grid must be positive"); //$NON-NLS-1$
+		}
+		supersampling = grid;
+	}
+
+	/**
+	 * Returns the largest difference of a color channel between neighbouring
+	 * pixels which is not anti-aliased.
+	 * @return the threshold for anti-aliasing a pixel.
+	 */
+	public int getSupersamplingThreshold() {
+		return supersamplingThreshold;
+	}
+
+	/**
+	 * Sets the largest difference of a color channel between neighbouring pixels
+	 * which is not anti-aliased. Lower values anti-alias more pixels.
+	 * @param threshold the threshold, from 0 to 255
+	 */
+	public void setSupersamplingThreshold(final int threshold) {
+		if (threshold < 0 || threshold > 255) {
+			throw new IllegalArgumentException("threshold must be between 0 and 255"); //$NON-NLS-1$
+		}
+		supersamplingThreshold = threshold;
+	}
+
+	/**
+	 * Returns whether rendered images are colored by the normalized iteration count.
+	 * @return {@code true} if images are colored smoothly.
+	 */
+	public boolean isSmoothColoring() {
+		return smoothColoring;
+	}
+
+	/**
+	 * Sets whether rendered images are colored by the normalized iteration count,
+	 * which is continuous, instead of the integer iteration count, which shows bands.
+	 * The colors are interpolated through a lookup table (see {@link Colorizer#lut(int...)}),
+	 * so few colors and a low iteration budget give smooth images. Images are then
+	 * rendered tile by tile even in {@link RenderMode#SUBDIVISION}. This applies to
+	 * images of the Mandelbrot set in {@code float} or {@code double} precision;
+	 * deeper zooms and other formulas keep the bands. Fields of iteration counts
+	 * keep the bands unless they are computed with fractions, see
+	 * {@link #computeField(PreciseNumber, double, int, int, int, RenderMode, IterationField, boolean)}.
+	 * @param enabled {@code true} to color images smoothly
+	 */
+	public void setSmoothColoring(final boolean enabled) {
+		smoothColoring = enabled;
+	}
+
+	/**
+	 * Returns the policy deciding the maximum number of iterations of rendered images.
+	 * @return the iteration budget.
+	 */
+	public IterationBudget getIterationBudget() {
+		return iterationBudget;
+	}
+
+	/**
+	 * Sets the policy deciding the maximum number of iterations of rendered images.
+	 * It applies to all renders taking colors and to the fields computed with
+	 * the result of {@link #getIterations(FrameData, int)}.
+	 * @param budget the iteration budget, must not be {@code null}
+	 */
+	public void setIterationBudget(final IterationBudget budget) {
+		if (budget == null) {
+			throw new IllegalArgumentException("budget must not be null"); //$NON-NLS-1$
+		}
+		iterationBudget = budget;
+	}
+
+	/**
+	 * Returns the maximum number of iterations of the given frame according to the iteration budget.
+	 * @param frameData the frame
+	 * @param colors the number of colors the frame is rendered with
+	 * @return the maximum number of iterations, positive
+	 */
+	public int getIterations(final FrameData frameData, final int colors) {
+		return getIterations(frameData.getTopLeft(), frameData.getScale(), frameData.dimension.width, frameData.dimension.height, colors);
+	}
+
+	/**
+	 * Returns the maximum number of iterations of an image according to the
+	 * iteration budget. Automatic budgets run a pre-pass of the image.
+	 * @param topLeft the top left corner for the image (on the complex number plane)
+	 * @param scale the scale (aka zoom level)
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param colors the number of colors the image is rendered with
+	 * @return the maximum number of iterations, positive
+	 */
+	public int getIterations(final PreciseNumber topLeft, final double scale, final int width, final int height, final int colors) {
+		return iterationBudget.getMax(this, topLeft, scale, width, height, colors);
+	}
+
+	/**
+	 * Estimates the cost of rendering the given frame by iterating a sparse
+	 * grid of its points with {@code double} precision. The result is only
+	 * meaningful relative to other frames; at deep zooms the points of the
+	 * grid are not distinguished and the estimate gets coarse.
+	 * @param frameData the frame to estimate
+	 * @param max the maximum number of iterations
+	 * @return the estimated cost of the frame
+	 */
+	public long estimateCost(final FrameData frameData, final int max) {
+		final Number topLeft = frameData.getTopLeft().toNumber();
+		final double steps = frameData.getScale() / Math.min(frameData.dimension.width, frameData.dimension.height);
+		final double stepX = steps * frameData.dimension.width / COST_SAMPLES;
+		final double stepY = steps * frameData.dimension.height / COST_SAMPLES;
+		final Formula current = formula;
+		final double[] real = new double[COST_SAMPLES * COST_SAMPLES];
+		final double[] imaginary = new double[real.length];
+		for (int y = 0; y < COST_SAMPLES; y++) {
+			for (int x = 0; x < COST_SAMPLES; x++) {
+				real[y * COST_SAMPLES + x] = topLeft.getReal() + (x + 0.5) * stepX;
+				imaginary[y * COST_SAMPLES + x] = topLeft.getImaginary() + (y + 0.5) * stepY;
+			}
+		}
+		long cost = 0;
+		if (current != Formula.MANDELBROT) {
+			final int[] counts = new int[real.length];
+			current.iterate(real, imaginary, counts.length, max, cycleTolerance * steps, counts);
+			for (final int count : counts) {
+				cost += 1 + count;
+			}
+			return cost;
+		}
+		for (int i = 0; i < real.length; i++) {
+			cost += 1 + (EscapeTimeKernel.isInterior(real[i], imaginary[i]) ? 0 : EscapeTimeKernel.iterate(real[i], imaginary[i], max, cycleTolerance * steps));
+		}
+		return cost;
+	}
+
+	/**
+	 * Returns the statistics of the most recently completed render.
+	 * @return the statistics of the most recently completed render.
+	 */
+	public RenderStatistics getStatistics() {
+		return statistics;
+	}
+
 	/**
 	 * Renders an Mandelbrot set image for the given input.
 	 * @param frameData the frame data to use
@@ -16,7 +446,53 @@ public class MandelbrotSet {
 	 * @return the generated image
 	 */
 	public BufferedImage render(final FrameData frameData, final int... colors) {
-		return render(frameData.topLeft, frameData.scale, frameData.dimension.width, frameData.dimension.height, frameData.frameOffset, colors);
+		return render(frameData, new BufferedImage(frameData.dimension.width, frameData.dimension.height, BufferedImage.TYPE_3BYTE_BGR), colors);
+	}
+
+	/**
+	 * Renders the area of the given frame into the given image, which should have
+	 * the aspect ratio of the frame.
+	 * @param frameData the frame data to use
+	 * @param img the image to render into, this defines width and height
+	 * @param colors the colors to use
+	 * @return the image passed in
+	 */
+	public BufferedImage render(final FrameData frameData, final BufferedImage img, final int... colors) {
+		return render(frameData, img, new RenderStatistics(), colors);
+	}
+
+	/**
+	 * Renders the area of the given frame into the given image and collects the
+	 * statistics of this render into the given instance. Unlike {@link #getStatistics()}
+	 * this attributes the statistics correctly if several frames are rendered concurrently.
+	 * @param frameData the frame data to use
+	 * @param img the image to render into, this defines width and height
+	 * @param stats the statistics to update
+	 * @param colors the colors to use
+	 * @return the image passed in
+	 */
+	public BufferedImage render(final FrameData frameData, final BufferedImage img, final RenderStatistics stats, final int... colors) {
+		final PreciseNumber topLeft = frameData.getTopLeft(img.getWidth(), img.getHeight());
+		return render(topLeft, frameData.getScale(), frameData.frameOffset, renderMode, img, stats, getIterations(topLeft, frameData.getScale(), img.getWidth(), img.getHeight(), colors.length), colors);
+	}
+
+	/**
+	 * Renders the area of the given frame into the given image like
+	 * {@link #render(FrameData, BufferedImage, RenderStatistics, int...)}, but with
+	 * the given maximum number of iterations instead of the iteration budget.
+	 * This avoids deciding the budget twice, which for automatic budgets runs a pre-pass.
+	 * @param frameData the frame data to use
+	 * @param max the maximum number of iterations, see {@link #getIterations(FrameData, int)}
+	 * @param img the image to render into, this defines width and height
+	 * @param stats the statistics to update
+	 * @param colors the colors to use
+	 * @return the image passed in
+	 */
+	public BufferedImage render(final FrameData frameData, final int max, final BufferedImage img, final RenderStatistics stats, final int... colors) {
+		if (max < 1) {
+			throw new IllegalArgumentException("max must be positive"); //$NON-NLS-1$
+		}
+		return render(frameData.getTopLeft(img.getWidth(), img.getHeight()), frameData.getScale(), frameData.frameOffset, renderMode, img, stats, max, colors);
 	}
 
 	/**
@@ -30,24 +506,456 @@ public class MandelbrotSet {
 	 * @return the generated image
 	 */
 	public BufferedImage render(final Number topLeft, final double scale, final int width, final int height, final int offset, final int... colors) {
-		final BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		return render(topLeft, scale, offset, new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR), colors);
+	}
+
+	/**
+	 * Renders an Mandelbrot set into the given image. The pixels are written directly
+	 * into the backing array of images of type {@link BufferedImage#TYPE_3BYTE_BGR}
+	 * and {@link BufferedImage#TYPE_INT_RGB}.
+	 * @param topLeft the top left corner for the image (on the complex number plane)
+	 * @param scale the scale (aka zoom level)
+	 * @param offset the color offset for the input colors
+	 * @param img the image to render into, this defines width and height
+	 * @param colors the RGB colors to use for rendering
+	 * @return the image passed in
+	 */
+	public BufferedImage render(final Number topLeft, final double scale, final int offset, final BufferedImage img, final int... colors) {
+		return render(topLeft, scale, offset, renderMode, img, colors);
+	}
+
+	/**
+	 * Renders an Mandelbrot set into the given image using the given render mode.
+	 * Deep zooms needing {@link Precision#ARBITRARY} are always rendered pixel
+	 * by pixel using perturbation.
+	 * @param topLeft the top left corner for the image (on the complex number plane)
+	 * @param scale the scale (aka zoom level)
+	 * @param offset the color offset for the input colors
+	 * @param mode the render mode
+	 * @param img the image to render into, this defines width and height
+	 * @param colors the RGB colors to use for rendering
+	 * @return the image passed in
+	 */
+	public BufferedImage render(final Number topLeft, final double scale, final int offset, final RenderMode mode, final BufferedImage img, final int... colors) {
+		return render(new PreciseNumber(topLeft), scale, offset, mode, img, colors);
+	}
+
+	/**
+	 * Renders an Mandelbrot set into the given image using the given render mode.
+	 * The top left corner is only rounded to the precision needed for the scale.
+	 * @param topLeft the top left corner for the image (on the complex number plane)
+	 * @param scale the scale (aka zoom level)
+	 * @param offset the color offset for the input colors
+	 * @param mode the render mode
+	 * @param img the image to render into, this defines width and height
+	 * @param colors the RGB colors to use for rendering
+	 * @return the image passed in
+	 */
+	public BufferedImage render(final PreciseNumber topLeft, final double scale, final int offset, final RenderMode mode, final BufferedImage img, final int... colors) {
+		return render(topLeft, scale, offset, mode, img, new RenderStatistics(), getIterations(topLeft, scale, img.getWidth(), img.getHeight(), colors.length), colors);
+	}
+
+	private BufferedImage render(final PreciseNumber topLeft, final double scale, final int offset, final RenderMode mode, final BufferedImage img, final RenderStatistics stats, final int max, final int... colors) {
+		final int width = img.getWidth();
+		final int height = img.getHeight();
+		final int[] palette = Colorizer.palette(max, offset, colors);
+		final Formula current = formula;
+		final int grid = supersampling;
+		if (smoothColoring) {
+			compute(topLeft, scale, width, height, mode, null, stats, PixelWriter.create(img), current, max, new SmoothPalette(offset, colors), null, palette);
+			return img;
+		} else if (grid < 2) {
+			compute(topLeft, scale, width, height, mode, null, stats, PixelWriter.create(img), current, max, null, null, palette);
+			return img;
+		}
+		// the edges are found on the iteration counts of the whole image
+		final int[] counts = new int[width * height];
+		compute(topLeft, scale, width, height, mode, null, stats, PixelWriter.create(counts, width), current, max, null, null, identity(max));
+		final long start = System.nanoTime();
 		final double steps = scale / Math.min(width, height);
-		int px;
-		int py = 0;
-		for (double y = topLeft.getImaginary(); py < height; py++, y += steps) {
-			px = 0;
-			final Number c = new Number(0, 0);
-			for (double x = topLeft.getReal(); px < width; px++, x += steps) {
-				final Number number = new Number(0, 0);
-				c.set(x, y);
-				int i = 0;
-				do {
-					number.multiply(number).add(c);
-				} while (i++ < colors.length && number.inside());
-				img.setRGB(px, py, colors[(offset + i) % colors.length]);
+		if (stats.getPrecision() == Precision.ARBITRARY) {
+			Supersampler.perturbed(perturbation, topLeft, steps, grid, supersamplingThreshold, counts, width, height, max, PixelWriter.create(img), stats, palette);
+		} else {
+			final double[] xs = new double[width];
+			final double[] ys = new double[height];
+			final double[] xsLow;
+			final double[] ysLow;
+			if (stats.getPrecision() == Precision.DOUBLE_DOUBLE) {
+				xsLow = new double[width];
+				ysLow = new double[height];
+				coordinates(DoubleDouble.valueOf(topLeft.getReal()), steps, xs, xsLow);
+				coordinates(DoubleDouble.valueOf(topLeft.getImaginary()), steps, ys, ysLow);
+			} else {
+				// edges rendered in single precision are sampled in double precision
+				xsLow = null;
+				ysLow = null;
+				coordinates(topLeft.getReal().doubleValue(), steps, xs);
+				coordinates(topLeft.getImaginary().doubleValue(), steps, ys);
+			}
+			final RenderJob job = new RenderJob(PixelWriter.create(img), stats, xs, ys, xsLow, ysLow, null, current, Precision.DOUBLE, false, cycleTolerance * steps, max, false, null, null, palette);
+			pool.invoke(new Supersampler(job, counts, height, steps, grid, supersamplingThreshold, 0, height));
+		}
+		stats.addElapsedTime(System.nanoTime() - start, pool.getParallelism());
+		return img;
+	}
+
+	/**
+	 * Computes the iteration counts of the given frame, which can then be colored
+	 * using the {@link Colorizer}.
+	 * @param frameData the frame data to use
+	 * @param max the maximum number of iterations, see {@link #getIterations(FrameData, int)}
+	 * @return the iteration counts of the frame
+	 */
+	public IterationField computeField(final FrameData frameData, final int max) {
+		return computeField(frameData, max, false);
+	}
+
+	/**
+	 * Computes the iteration counts of the given frame, which can then be colored
+	 * using the {@link Colorizer}, optionally with the fractions for smooth coloring.
+	 * @param frameData the frame data to use
+	 * @param max the maximum number of iterations, see {@link #getIterations(FrameData, int)}
+	 * @param smooth {@code true} to compute the fractions of the normalized iteration counts,
+	 * see {@link Colorizer#colorizeSmooth(IterationField, int, BufferedImage, int...)}
+	 * @return the iteration counts of the frame
+	 */
+	public IterationField computeField(final FrameData frameData, final int max, final boolean smooth) {
+		return computeField(frameData.getTopLeft(), frameData.getScale(), frameData.dimension.width, frameData.dimension.height, max, renderMode, null, smooth);
+	}
+
+	/**
+	 * Computes the iteration counts of an image, which can then be colored
+	 * using the {@link Colorizer}.
+	 * @param topLeft the top left corner for the image (on the complex number plane)
+	 * @param scale the scale (aka zoom level)
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param max the maximum number of iterations, see {@link #getIterations(FrameData, int)}
+	 * @param mode the render mode
+	 * @return the iteration counts of the image
+	 */
+	public IterationField computeField(final PreciseNumber topLeft, final double scale, final int width, final int height, final int max, final RenderMode mode) {
+		return computeField(topLeft, scale, width, height, max, mode, null);
+	}
+
+	/**
+	 * Computes the iteration counts of an image, reusing the counts of a previous
+	 * field of an overlapping area where they are known to be the same, for example
+	 * the previous frame of a movie. A pixel reuses the count of the nearest pixel of
+	 * the previous field if that pixel and its neighbours all have the same count;
+	 * all other pixels, including the ones outside of the previous field, are computed.
+	 * This is a heuristic like {@link RenderMode#SUBDIVISION}: details smaller than
+	 * a pixel of the previous field can be missed.
+	 * @param topLeft the top left corner for the image (on the complex number plane)
+	 * @param scale the scale (aka zoom level)
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param max the maximum number of iterations, see {@link #getIterations(FrameData, int)}
+	 * @param mode the render mode
+	 * @param previous the field to reuse counts from, {@code null} to compute all pixels;
+	 * it is ignored if its maximum number of iterations differs
+	 * @return the iteration counts of the image
+	 */
+	public IterationField computeField(final PreciseNumber topLeft, final double scale, final int width, final int height, final int max, final RenderMode mode, final IterationField previous) {
+		return computeField(topLeft, scale, width, height, max, mode, previous, false);
+	}
+
+	/**
+	 * Computes the iteration counts of an image like {@link #computeField(PreciseNumber, double, int, int, int, RenderMode, IterationField)},
+	 * optionally with the fractions of the normalized iteration counts. A field with
+	 * fractions can be colored smoothly any number of times with different colors
+	 * and color offsets, see {@link Colorizer#colorizeSmooth(IterationField, int, BufferedImage, int...)}.
+	 * Its counts are then the integer parts of the normalized iteration counts, which
+	 * may differ by one from the plain counts. Like smoothly colored images, fractions
+	 * are only computed for the Mandelbrot set in {@code float} or {@code double}
+	 * precision, all pixels are computed and the previous field is ignored.
+	 * @param topLeft the top left corner for the image (on the complex number plane)
+	 * @param scale the scale (aka zoom level)
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param max the maximum number of iterations, see {@link #getIterations(FrameData, int)}
+	 * @param mode the render mode
+	 * @param previous the field to reuse counts from, {@code null} to compute all pixels;
+	 * it is ignored if its maximum number of iterations differs
+	 * @param smooth {@code true} to compute the fractions of the normalized iteration counts
+	 * @return the iteration counts of the image
+	 */
+	public IterationField computeField(final PreciseNumber topLeft, final double scale, final int width, final int height, final int max, final RenderMode mode, final IterationField previous, final boolean smooth) {
+		if (max < 1) {
+			throw new IllegalArgumentException("max must be positive"); //$NON-NLS-1$
+		}
+		final int[] counts = new int[width * height];
+		final int[] bits = smooth ? new int[counts.length] : null;
+		final RenderStatistics stats = new RenderStatistics();
+		compute(topLeft, scale, width, height, mode, previous != null && previous.getMax() == max && !smooth ? previous : null, stats, PixelWriter.create(counts, width), formula, max, null, bits, identity(max));
+		float[] fractions = null;
+		if (bits != null) {
+			fractions = new float[bits.length];
+			for (int i = 0; i < bits.length; i++) {
+				fractions[i] = Float.intBitsToFloat(bits[i]);
 			}
 		}
+		return new IterationField(width, height, max, counts, fractions, topLeft, scale / Math.min(width, height), stats);
+	}
+
+	/**
+	 * Creates a map of the iteration counts around the given center in log-polar
+	 * coordinates, which can show a zoom into the center over the whole range of
+	 * the radii. The rows of the map are computed when it is first used.
+	 * @param center the center of the map
+	 * @param innerRadius the radius of the innermost row, must be positive
+	 * @param outerRadius the radius of the outermost row, must be larger than the inner radius
+	 * @param angles the number of samples per row, at least four
+	 * @param max the maximum number of iterations
+	 * @return the map
+	 * @throws IllegalStateException if the formula is not {@link Formula#MANDELBROT}
+	 */
+	public ExponentialMap createExponentialMap(final PreciseNumber center, final double innerRadius, final double outerRadius, final int angles, final int max) {
+		if (formula != Formula.MANDELBROT) {
+			throw new IllegalStateException("exponential maps need the Mandelbrot formula"); //$NON-NLS-1$
+		}
+		return new ExponentialMap(this, center, innerRadius, outerRadius, angles, max);
+	}
+
+	/**
+	 * Colors the field into the given image using the threads of this set,
+	 * like {@link Colorizer#colorize(IterationField, int, BufferedImage, int...)}.
+	 * @param field the iteration counts
+	 * @param offset the color offset for the input colors
+	 * @param img the image to write to, must have the size of the field
+	 * @param colors the RGB colors to use
+	 * @return the image passed in
+	 */
+	public BufferedImage colorize(final IterationField field, final int offset, final BufferedImage img, final int... colors) {
+		pool.invoke(Colorizer.writer(field, offset, img, colors));
+		return img;
+	}
+
+	/**
+	 * Colors the field smoothly into the given image using the threads of this set,
+	 * like {@link Colorizer#colorizeSmooth(IterationField, int, BufferedImage, int...)}.
+	 * @param field the iteration counts with their fractions
+	 * @param offset the color offset for the input colors
+	 * @param img the image to write to, must have the size of the field
+	 * @param colors the RGB colors to use
+	 * @return the image passed in
+	 */
+	public BufferedImage colorizeSmooth(final IterationField field, final int offset, final BufferedImage img, final int... colors) {
+		pool.invoke(Colorizer.smoothWriter(field, offset, img, colors));
 		return img;
 	}
 
+	/**
+	 * Creates a resampler for the given image which resamples using the threads of this set.
+	 * @param source the image to read from
+	 * @return the resampler
+	 */
+	public Resampler createResampler(final BufferedImage source) {
+		return new Resampler(pool, source);
+	}
+
+	/**
+	 * Runs the task using the threads of this set.
+	 * @param task the task to run
+	 */
+	void invoke(final ForkJoinTask<?> task) {
+		pool.invoke(task);
+	}
+
+	/**
+	 * Computes rows of a log-polar map. The rows further out need less precision,
+	 * so the arithmetic is selected per row; rows needing {@link Precision#ARBITRARY}
+	 * are iterated by perturbation against the orbit of the center.
+	 * @param map the map to compute
+	 * @param from the first row to compute
+	 * @param to the last row to compute (exclusive)
+	 * @param counts the iteration counts to fill, row by row
+	 * @param stats the statistics to update
+	 */
+	void computeRows(final ExponentialMap map, final int from, final int to, final int[] counts, final RenderStatistics stats) {
+		final Number center = map.getCenter().toNumber();
+		int doubleDouble = from;
+		// log-polar rows have no single precision
+		while (doubleDouble < to && selectPrecision(center, map.spacing(doubleDouble)).compareTo(Precision.DOUBLE) <= 0) {
+			doubleDouble++;
+		}
+		int arbitrary = doubleDouble;
+		while (arbitrary < to && selectPrecision(center, map.spacing(arbitrary)) != Precision.ARBITRARY) {
+			arbitrary++;
+		}
+		if (from < arbitrary) {
+			pool.invoke(new PolarRows(map, counts, from, doubleDouble, from, arbitrary, cycleTolerance, stats));
+		}
+		if (arbitrary < to) {
+			final int angles = map.getAngles();
+			final double[] real = new double[(to - arbitrary) * angles];
+			final double[] imaginary = new double[real.length];
+			for (int row = arbitrary; row < to; row++) {
+				for (int i = 0; i < angles; i++) {
+					real[(row - arbitrary) * angles + i] = map.real(row, i);
+					imaginary[(row - arbitrary) * angles + i] = map.imaginary(row, i);
+				}
+			}
+			final int[] field = perturbation.render(map.getCenter(), real, imaginary, map.orbit(), map.context(), map.getMax(), stats);
+			System.arraycopy(field, 0, counts, (arbitrary - from) * angles, field.length);
+			stats.setPrecision(Precision.ARBITRARY);
+		} else {
+			stats.setPrecision(doubleDouble < to ? Precision.DOUBLE_DOUBLE : Precision.DOUBLE);
+		}
+	}
+
+	private void compute(final PreciseNumber topLeft, final double scale, final int width, final int height, final RenderMode mode, final IterationField previous, final RenderStatistics stats, final PixelWriter writer, final Formula formula, final int max, final SmoothPalette smooth, final int[] fractions, final int... palette) {
+		final double steps = scale / Math.min(width, height);
+		final Precision precision = formula == Formula.MANDELBROT ? selectPrecision(topLeft.toNumber(), steps) : Precision.DOUBLE;
+		stats.setPrecision(precision);
+		final long start = System.nanoTime();
+		final Reprojection reprojection;
+		final int[] known;
+		if (previous != null) {
+			reprojection = Reprojection.create(previous, topLeft, steps, width, height);
+			pool.invoke(reprojection);
+			known = reprojection.getResult();
+		} else {
+			reprojection = null;
+			known = null;
+		}
+		if (precision == Precision.ARBITRARY) {
+			final int[] field;
+			if (known != null) {
+				final int[] pending = unknown(known);
+				stats.addReusedPixels(known.length - pending.length);
+				field = perturbation.render(topLeft.getReal(), topLeft.getImaginary(), steps, width, height, max, known, pending, stats);
+			} else {
+				field = perturbation.render(topLeft.getReal(), topLeft.getImaginary(), steps, width, height, max, stats);
+			}
+			pool.invoke(new FieldWriter(writer, field, width, palette, 0, height));
+			stats.addElapsedTime(System.nanoTime() - start, pool.getParallelism());
+			statistics = stats;
+			return;
+		}
+		// the coordinates are computed from the pixel index and not accumulated,
+		// so there is no rounding error building up across the image
+		final double[] xs = new double[width];
+		double[] ys = new double[height];
+		final double[] xsLow;
+		double[] ysLow;
+		if (precision == Precision.DOUBLE_DOUBLE) {
+			xsLow = new double[width];
+			ysLow = new double[height];
+			coordinates(DoubleDouble.valueOf(topLeft.getReal()), steps, xs, xsLow);
+			coordinates(DoubleDouble.valueOf(topLeft.getImaginary()), steps, ys, ysLow);
+		} else {
+			xsLow = null;
+			ysLow = null;
+			coordinates(topLeft.getReal().doubleValue(), steps, xs);
+			coordinates(topLeft.getImaginary().doubleValue(), steps, ys);
+		}
+		// the smooth kernel iterates z² + c in double precision, other images keep the bands
+		final boolean continuous = formula == Formula.MANDELBROT && precision.compareTo(Precision.DOUBLE) <= 0;
+		final int axis = symmetry && known == null && formula.isConjugateSymmetric() ? axis(ys[0], steps, height) : -1;
+		PixelWriter target = writer;
+		PixelWriter fractionTarget = continuous && fractions != null ? PixelWriter.create(fractions, width) : null;
+		int rows = height;
+		if (axis >= 0) {
+			// the rows from the first one to the axis, extended by the mirror images
+			// of the rows below the axis if these are more; rows above the image
+			// take the negated coordinates of the rows they mirror
+			final int first = Math.min(0, axis - height + 1);
+			rows = axis / 2 - first + 1;
+			ys = mirror(ys, first, axis, rows);
+			if (ysLow != null) {
+				ysLow = mirror(ysLow, first, axis, rows);
+			}
+			target = PixelWriter.mirror(writer, first, axis, height);
+			if (fractionTarget != null) {
+				fractionTarget = PixelWriter.mirror(fractionTarget, first, axis, height);
+			}
+			stats.addPixels((long) (height - rows) * width);
+			stats.addMirroredPixels((long) (height - rows) * width);
+		}
+		final RenderJob job = new RenderJob(target, stats, xs, ys, xsLow, ysLow, known, formula, precision, verifySinglePrecision, cycleTolerance * steps, max, lockstep, continuous ? smooth : null, fractionTarget, palette);
+		if (mode == RenderMode.SUBDIVISION && job.smooth == null && job.fractions == null) {
+			pool.invoke(Subdivision.create(job, width, rows));
+		} else if (costScheduling) {
+			pool.invoke(new TileSchedule(job, reprojection, tileSize, width, rows, pool.getParallelism()));
+		} else {
+			pool.invoke(new Tile(job, tileSize, 0, 0, width, rows));
+		}
+		stats.addElapsedTime(System.nanoTime() - start, pool.getParallelism());
+		statistics = stats;
+	}
+
+	/**
+	 * Selects the arithmetic used to render an image.
+	 * @param topLeft the top left corner for the image
+	 * @param steps the pixel spacing
+	 * @return the precision to render the image with
+	 */
+	protected Precision selectPrecision(final Number topLeft, final double steps) {
+		return Precision.select(topLeft, steps, singlePrecision);
+	}
+
+	private static int[] identity(final int max) {
+		final int[] result = new int[max + 2];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = i;
+		}
+		return result;
+	}
+
+	private static int[] unknown(final int... counts) {
+		int size = 0;
+		for (final int count : counts) {
+			if (count == Reprojection.UNKNOWN) {
+				size++;
+			}
+		}
+		final int[] result = new int[size];
+		for (int i = 0, j = 0; j < size; i++) {
+			if (counts[i] == Reprojection.UNKNOWN) {
+				result[j++] = i;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the real axis in an image if the rows of the image are symmetric to it,
+	 * that is the axis runs along a row or right between two rows up to rounding
+	 * errors, and it lies far enough inside the image for some rows to have
+	 * a mirror image.
+	 * @param top the imaginary component of the first row
+	 * @param steps the pixel spacing
+	 * @param height the number of rows
+	 * @return twice the row of the axis, {@code -1} if the rows are not symmetric
+	 */
+	static int axis(final double top, final double steps, final int height) {
+		final double twice = -2 * top / steps;
+		final long axis = Math.round(twice);
+		return Math.abs(twice - axis) <= 2 * AXIS_TOLERANCE && axis > 0 && axis < 2 * (height - 1) ? (int) axis : -1;
+	}
+
+	private static double[] mirror(final double[] coordinates, final int first, final int axis, final int rows) {
+		final double[] result = new double[rows];
+		for (int i = 0; i < rows; i++) {
+			final int row = first + i;
+			result[i] = row >= 0 ? coordinates[row] : -coordinates[axis - row];
+		}
+		return result;
+	}
+
+	private static void coordinates(final double origin, final double steps, final double[] result) {
+		for (int i = 0; i < result.length; i++) {
+			result[i] = origin + i * steps;
+		}
+	}
+
+	private static void coordinates(final DoubleDouble origin, final double steps, final double[] high, final double[] low) {
+		for (int i = 0; i < high.length; i++) {
+			final DoubleDouble value = DoubleDouble.valueOf(origin, steps, i);
+			high[i] = value.hi;
+			low[i] = value.lo;
+		}
+	}
+
 }
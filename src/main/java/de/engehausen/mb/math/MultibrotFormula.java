@@ -0,0 +1,103 @@
+package de.engehausen.mb.math;
+
+/**
+ * The Multibrot set z<sup>d</sup> + c for an integer exponent d. The power
+ * is computed by repeated complex multiplication.
+ */
+final class MultibrotFormula extends Formula {
+
+	/** id of the formula */
+	static final String ID = "multibrot"; //$NON-NLS-1$
+
+	private final int degree;
+
+	/**
+	 * Creates the formula.
+	 * @param degree the exponent, at least two
+	 */
+	MultibrotFormula(final int degree) {
+		if (degree < 2) {
+			throw new IllegalArgumentException("degree must be at least two"); //$NON-NLS-1$
+		}
+		this.degree = degree;
+	}
+
+	@Override
+	public String getId() {
+		return ID;
+	}
+
+	@Override
+	public double[] getParameters() {
+		return new double[] { degree };
+	}
+
+	/**
+	 * Returns the id followed by the integer degree, for example {@code multibrot:3}.
+	 * @return the id and degree of the formula
+	 */
+	@Override
+	public String toString() {
+		return ID + ':' + degree;
+	}
+
+	@Override
+	public boolean isConjugateSymmetric() {
+		return true;
+	}
+
+	@Override
+	public int iterate(final double real, final double imaginary, final int max, final double epsilon) {
+		return iterate(real, imaginary, max, epsilon, degree);
+	}
+
+	@Override
+	public void iterate(final double[] real, final int from, final int to, final double imaginary, final int max, final double epsilon, final int[] counts) {
+		for (int i = from; i < to; i++) {
+			if (counts[i - from] < 0) {
+				counts[i - from] = iterate(real[i], imaginary, max, epsilon, degree);
+			}
+		}
+	}
+
+	@Override
+	public void iterate(final double[] real, final double[] imaginary, final int count, final int max, final double epsilon, final int[] counts) {
+		for (int i = 0; i < count; i++) {
+			counts[i] = iterate(real[i], imaginary[i], max, epsilon, degree);
+		}
+	}
+
+	private static int iterate(final double cr, final double ci, final int max, final double epsilon, final int degree) {
+		double x = 0;
+		double y = 0;
+		double savedX = 0;
+		double savedY = 0;
+		int check = EscapeTimeKernel.CYCLE_START;
+		int i = 0;
+		while (true) {
+			double px = x;
+			double py = y;
+			for (int k = 1; k < degree; k++) {
+				final double t = px * x - py * y;
+				py = px * y + py * x;
+				px = t;
+			}
+			x = px + cr;
+			y = py + ci;
+			if (i++ >= max || !(x * x + y * y < 4)) {
+				return i;
+			}
+			if (epsilon > 0) {
+				if (Math.abs(x - savedX) < epsilon && Math.abs(y - savedY) < epsilon) {
+					return max + 1;
+				}
+				if (i == check) {
+					savedX = x;
+					savedY = y;
+					check += check;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,358 @@
+package de.engehausen.mb.math;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Deep zoom renderer based on perturbation theory. The orbit of one reference
+ * point is computed with arbitrary precision; every pixel only iterates its
+ * (small) difference to the reference orbit with {@code double} precision.
+ * Pixels whose orbit gets too close to the reference orbit lose precision
+ * ("glitch", detected with Pauldelbrot's criterion) and are iterated again
+ * against a new reference point taken from the glitched pixels.
+ * For the first reference orbit, the initial iterations of all pixels are
+ * skipped using a {@link SeriesApproximation}.
+ */
+final class PerturbationEngine {
+
+	/** marker for a pixel which needs a new reference orbit */
+	static final int GLITCH = -1;
+
+	private static final double GLITCH_TOLERANCE = 1e-6;
+	private static final int MAX_REFERENCES = 32;
+
+	private final ForkJoinPool pool;
+	private final int chunk;
+
+	/**
+	 * Creates the engine.
+	 * @param pool the pool to render with
+	 * @param tileSize the tile size, the square of it is the number of pixels per task
+	 */
+	PerturbationEngine(final ForkJoinPool pool, final int tileSize) {
+		this.pool = pool;
+		this.chunk = tileSize * tileSize;
+	}
+
+	/**
+	 * Computes the iteration counts of an image.
+	 * @param left the real component of the top left pixel
+	 * @param top the imaginary component of the top left pixel
+	 * @param steps the pixel spacing
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param max the maximum number of iterations
+	 * @param statistics the statistics to update
+	 * @return the iteration counts, row by row
+	 */
+	int[] render(final BigDecimal left, final BigDecimal top, final double steps, final int width, final int height, final int max, final RenderStatistics statistics) {
+		final int[] pending = new int[width * height];
+		for (int i = 0; i < pending.length; i++) {
+			pending[i] = i;
+		}
+		return render(left, top, steps, width, height, max, new int[pending.length], pending, statistics);
+	}
+
+	/**
+	 * Computes the iteration counts of some pixels of an image.
+	 * @param left the real component of the top left pixel
+	 * @param top the imaginary component of the top left pixel
+	 * @param steps the pixel spacing
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param max the maximum number of iterations
+	 * @param field the iteration counts of the image, row by row, which are updated
+	 * @param pixels the indices of the pixels to compute, in ascending order
+	 * @param statistics the statistics to update
+	 * @return the field passed in
+	 */
+	int[] render(final BigDecimal left, final BigDecimal top, final double steps, final int width, final int height, final int max, final int[] field, final int[] pixels, final RenderStatistics statistics) {
+		final MathContext context = ReferenceOrbit.precision(steps);
+		final BigDecimal step = new BigDecimal(steps);
+		int[] pending = pixels;
+		if (pending.length == 0) {
+			statistics.addPixels(field.length);
+			return field;
+		}
+		int reference = width * (height / 2) + width / 2;
+		for (int count = 1; pending.length > 0; count++) {
+			final int refX = reference % width;
+			final int refY = reference / width;
+			final ReferenceOrbit orbit = new ReferenceOrbit(
+				left.add(step.multiply(BigDecimal.valueOf(refX)), context),
+				top.add(step.multiply(BigDecimal.valueOf(refY)), context),
+				max,
+				context
+			);
+			final boolean detect = count < MAX_REFERENCES;
+			final SeriesApproximation series;
+			if (count == 1) {
+				series = SeriesApproximation.create(orbit, max, probes(width, height, refX, refY, steps));
+				statistics.addSkippedIterations((long) series.skip * pending.length);
+			} else {
+				series = SeriesApproximation.NONE;
+			}
+			pool.invoke(new Pass(orbit, series, field, pending, 0, pending.length, new GridOffsets(width, refX, refY, steps), max, detect));
+			statistics.addReference();
+			pending = glitched(field, pending);
+			statistics.addGlitchedPixels(pending.length);
+			if (pending.length > 0) {
+				reference = pending[pending.length / 2];
+			}
+		}
+		statistics.addPixels(field.length);
+		return field;
+	}
+
+	/**
+	 * Computes the iteration counts of arbitrary points close to an origin.
+	 * The first pass iterates all points against the orbit of the origin,
+	 * glitched points are iterated again against new reference points taken
+	 * from them. No iterations are skipped, as a series approximation would
+	 * need to be valid for all points.
+	 * @param origin the point the offsets are relative to
+	 * @param real the real offsets of the points to the origin
+	 * @param imaginary the imaginary offsets of the points to the origin
+	 * @param orbit the reference orbit of the origin
+	 * @param context the precision of new reference orbits
+	 * @param max the maximum number of iterations
+	 * @param statistics the statistics to update
+	 * @return the iteration counts of the points
+	 */
+	int[] render(final PreciseNumber origin, final double[] real, final double[] imaginary, final ReferenceOrbit orbit, final MathContext context, final int max, final RenderStatistics statistics) {
+		final int[] field = new int[real.length];
+		int[] pending = new int[field.length];
+		for (int i = 0; i < pending.length; i++) {
+			pending[i] = i;
+		}
+		ReferenceOrbit current = orbit;
+		Offsets offsets = new PointOffsets(real, imaginary, 0, 0);
+		for (int count = 1; pending.length > 0; count++) {
+			pool.invoke(new Pass(current, SeriesApproximation.NONE, field, pending, 0, pending.length, offsets, max, count < MAX_REFERENCES));
+			statistics.addReference();
+			pending = glitched(field, pending);
+			statistics.addGlitchedPixels(pending.length);
+			if (pending.length > 0) {
+				final int reference = pending[pending.length / 2];
+				final PreciseNumber point = origin.add(real[reference], imaginary[reference], context);
+				current = new ReferenceOrbit(point.getReal(), point.getImaginary(), max, context);
+				offsets = new PointOffsets(real, imaginary, real[reference], imaginary[reference]);
+			}
+		}
+		statistics.addPixels(field.length);
+		return field;
+	}
+
+	private static double[] probes(final int width, final int height, final int refX, final int refY, final double steps) {
+		final int[] xs = { 0, width / 2, width - 1 };
+		final int[] ys = { 0, height / 2, height - 1 };
+		final double[] result = new double[2 * xs.length * ys.length];
+		int i = 0;
+		for (final int y : ys) {
+			for (final int x : xs) {
+				result[i++] = (x - refX) * steps;
+				result[i++] = (y - refY) * steps;
+			}
+		}
+		return result;
+	}
+
+	private static int[] glitched(final int[] field, final int... pending) {
+		final int[] result = new int[pending.length];
+		int count = 0;
+		for (final int index : pending) {
+			if (field[index] == GLITCH) {
+				result[count++] = index;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Iterates the difference of a pixel to the reference orbit.
+	 * @param orbit the reference orbit
+	 * @param dcr the real difference of the pixel to the reference point
+	 * @param dci the imaginary difference of the pixel to the reference point
+	 * @param start the iteration to start with
+	 * @param startReal the real difference to the reference orbit at the start iteration
+	 * @param startImaginary the imaginary difference to the reference orbit at the start iteration
+	 * @param max the maximum number of iterations
+	 * @param detect {@code true} to report glitches, {@code false} to accept the result
+	 * @return the iteration count, {@code max + 1} if the point did not escape or {@link #GLITCH}
+	 */
+	static int iterate(final ReferenceOrbit orbit, final double dcr, final double dci, final int start, final double startReal, final double startImaginary, final int max, final boolean detect) {
+		final double[] real = orbit.real;
+		final double[] imaginary = orbit.imaginary;
+		final int length = orbit.length;
+		double dr = startReal;
+		double di = startImaginary;
+		int n = start;
+		while (true) {
+			if (n >= max) {
+				return max + 1;
+			}
+			if (n + 1 >= length) {
+				// the reference orbit escaped before this pixel
+				return detect ? GLITCH : iterate(real[n] + dr, imaginary[n] + di, orbit.cr.doubleValue() + dcr, orbit.ci.doubleValue() + dci, n, max);
+			}
+			final double zr = real[n];
+			final double zi = imaginary[n];
+			final double ndr = 2 * (zr * dr - zi * di) + dr * dr - di * di + dcr;
+			di = 2 * (zr * di + zi * dr) + 2 * dr * di + dci;
+			dr = ndr;
+			n++;
+			final double x = real[n] + dr;
+			final double y = imaginary[n] + di;
+			final double magnitude = x * x + y * y;
+			if (!(magnitude < 4)) {
+				return n;
+			}
+			if (detect && magnitude < GLITCH_TOLERANCE * (real[n] * real[n] + imaginary[n] * imaginary[n])) {
+				return GLITCH;
+			}
+		}
+	}
+
+	/**
+	 * Continues the plain iteration from the given orbit point.
+	 */
+	private static int iterate(final double zr, final double zi, final double cr, final double ci, final int start, final int max) {
+		double x = zr;
+		double y = zi;
+		double x2 = x * x;
+		double y2 = y * y;
+		int i = start;
+		do {
+			y = 2 * x * y + ci;
+			x = x2 - y2 + cr;
+			x2 = x * x;
+			y2 = y * y;
+		} while (i++ < max && x2 + y2 < 4);
+		return i;
+	}
+
+	/**
+	 * Iterates a range of pixels against one reference orbit.
+	 */
+	private class Pass extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ReferenceOrbit orbit;
+		private final SeriesApproximation series;
+		private final int[] field;
+		private final int[] pixels;
+		private final int from;
+		private final int to;
+		private final Offsets offsets;
+		private final int max;
+		private final boolean detect;
+
+		protected Pass(final ReferenceOrbit orbit, final SeriesApproximation series, final int[] field, final int[] pixels, final int from, final int to, final Offsets offsets, final int max, final boolean detect) {
+			this.orbit = orbit;
+			this.series = series;
+			this.field = field;
+			this.pixels = pixels;
+			this.from = from;
+			this.to = to;
+			this.offsets = offsets;
+			this.max = max;
+			this.detect = detect;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > chunk) {
+				final int middle = (from + to) / 2;
+				invokeAll(
+					new Pass(orbit, series, field, pixels, from, middle, offsets, max, detect),
+					new Pass(orbit, series, field, pixels, middle, to, offsets, max, detect)
+				);
+			} else {
+				final int skip = series.skip;
+				for (int i = from; i < to; i++) {
+					final int index = pixels[i];
+					final double dcr = offsets.real(index);
+					final double dci = offsets.imaginary(index);
+					field[index] = skip > 0
+						? iterate(orbit, dcr, dci, skip, series.real(dcr, dci), series.imaginary(dcr, dci), max, detect)
+						: iterate(orbit, dcr, dci, 0, 0, 0, max, detect);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * The differences of the pixels to the current reference point.
+	 */
+	private interface Offsets {
+
+		double real(int index);
+
+		double imaginary(int index);
+
+	}
+
+	/**
+	 * The offsets of the pixels of an image, computed from the pixel index.
+	 */
+	private static class GridOffsets implements Offsets {
+
+		private final int width;
+		private final int refX;
+		private final int refY;
+		private final double steps;
+
+		protected GridOffsets(final int width, final int refX, final int refY, final double steps) {
+			this.width = width;
+			this.refX = refX;
+			this.refY = refY;
+			this.steps = steps;
+		}
+
+		@Override
+		public double real(final int index) {
+			return (index % width - refX) * steps;
+		}
+
+		@Override
+		public double imaginary(final int index) {
+			return (index / width - refY) * steps;
+		}
+
+	}
+
+	/**
+	 * The offsets of arbitrary points, given relative to an origin.
+	 */
+	private static class PointOffsets implements Offsets {
+
+		private final double[] real;
+		private final double[] imaginary;
+		private final double refReal;
+		private final double refImaginary;
+
+		protected PointOffsets(final double[] real, final double[] imaginary, final double refReal, final double refImaginary) {
+			this.real = real;
+			this.imaginary = imaginary;
+			this.refReal = refReal;
+			this.refImaginary = refImaginary;
+		}
+
+		@Override
+		public double real(final int index) {
+			return real[index] - refReal;
+		}
+
+		@Override
+		public double imaginary(final int index) {
+			return imaginary[index] - refImaginary;
+		}
+
+	}
+
+}
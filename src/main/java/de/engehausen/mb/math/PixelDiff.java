@@ -0,0 +1,124 @@
+package de.engehausen.mb.math;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Compares two images of the same size pixel by pixel.
+ * This is used to check approximating render modes against the brute-force result.
+ */
+public class PixelDiff {
+
+	private final long pixels;
+	private final long differing;
+
+	/**
+	 * Creates the comparison result.
+	 * @param pixels the number of compared pixels
+	 * @param differing the number of differing pixels
+	 */
+	public PixelDiff(final long pixels, final long differing) {
+		this.pixels = pixels;
+		this.differing = differing;
+	}
+
+	/**
+	 * Compares the RGB values of two images.
+	 * @param expected the reference image
+	 * @param actual the image to check
+	 * @return the comparison result
+	 */
+	public static PixelDiff compare(final BufferedImage expected, final BufferedImage actual) {
+		final int width = expected.getWidth();
+		final int height = expected.getHeight();
+		if (width != actual.getWidth() || height != actual.getHeight()) {
+			throw new IllegalArgumentException("images differ in size"); //$NON-NLS-1$
+		}
+		final int[] expectedRow = new int[width];
+		final int[] actualRow = new int[width];
+		long count = 0;
+		for (int y = 0; y < height; y++) {
+			expected.getRGB(0, y, width, 1, expectedRow, 0, width);
+			actual.getRGB(0, y, width, 1, actualRow, 0, width);
+			for (int x = 0; x < width; x++) {
+				if ((expectedRow[x] & 0xffffff) != (actualRow[x] & 0xffffff)) {
+					count++;
+				}
+			}
+		}
+		return new PixelDiff((long) width * height, count);
+	}
+
+	/**
+	 * Returns the mean absolute difference of the color channels of two images.
+	 * This is used to check render modes which interpolate colors and rarely
+	 * reproduce a pixel exactly.
+	 * @param expected the reference image
+	 * @param actual the image to check
+	 * @return the mean difference of the red, green and blue channels, between 0 and 255
+	 */
+	public static double meanError(final BufferedImage expected, final BufferedImage actual) {
+		final int width = expected.getWidth();
+		final int height = expected.getHeight();
+		if (width != actual.getWidth() || height != actual.getHeight()) {
+			throw new IllegalArgumentException("images differ in size"); //$NON-NLS-1$
+		}
+		final int[] expectedRow = new int[width];
+		final int[] actualRow = new int[width];
+		long sum = 0;
+		for (int y = 0; y < height; y++) {
+			expected.getRGB(0, y, width, 1, expectedRow, 0, width);
+			actual.getRGB(0, y, width, 1, actualRow, 0, width);
+			for (int x = 0; x < width; x++) {
+				final int a = expectedRow[x];
+				final int b = actualRow[x];
+				sum += Math.abs(((a >> 16) & 0xff) - ((b >> 16) & 0xff))
+					+ Math.abs(((a >> 8) & 0xff) - ((b >> 8) & 0xff))
+					+ Math.abs((a & 0xff) - (b & 0xff));
+			}
+		}
+		return sum / (3d * width * height);
+	}
+
+	/**
+	 * Returns the number of compared pixels.
+	 * @return the number of compared pixels.
+	 */
+	public long getPixels() {
+		return pixels;
+	}
+
+	/**
+	 * Returns the number of differing pixels.
+	 * @return the number of differing pixels.
+	 */
+	public long getDiffering() {
+		return differing;
+	}
+
+	/**
+	 * Returns the share of differing pixels.
+	 * @return the share of differing pixels, between zero and one.
+	 */
+	public double getRatio() {
+		return pixels == 0 ? 0 : differing / (double) pixels;
+	}
+
+	/**
+	 * Tests if the share of differing pixels is within the tolerance.
+	 * @param tolerance the accepted share of differing pixels, between zero and one
+	 * @return {@code true} if at most the given share of pixels differs
+	 */
+	public boolean within(final double tolerance) {
+		return getRatio() <= tolerance;
+	}
+
+	/**
+	 * Returns a human-readable report of the comparison.
+	 * @return a human-readable report of the comparison.
+	 */
+	@Override
+	public String toString() {
+		return String.format("%d of %d pixels differ (%.4f%%)", Long.valueOf(differing), Long.valueOf(pixels), Double.valueOf(100 * getRatio())); //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,184 @@
+package de.engehausen.mb.math;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Writes rows of RGB values straight into the backing array of an image,
+ * avoiding the color model conversion and bounds check of {@link BufferedImage#setRGB(int, int, int)}.
+ * Images of other types than {@link BufferedImage#TYPE_3BYTE_BGR} and {@link BufferedImage#TYPE_INT_RGB}
+ * are written through {@link BufferedImage#setRGB(int, int, int, int, int[], int, int)}.
+ * Writers for plain arrays store the values, e.g. iteration counts, unchanged.
+ */
+abstract class PixelWriter {
+
+	/**
+	 * Creates a writer for the given image.
+	 * @param image the image to write to
+	 * @return a writer for the image
+	 */
+	static PixelWriter create(final BufferedImage image) {
+		final WritableRaster raster = image.getRaster();
+		final SampleModel model = raster.getSampleModel();
+		final DataBuffer buffer = raster.getDataBuffer();
+		final int x = -raster.getSampleModelTranslateX();
+		final int y = -raster.getSampleModelTranslateY();
+		if (image.getType() == BufferedImage.TYPE_3BYTE_BGR && buffer instanceof DataBufferByte) {
+			final ComponentSampleModel components = (ComponentSampleModel) model;
+			final int[] bands = components.getBandOffsets();
+			return new ByteWriter(
+				((DataBufferByte) buffer).getData(),
+				buffer.getOffset() + y * components.getScanlineStride() + x * components.getPixelStride(),
+				components.getScanlineStride(),
+				components.getPixelStride(),
+				bands[0],
+				bands[1],
+				bands[2]
+			);
+		} else if (image.getType() == BufferedImage.TYPE_INT_RGB && buffer instanceof DataBufferInt) {
+			final SinglePixelPackedSampleModel packed = (SinglePixelPackedSampleModel) model;
+			return new IntWriter(
+				((DataBufferInt) buffer).getData(),
+				buffer.getOffset() + packed.getOffset(x, y),
+				packed.getScanlineStride()
+			);
+		}
+		return new ImageWriter(image);
+	}
+
+	/**
+	 * Creates a writer for the given array, which holds the pixels row by row.
+	 * @param data the array to write to
+	 * @param width the width of a row
+	 * @return a writer for the array
+	 */
+	static PixelWriter create(final int[] data, final int width) {
+		return new IntWriter(data, 0, width);
+	}
+
+	/**
+	 * Creates a writer which writes every row twice, mirrored at a horizontal axis.
+	 * Row {@code r} of the writer is row {@code first + r} of the target; it is
+	 * also written to the row mirrored at the axis, if that row is a different
+	 * one. Rows outside of the target are not written.
+	 * @param target the writer to write to
+	 * @param first the target row of the first row, may be negative
+	 * @param axis twice the target row of the axis, which may lie between two rows
+	 * @param height the number of rows of the target
+	 * @return the mirroring writer
+	 */
+	static PixelWriter mirror(final PixelWriter target, final int first, final int axis, final int height) {
+		return new MirrorWriter(target, first, axis, height);
+	}
+
+	/**
+	 * Writes a row of pixels.
+	 * @param x the horizontal start position
+	 * @param y the row
+	 * @param length the number of pixels to write
+	 * @param rgbs the RGB values, starting at index zero
+	 */
+	abstract void write(int x, int y, int length, int[] rgbs);
+
+	private static class ByteWriter extends PixelWriter {
+
+		private final byte[] data;
+		private final int offset;
+		private final int scanline;
+		private final int stride;
+		private final int red;
+		private final int green;
+		private final int blue;
+
+		protected ByteWriter(final byte[] data, final int offset, final int scanline, final int stride, final int red, final int green, final int blue) {
+			this.data = data;
+			this.offset = offset;
+			this.scanline = scanline;
+			this.stride = stride;
+			this.red = red;
+			this.green = green;
+			this.blue = blue;
+		}
+
+		@Override
+		void write(final int x, final int y, final int length, final int[] rgbs) {
+			int pos = offset + y * scanline + x * stride;
+			for (int i = 0; i < length; i++, pos += stride) {
+				final int rgb = rgbs[i];
+				data[pos + red] = (byte) (rgb >> 16);
+				data[pos + green] = (byte) (rgb >> 8);
+				data[pos + blue] = (byte) rgb;
+			}
+		}
+
+	}
+
+	private static class IntWriter extends PixelWriter {
+
+		private final int[] data;
+		private final int offset;
+		private final int scanline;
+
+		protected IntWriter(final int[] data, final int offset, final int scanline) {
+			this.data = data;
+			this.offset = offset;
+			this.scanline = scanline;
+		}
+
+		@Override
+		void write(final int x, final int y, final int length, final int[] rgbs) {
+			System.arraycopy(rgbs, 0, data, offset + y * scanline + x, length);
+		}
+
+	}
+
+	private static class MirrorWriter extends PixelWriter {
+
+		private final PixelWriter target;
+		private final int first;
+		private final int axis;
+		private final int height;
+
+		protected MirrorWriter(final PixelWriter target, final int first, final int axis, final int height) {
+			this.target = target;
+			this.first = first;
+			this.axis = axis;
+			this.height = height;
+		}
+
+		@Override
+		void write(final int x, final int y, final int length, final int[] rgbs) {
+			final int row = first + y;
+			final int mirrored = axis - row;
+			if (row >= 0 && row < height) {
+				target.write(x, row, length, rgbs);
+			}
+			if (mirrored != row && mirrored >= 0 && mirrored < height) {
+				target.write(x, mirrored, length, rgbs);
+			}
+		}
+
+	}
+
+	private static class ImageWriter extends PixelWriter {
+
+		private final BufferedImage image;
+
+		protected ImageWriter(final BufferedImage image) {
+			this.image = image;
+		}
+
+		@Override
+		void write(final int x, final int y, final int length, final int[] rgbs) {
+			image.setRGB(x, y, length, 1, rgbs, 0, length);
+		}
+
+	}
+
+}
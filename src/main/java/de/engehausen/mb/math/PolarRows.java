@@ -0,0 +1,85 @@
+package de.engehausen.mb.math;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Rows of an {@link ExponentialMap} iterated in {@code double} or double-double
+ * arithmetic. Ranges of more than one row are split in halves, which idle
+ * workers of the pool can steal.
+ */
+class PolarRows extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private final ExponentialMap map;
+	private final int[] counts;
+	private final int base;
+	private final int doubleDouble;
+	private final int from;
+	private final int to;
+	private final double tolerance;
+	private final RenderStatistics statistics;
+
+	/**
+	 * Creates the rows.
+	 * @param map the map the rows belong to
+	 * @param counts the iteration counts to fill, starting with the base row
+	 * @param base the row stored first in the counts
+	 * @param doubleDouble the first row needing double-double arithmetic
+	 * @param from the first row to compute
+	 * @param to the last row to compute (exclusive)
+	 * @param tolerance the tolerance for the cycle detection, relative to the spacing of a row
+	 * @param statistics the statistics to update
+	 */
+	PolarRows(final ExponentialMap map, final int[] counts, final int base, final int doubleDouble, final int from, final int to, final double tolerance, final RenderStatistics statistics) {
+		this.map = map;
+		this.counts = counts;
+		this.base = base;
+		this.doubleDouble = doubleDouble;
+		this.from = from;
+		this.to = to;
+		this.tolerance = tolerance;
+		this.statistics = statistics;
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from > 1) {
+			final int middle = (from + to) / 2;
+			invokeAll(
+				new PolarRows(map, counts, base, doubleDouble, from, middle, tolerance, statistics),
+				new PolarRows(map, counts, base, doubleDouble, middle, to, tolerance, statistics)
+			);
+		} else if (to > from) {
+			final int angles = map.getAngles();
+			final int max = map.getMax();
+			final double epsilon = tolerance * map.spacing(from);
+			final int offset = (from - base) * angles;
+			if (from < doubleDouble) {
+				final Number center = map.getCenter().toNumber();
+				int interior = 0;
+				for (int i = 0; i < angles; i++) {
+					final double cr = center.getReal() + map.real(from, i);
+					final double ci = center.getImaginary() + map.imaginary(from, i);
+					if (EscapeTimeKernel.isInterior(cr, ci)) {
+						interior++;
+						counts[offset + i] = max + 1;
+					} else {
+						counts[offset + i] = EscapeTimeKernel.iterate(cr, ci, max, epsilon);
+					}
+				}
+				statistics.addInteriorPixels(interior);
+			} else {
+				final DoubleDouble real = DoubleDouble.valueOf(map.getCenter().getReal());
+				final DoubleDouble imaginary = DoubleDouble.valueOf(map.getCenter().getImaginary());
+				for (int i = 0; i < angles; i++) {
+					final DoubleDouble cr = DoubleDouble.valueOf(real, map.real(from, i), 1);
+					final DoubleDouble ci = DoubleDouble.valueOf(imaginary, map.imaginary(from, i), 1);
+					counts[offset + i] = EscapeTimeKernel.iterate(cr.hi, cr.lo, ci.hi, ci.lo, max, epsilon);
+				}
+			}
+			statistics.addPixels(angles);
+		}
+	}
+
+}
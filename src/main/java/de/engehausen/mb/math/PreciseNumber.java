@@ -0,0 +1,92 @@
+package de.engehausen.mb.math;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Complex number, based on {@code BigDecimal} data type. Unlike {@link Number}
+ * the instances are immutable, all operations return a new number.
+ */
+public class PreciseNumber {
+
+	private final BigDecimal a;
+	private final BigDecimal b;
+
+	/**
+	 * Creates the number with the given components.
+	 * @param r the real component.
+	 * @param i the imaginary component.
+	 */
+	public PreciseNumber(final BigDecimal r, final BigDecimal i) {
+		a = r;
+		b = i;
+	}
+
+	/**
+	 * Creates the number with the exact value of the given number.
+	 * @param number the number whose components to copy.
+	 */
+	public PreciseNumber(final Number number) {
+		this(new BigDecimal(number.getReal()), new BigDecimal(number.getImaginary()));
+	}
+
+	/**
+	 * Returns the real component of the number.
+	 * @return the real component of the number.
+	 */
+	public BigDecimal getReal() {
+		return a;
+	}
+
+	/**
+	 * Returns the imaginary component of the number.
+	 * @return the imaginary component of the number.
+	 */
+	public BigDecimal getImaginary() {
+		return b;
+	}
+
+	/**
+	 * Returns the sum of this number and the given components.
+	 * @param r the real component to add
+	 * @param i the imaginary component to add
+	 * @param context the precision of the result
+	 * @return the sum
+	 */
+	public PreciseNumber add(final double r, final double i, final MathContext context) {
+		return new PreciseNumber(a.add(new BigDecimal(r), context), b.add(new BigDecimal(i), context));
+	}
+
+	/**
+	 * Returns the point between this number and the given number.
+	 * @param number the other end of the line
+	 * @param t the position on the line, zero for this number and one for the other number
+	 * @param context the precision of the result
+	 * @return the interpolated number
+	 */
+	public PreciseNumber interpolate(final PreciseNumber number, final double t, final MathContext context) {
+		final BigDecimal factor = new BigDecimal(t);
+		return new PreciseNumber(
+			a.add(number.a.subtract(a).multiply(factor), context),
+			b.add(number.b.subtract(b).multiply(factor), context)
+		);
+	}
+
+	/**
+	 * Returns the number rounded to {@code double} components.
+	 * @return the number rounded to {@code double} components.
+	 */
+	public Number toNumber() {
+		return new Number(a.doubleValue(), b.doubleValue());
+	}
+
+	/**
+	 * Returns a human-readable representation of the number.
+	 * @return a human-readable representation of the number.
+	 */
+	@Override
+	public String toString() {
+		return a + "," + b; //$NON-NLS-1$
+	}
+
+}
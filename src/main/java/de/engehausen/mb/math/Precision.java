@@ -0,0 +1,64 @@
+package de.engehausen.mb.math;
+
+/**
+ * The arithmetic used by {@link MandelbrotSet} to compute an image. It is
+ * chosen per image from the pixel spacing relative to the coordinates,
+ * using the cheapest arithmetic that still separates neighbouring pixels.
+ */
+public enum Precision {
+
+	/**
+	 * single precision {@code float} arithmetic, only selected if enabled;
+	 * a few pixels along the boundary of the set get a different iteration count
+	 */
+	FLOAT(1e-4),
+	/** plain {@code double} arithmetic */
+	DOUBLE(1e-12),
+	/** double-double arithmetic with about 106 bits of mantissa */
+	DOUBLE_DOUBLE(1e-28),
+	/** perturbation against a reference orbit of arbitrary precision */
+	ARBITRARY(0);
+
+	private final double limit;
+
+	private Precision(final double limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * Returns the smallest pixel spacing, relative to the magnitude of the
+	 * coordinates, which can be rendered using this precision.
+	 * @return the smallest relative pixel spacing for this precision
+	 */
+	public double getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Selects the precision for an image, never {@link #FLOAT}.
+	 * @param topLeft the top left corner of the image
+	 * @param steps the pixel spacing of the image
+	 * @return the cheapest precision able to render the image
+	 */
+	public static Precision select(final Number topLeft, final double steps) {
+		return select(topLeft, steps, false);
+	}
+
+	/**
+	 * Selects the precision for an image.
+	 * @param topLeft the top left corner of the image
+	 * @param steps the pixel spacing of the image
+	 * @param single {@code true} if {@link #FLOAT} may be selected
+	 * @return the cheapest precision able to render the image
+	 */
+	public static Precision select(final Number topLeft, final double steps, final boolean single) {
+		final double magnitude = Math.max(Math.abs(topLeft.getReal()), Math.abs(topLeft.getImaginary()));
+		for (final Precision precision : values()) {
+			if ((single || precision != FLOAT) && steps >= precision.limit * magnitude) {
+				return precision;
+			}
+		}
+		return ARBITRARY;
+	}
+
+}
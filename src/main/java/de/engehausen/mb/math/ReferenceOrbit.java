@@ -0,0 +1,60 @@
+package de.engehausen.mb.math;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * The orbit of a reference point, computed with arbitrary precision
+ * and stored as {@code double} values for perturbation.
+ */
+class ReferenceOrbit {
+
+	private static final BigDecimal FOUR = BigDecimal.valueOf(4);
+
+	protected final BigDecimal cr;
+	protected final BigDecimal ci;
+	protected final double[] real;
+	protected final double[] imaginary;
+	protected final int length;
+
+	/**
+	 * Computes the orbit of the given point until it escapes or the maximum
+	 * number of iterations is reached.
+	 * @param cr the real component of the reference point
+	 * @param ci the imaginary component of the reference point
+	 * @param max the maximum number of iterations
+	 * @param context the precision of the computation
+	 */
+	ReferenceOrbit(final BigDecimal cr, final BigDecimal ci, final int max, final MathContext context) {
+		this.cr = cr;
+		this.ci = ci;
+		real = new double[max + 1];
+		imaginary = new double[max + 1];
+		BigDecimal x = BigDecimal.ZERO;
+		BigDecimal y = BigDecimal.ZERO;
+		int n = 0;
+		while (n < max) {
+			final BigDecimal x2 = x.multiply(x, context);
+			final BigDecimal y2 = y.multiply(y, context);
+			if (x2.add(y2, context).compareTo(FOUR) >= 0) {
+				break;
+			}
+			y = x.multiply(y, context).multiply(BigDecimal.valueOf(2)).add(ci, context);
+			x = x2.subtract(y2, context).add(cr, context);
+			n++;
+			real[n] = x.doubleValue();
+			imaginary[n] = y.doubleValue();
+		}
+		length = n + 1;
+	}
+
+	/**
+	 * Returns the precision needed for a reference orbit with the given pixel spacing.
+	 * @param steps the pixel spacing
+	 * @return the precision to compute the orbit with
+	 */
+	static MathContext precision(final double steps) {
+		return new MathContext(20 + (int) Math.ceil(-Math.log10(steps)));
+	}
+
+}
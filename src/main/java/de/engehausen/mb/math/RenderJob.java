@@ -0,0 +1,64 @@
+package de.engehausen.mb.math;
+
+/**
+ * The state shared by all areas of one image.
+ */
+class RenderJob {
+
+	protected final PixelWriter writer;
+	protected final RenderStatistics statistics;
+	protected final double[] xs;
+	protected final double[] ys;
+	protected final double[] xsLow;
+	protected final double[] ysLow;
+	protected final int[] known;
+	protected final Formula formula;
+	protected final Precision precision;
+	protected final boolean verify;
+	protected final double epsilon;
+	protected final int max;
+	protected final boolean lockstep;
+	protected final SmoothPalette smooth;
+	protected final PixelWriter fractions;
+	protected final int[] palette;
+
+	/**
+	 * Creates the job.
+	 * @param writer the writer for the result image
+	 * @param statistics the statistics to update
+	 * @param xs the real components of the pixel columns
+	 * @param ys the imaginary components of the pixel rows
+	 * @param xsLow the trailing parts of double-double real components, {@code null} for plain {@code double}
+	 * @param ysLow the trailing parts of double-double imaginary components, {@code null} for plain {@code double}
+	 * @param known the iteration counts already known, {@link Reprojection#UNKNOWN} for pixels to compute; {@code null} if none are known
+	 * @param formula the formula to iterate, formulas other than {@link Formula#MANDELBROT} are only iterated in {@code double} precision
+	 * @param precision the arithmetic to iterate with, {@link Precision#FLOAT} converts the coordinates to {@code float}
+	 * @param verify {@code true} to compare the iteration counts in {@link Precision#FLOAT} with {@code double} precision
+	 * @param epsilon the absolute tolerance for the cycle detection
+	 * @param max the maximum number of iterations
+	 * @param lockstep {@code true} to iterate the {@code double} pixels of a tile with the {@link LockstepKernel}
+	 * @param smooth the colors of normalized iteration counts, {@code null} to color by iteration count
+	 * @param fractions the writer for the fractional parts of the normalized iteration counts as {@code float}
+	 * bits, the writer then gets their integer parts; {@code null} to write colors or integer iteration counts
+	 * @param palette the colors, indexed by iteration count
+	 */
+	RenderJob(final PixelWriter writer, final RenderStatistics statistics, final double[] xs, final double[] ys, final double[] xsLow, final double[] ysLow, final int[] known, final Formula formula, final Precision precision, final boolean verify, final double epsilon, final int max, final boolean lockstep, final SmoothPalette smooth, final PixelWriter fractions, final int... palette) {
+		this.writer = writer;
+		this.statistics = statistics;
+		this.xs = xs;
+		this.ys = ys;
+		this.xsLow = xsLow;
+		this.ysLow = ysLow;
+		this.known = known;
+		this.formula = formula;
+		this.precision = precision;
+		this.verify = verify;
+		this.epsilon = epsilon;
+		this.max = max;
+		this.lockstep = lockstep;
+		this.smooth = smooth;
+		this.fractions = fractions;
+		this.palette = palette;
+	}
+
+}
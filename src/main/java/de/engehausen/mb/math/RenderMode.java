@@ -0,0 +1,16 @@
+package de.engehausen.mb.math;
+
+/**
+ * The ways {@link MandelbrotSet} can compute an image.
+ */
+public enum RenderMode {
+
+	/** every pixel is iterated */
+	BRUTE_FORCE,
+	/**
+	 * only the borders of rectangles are iterated, rectangles with
+	 * a uniform border are filled (Mariani-Silver algorithm)
+	 */
+	SUBDIVISION
+
+}
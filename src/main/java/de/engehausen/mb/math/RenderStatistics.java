@@ -0,0 +1,268 @@
+package de.engehausen.mb.math;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters collected while rendering one image. The counters
+ * are updated concurrently by the tiles of the image.
+ */
+public class RenderStatistics {
+
+	private final LongAdder pixels = new LongAdder();
+	private final LongAdder interiorPixels = new LongAdder();
+	private final LongAdder interiorTilePixels = new LongAdder();
+	private final LongAdder guessedPixels = new LongAdder();
+	private final LongAdder references = new LongAdder();
+	private final LongAdder glitchedPixels = new LongAdder();
+	private final LongAdder skippedIterations = new LongAdder();
+	private final LongAdder reusedPixels = new LongAdder();
+	private final LongAdder mirroredPixels = new LongAdder();
+	private final LongAdder verifiedPixels = new LongAdder();
+	private final LongAdder mismatchedPixels = new LongAdder();
+	private final LongAdder supersampledPixels = new LongAdder();
+	private final LongAdder extraSamples = new LongAdder();
+	private final LongAdder elapsedTime = new LongAdder();
+	private final ConcurrentMap<Long, LongAdder> busyTimes = new ConcurrentHashMap<>();
+	private volatile int parallelism = 1;
+	private volatile Precision precision = Precision.DOUBLE;
+
+	/**
+	 * Returns the number of pixels of the image.
+	 * @return the number of pixels of the image.
+	 */
+	public long getPixels() {
+		return pixels.sum();
+	}
+
+	/**
+	 * Returns the number of pixels which were identified as part of the main cardioid
+	 * or the period-2 bulb, and therefore did not need any iteration.
+	 * This includes the pixels of {@link #getInteriorTilePixels()}.
+	 * @return the number of pixels which did not need any iteration.
+	 */
+	public long getSkippedPixels() {
+		return interiorPixels.sum() + interiorTilePixels.sum();
+	}
+
+	/**
+	 * Returns the number of pixels which were filled because their whole tile
+	 * lies inside the main cardioid or the period-2 bulb.
+	 * @return the number of pixels filled as part of an interior tile.
+	 */
+	public long getInteriorTilePixels() {
+		return interiorTilePixels.sum();
+	}
+
+	/**
+	 * Returns the number of pixels which were filled because the border
+	 * of their rectangle has a single iteration count (see {@link RenderMode#SUBDIVISION}).
+	 * @return the number of pixels filled from the border of their rectangle.
+	 */
+	public long getGuessedPixels() {
+		return guessedPixels.sum();
+	}
+
+	/**
+	 * Returns the number of reference orbits computed for a deep zoom image.
+	 * @return the number of reference orbits, zero if no perturbation was used.
+	 */
+	public long getReferences() {
+		return references.sum();
+	}
+
+	/**
+	 * Returns the number of pixels which had to be iterated again against
+	 * another reference orbit, summed up over all reference orbits.
+	 * @return the number of pixels iterated again because of glitches.
+	 */
+	public long getGlitchedPixels() {
+		return glitchedPixels.sum();
+	}
+
+	/**
+	 * Returns the number of iterations skipped by the series approximation
+	 * of a deep zoom image, summed up over all pixels.
+	 * @return the number of iterations skipped by the series approximation.
+	 */
+	public long getSkippedIterations() {
+		return skippedIterations.sum();
+	}
+
+	/**
+	 * Returns the arithmetic the image was rendered with.
+	 * @return the arithmetic the image was rendered with.
+	 */
+	public Precision getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Returns the number of pixels whose iteration count was taken from
+	 * the field of a previous image instead of being computed.
+	 * @return the number of reused pixels.
+	 */
+	public long getReusedPixels() {
+		return reusedPixels.sum();
+	}
+
+	/**
+	 * Returns the number of pixels which were copied from the pixel mirrored
+	 * at the real axis instead of being computed.
+	 * @return the number of mirrored pixels.
+	 */
+	public long getMirroredPixels() {
+		return mirroredPixels.sum();
+	}
+
+	/**
+	 * Returns the number of pixels computed in {@link Precision#FLOAT} which
+	 * were computed a second time in {@code double} precision for verification.
+	 * @return the number of verified pixels, zero if the verification is disabled.
+	 */
+	public long getVerifiedPixels() {
+		return verifiedPixels.sum();
+	}
+
+	/**
+	 * Returns the number of verified pixels whose iteration count in
+	 * {@link Precision#FLOAT} differs from the one in {@code double} precision.
+	 * @return the number of pixels differing from {@code double} precision.
+	 */
+	public long getMismatchedPixels() {
+		return mismatchedPixels.sum();
+	}
+
+	/**
+	 * Returns the number of pixels at edges which were anti-aliased by sampling
+	 * them several times, see {@link MandelbrotSet#setSupersampling(int)}.
+	 * @return the number of supersampled pixels.
+	 */
+	public long getSupersampledPixels() {
+		return supersampledPixels.sum();
+	}
+
+	/**
+	 * Returns the number of samples computed in addition to one per pixel
+	 * to anti-alias the edges of the image.
+	 * @return the number of extra samples.
+	 */
+	public long getExtraSamples() {
+		return extraSamples.sum();
+	}
+
+	/**
+	 * Returns the wall clock time spent computing the image, in nanoseconds.
+	 * @return the time spent computing the image.
+	 */
+	public long getElapsedTime() {
+		return elapsedTime.sum();
+	}
+
+	/**
+	 * Returns the time each thread spent computing tiles of the image, in
+	 * nanoseconds. Only the tiles of {@link RenderMode#BRUTE_FORCE} renders
+	 * with {@code double} or double-double precision are measured.
+	 * @return the busy time of each thread which took part, longest first
+	 */
+	public long[] getBusyTimes() {
+		return busyTimes.values().stream().map(LongAdder::sum).sorted(Comparator.reverseOrder()).mapToLong(Long::longValue).toArray();
+	}
+
+	/**
+	 * Returns the share of the available thread time which was spent computing tiles,
+	 * see {@link #getBusyTimes()}. A value well below one means threads were idle,
+	 * for example waiting for the last tile of the image. If several images are
+	 * computed concurrently, they share the threads and each shows a lower value.
+	 * @return the utilization of the threads, between zero and one
+	 */
+	public double getUtilization() {
+		final long elapsed = getElapsedTime();
+		if (elapsed <= 0) {
+			return 0;
+		}
+		final long busy = Arrays.stream(getBusyTimes()).sum();
+		return Math.min(1, busy / ((double) elapsed * parallelism));
+	}
+
+	void setPrecision(final Precision precision) {
+		this.precision = precision;
+	}
+
+	void addPixels(final long count) {
+		pixels.add(count);
+	}
+
+	void addInteriorPixels(final long count) {
+		interiorPixels.add(count);
+	}
+
+	void addInteriorTilePixels(final long count) {
+		interiorTilePixels.add(count);
+	}
+
+	void addGuessedPixels(final long count) {
+		guessedPixels.add(count);
+	}
+
+	void addReference() {
+		references.increment();
+	}
+
+	void addGlitchedPixels(final long count) {
+		glitchedPixels.add(count);
+	}
+
+	void addSkippedIterations(final long count) {
+		skippedIterations.add(count);
+	}
+
+	void addReusedPixels(final long count) {
+		reusedPixels.add(count);
+	}
+
+	void addMirroredPixels(final long count) {
+		mirroredPixels.add(count);
+	}
+
+	void addVerifiedPixels(final long count) {
+		verifiedPixels.add(count);
+	}
+
+	void addMismatchedPixels(final long count) {
+		mismatchedPixels.add(count);
+	}
+
+	void addSupersampledPixels(final long count) {
+		supersampledPixels.add(count);
+	}
+
+	void addExtraSamples(final long count) {
+		extraSamples.add(count);
+	}
+
+	void addElapsedTime(final long nanos, final int threads) {
+		elapsedTime.add(nanos);
+		parallelism = threads;
+	}
+
+	void addBusyTime(final long nanos) {
+		busyTimes.computeIfAbsent(Long.valueOf(Thread.currentThread().getId()), key -> new LongAdder()).add(nanos);
+	}
+
+	/**
+	 * Returns a human-readable representation of the statistics.
+	 * @return a human-readable representation of the statistics.
+	 */
+	@Override
+	public String toString() {
+		return "precision=" + getPrecision() + ",pixels=" + getPixels() + ",skipped=" + getSkippedPixels() + ",tileSkipped=" + getInteriorTilePixels() + ",guessed=" + getGuessedPixels() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			+ ",references=" + getReferences() + ",glitched=" + getGlitchedPixels() + ",skippedIterations=" + getSkippedIterations() + ",reused=" + getReusedPixels() + ",mirrored=" + getMirroredPixels() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			+ ",verified=" + getVerifiedPixels() + ",mismatched=" + getMismatchedPixels() + ",supersampled=" + getSupersampledPixels() + ",extraSamples=" + getExtraSamples() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			+ ",utilization=" + getUtilization(); //$NON-NLS-1$
+	}
+
+}
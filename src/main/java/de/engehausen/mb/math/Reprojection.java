@@ -0,0 +1,141 @@
+package de.engehausen.mb.math;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Takes the iteration counts of the pixels of a new image from the field of
+ * a previous image of an overlapping area, typically the previous frame of a
+ * movie. A pixel takes the count of the nearest previous pixel only if that
+ * pixel and its eight neighbours have the same count, so the new pixel lies
+ * inside a uniform region. Pixels outside of the previous field, on its border
+ * or close to a change of the count stay unknown and need to be computed.
+ * Larger row ranges are split in halves.
+ */
+class Reprojection extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	/** marker for a pixel which needs to be computed */
+	static final int UNKNOWN = -1;
+
+	private static final int ROWS = 16;
+
+	private final IterationField previous;
+	private final int[] result;
+	private final int width;
+	private final double left;
+	private final double top;
+	private final double ratio;
+	private final int from;
+	private final int to;
+
+	/**
+	 * Creates the task.
+	 * @param previous the previous field
+	 * @param result the counts of the new image, row by row
+	 * @param width the width of the new image
+	 * @param left the column of the first new pixel in the previous field
+	 * @param top the row of the first new pixel in the previous field
+	 * @param ratio the pixel spacing of the new image in pixels of the previous field
+	 * @param from the first row
+	 * @param to the last row (exclusive)
+	 */
+	private Reprojection(final IterationField previous, final int[] result, final int width, final double left, final double top, final double ratio, final int from, final int to) {
+		this.previous = previous;
+		this.result = result;
+		this.width = width;
+		this.left = left;
+		this.top = top;
+		this.ratio = ratio;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Creates the task covering a whole image.
+	 * @param previous the previous field
+	 * @param topLeft the top left corner of the new image
+	 * @param steps the pixel spacing of the new image
+	 * @param width the width of the new image
+	 * @param height the height of the new image
+	 * @return the task, its result is available from {@link #getResult()} once it is done
+	 */
+	static Reprojection create(final IterationField previous, final PreciseNumber topLeft, final double steps, final int width, final int height) {
+		final double spacing = previous.getSpacing();
+		return new Reprojection(
+			previous,
+			new int[width * height],
+			width,
+			topLeft.getReal().subtract(previous.getTopLeft().getReal()).doubleValue() / spacing,
+			topLeft.getImaginary().subtract(previous.getTopLeft().getImaginary()).doubleValue() / spacing,
+			steps / spacing,
+			0,
+			height
+		);
+	}
+
+	/**
+	 * Returns the iteration counts of the new image, {@link #UNKNOWN} for pixels
+	 * which need to be computed.
+	 * @return the iteration counts of the new image, row by row
+	 */
+	int[] getResult() {
+		return result;
+	}
+
+	/**
+	 * Returns the count of the previous pixel nearest to the given new pixel,
+	 * regardless of its neighbours.
+	 * @param x the column of the new pixel
+	 * @param y the row of the new pixel
+	 * @return the count of the nearest previous pixel, {@link #UNKNOWN} if it lies outside of the previous field
+	 */
+	int nearest(final int x, final int y) {
+		final long u = Math.round(left + x * ratio);
+		final long v = Math.round(top + y * ratio);
+		return u < 0 || v < 0 || u >= previous.getWidth() || v >= previous.getHeight()
+			? UNKNOWN
+			: previous.getCounts()[(int) v * previous.getWidth() + (int) u];
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from > ROWS) {
+			final int middle = (from + to) / 2;
+			invokeAll(
+				new Reprojection(previous, result, width, left, top, ratio, from, middle),
+				new Reprojection(previous, result, width, left, top, ratio, middle, to)
+			);
+		} else {
+			final int[] counts = previous.getCounts();
+			final int previousWidth = previous.getWidth();
+			final int previousHeight = previous.getHeight();
+			for (int y = from; y < to; y++) {
+				final int row = y * width;
+				final long v = Math.round(top + y * ratio);
+				if (v < 1 || v >= previousHeight - 1) {
+					Arrays.fill(result, row, row + width, UNKNOWN);
+					continue;
+				}
+				for (int x = 0; x < width; x++) {
+					final long u = Math.round(left + x * ratio);
+					result[row + x] = u < 1 || u >= previousWidth - 1
+						? UNKNOWN
+						: uniform(counts, previousWidth, (int) v * previousWidth + (int) u);
+				}
+			}
+		}
+	}
+
+	private static int uniform(final int[] counts, final int width, final int index) {
+		final int count = counts[index];
+		for (int row = index - width; row <= index + width; row += width) {
+			if (counts[row - 1] != count || counts[row] != count || counts[row + 1] != count) {
+				return UNKNOWN;
+			}
+		}
+		return count;
+	}
+
+}
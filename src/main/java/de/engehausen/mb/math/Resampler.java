@@ -0,0 +1,161 @@
+package de.engehausen.mb.math;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Resamples part of an image into another image with bilinear interpolation.
+ * If a target pixel covers more than one source pixel, several interpolated
+ * samples across its footprint are averaged, so shrinking does not alias.
+ * Resamplers are created by {@link MandelbrotSet#createResampler(BufferedImage)}
+ * and resample using the threads of the set.
+ */
+public final class Resampler {
+
+	private final ForkJoinPool pool;
+	private final int[] rgbs;
+	private final int width;
+	private final int height;
+
+	/**
+	 * Creates the resampler for the given source image.
+	 * @param pool the pool to resample with
+	 * @param source the image to read from
+	 */
+	Resampler(final ForkJoinPool pool, final BufferedImage source) {
+		this.pool = pool;
+		width = source.getWidth();
+		height = source.getHeight();
+		rgbs = source.getRGB(0, 0, width, height, null, 0, width);
+	}
+
+	/**
+	 * Resamples the source image into the target image. The target pixel (x, y)
+	 * is taken from the source position (left + x * step, top + y * step),
+	 * positions outside of the source are clamped to its border.
+	 * @param left the horizontal source position of the first target column
+	 * @param top the vertical source position of the first target row
+	 * @param step the distance in source pixels between two target pixels, must be positive
+	 * @param target the image to write to
+	 * @return the target image
+	 */
+	public BufferedImage resample(final double left, final double top, final double step, final BufferedImage target) {
+		if (!(step > 0)) {
+			throw new IllegalArgumentException("step must be positive"); //$NON-NLS-1$
+		}
+		pool.invoke(new Rows(rgbs, width, height, left, top, step, PixelWriter.create(target), target.getWidth(), 0, target.getHeight()));
+		return target;
+	}
+
+	private static class Rows extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private static final int ROWS = 16;
+
+		private final int[] source;
+		private final int sourceWidth;
+		private final int sourceHeight;
+		private final double left;
+		private final double top;
+		private final double step;
+		private final PixelWriter writer;
+		private final int width;
+		private final int from;
+		private final int to;
+
+		protected Rows(final int[] source, final int sourceWidth, final int sourceHeight, final double left, final double top, final double step, final PixelWriter writer, final int width, final int from, final int to) {
+			this.source = source;
+			this.sourceWidth = sourceWidth;
+			this.sourceHeight = sourceHeight;
+			this.left = left;
+			this.top = top;
+			this.step = step;
+			this.writer = writer;
+			this.width = width;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > ROWS) {
+				final int middle = (from + to) / 2;
+				invokeAll(
+					new Rows(source, sourceWidth, sourceHeight, left, top, step, writer, width, from, middle),
+					new Rows(source, sourceWidth, sourceHeight, left, top, step, writer, width, middle, to)
+				);
+			} else {
+				// samples per axis, spread evenly across the footprint of a target pixel
+				final int samples = (int) Math.ceil(step);
+				final double spacing = step / samples;
+				final double start = (spacing - step) / 2;
+				final int[] rgbs = new int[width];
+				for (int y = from; y < to; y++) {
+					for (int x = 0; x < width; x++) {
+						int red = 0;
+						int green = 0;
+						int blue = 0;
+						for (int sy = 0; sy < samples; sy++) {
+							final double v = top + y * step + start + sy * spacing;
+							for (int sx = 0; sx < samples; sx++) {
+								final int rgb = sample(left + x * step + start + sx * spacing, v);
+								red += (rgb >> 16) & 0xff;
+								green += (rgb >> 8) & 0xff;
+								blue += rgb & 0xff;
+							}
+						}
+						final int count = samples * samples;
+						rgbs[x] = (red + count / 2) / count << 16 | (green + count / 2) / count << 8 | (blue + count / 2) / count;
+					}
+					writer.write(0, y, width, rgbs);
+				}
+			}
+		}
+
+		private int sample(final double u, final double v) {
+			final double cu = Math.max(0, Math.min(sourceWidth - 1, u));
+			final double cv = Math.max(0, Math.min(sourceHeight - 1, v));
+			final int x0 = Math.min((int) cu, Math.max(0, sourceWidth - 2));
+			final int y0 = Math.min((int) cv, Math.max(0, sourceHeight - 2));
+			final int x1 = Math.min(x0 + 1, sourceWidth - 1);
+			final int y1 = Math.min(y0 + 1, sourceHeight - 1);
+			final double fx = cu - x0;
+			final double fy = cv - y0;
+			final int p00 = source[y0 * sourceWidth + x0];
+			final int p10 = source[y0 * sourceWidth + x1];
+			final int p01 = source[y1 * sourceWidth + x0];
+			final int p11 = source[y1 * sourceWidth + x1];
+			return blend(p00, p10, p01, p11, fx, fy);
+		}
+
+	}
+
+	/**
+	 * Interpolates bilinearly between four RGB colors.
+	 * @param p00 the color at the top left
+	 * @param p10 the color at the top right
+	 * @param p01 the color at the bottom left
+	 * @param p11 the color at the bottom right
+	 * @param fx the horizontal position, zero on the left and one on the right
+	 * @param fy the vertical position, zero on the top and one on the bottom
+	 * @return the interpolated color
+	 */
+	static int blend(final int p00, final int p10, final int p01, final int p11, final double fx, final double fy) {
+		return channel(p00, p10, p01, p11, fx, fy, 16) << 16
+			| channel(p00, p10, p01, p11, fx, fy, 8) << 8
+			| channel(p00, p10, p01, p11, fx, fy, 0);
+	}
+
+	private static int channel(final int p00, final int p10, final int p01, final int p11, final double fx, final double fy, final int shift) {
+		final double c00 = (p00 >> shift) & 0xff;
+		final double c10 = (p10 >> shift) & 0xff;
+		final double c01 = (p01 >> shift) & 0xff;
+		final double c11 = (p11 >> shift) & 0xff;
+		final double c0 = c00 + (c10 - c00) * fx;
+		final double c1 = c01 + (c11 - c01) * fx;
+		return (int) (c0 + (c1 - c0) * fy + 0.5);
+	}
+
+}
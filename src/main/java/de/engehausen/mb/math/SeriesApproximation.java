@@ -0,0 +1,150 @@
+package de.engehausen.mb.math;
+
+/**
+ * Approximates the first iterations of all pixels around a reference orbit
+ * by a truncated Taylor series in the pixel offset δc:
+ * δ<sub>n</sub> ≈ A<sub>n</sub>δc + B<sub>n</sub>δc² + C<sub>n</sub>δc³.
+ * The coefficients are advanced along the reference orbit as long as the
+ * third order term stays negligible for the largest offset in the image;
+ * the result is then checked against directly iterated probe points at the
+ * image border and shortened if it is not accurate enough.
+ */
+final class SeriesApproximation {
+
+	/** approximation which does not skip any iteration */
+	static final SeriesApproximation NONE = new SeriesApproximation(0, 0, 0, 0, 0, 0, 0);
+
+	private static final double TRUNCATION_TOLERANCE = 1e-3;
+	private static final double PROBE_TOLERANCE = 1e-6;
+
+	protected final int skip;
+	protected final double ar;
+	protected final double ai;
+	protected final double br;
+	protected final double bi;
+	protected final double cr;
+	protected final double ci;
+
+	private SeriesApproximation(final int skip, final double ar, final double ai, final double br, final double bi, final double cr, final double ci) {
+		this.skip = skip;
+		this.ar = ar;
+		this.ai = ai;
+		this.br = br;
+		this.bi = bi;
+		this.cr = cr;
+		this.ci = ci;
+	}
+
+	/**
+	 * Computes the series for the given reference orbit.
+	 * @param orbit the reference orbit
+	 * @param max the maximum number of iterations
+	 * @param probes the offsets of points to validate the series against, as pairs of real and imaginary component
+	 * @return the series approximation, never {@code null}
+	 */
+	static SeriesApproximation create(final ReferenceOrbit orbit, final int max, final double... probes) {
+		double radius = 0;
+		for (int i = 0; i < probes.length; i += 2) {
+			radius = Math.max(radius, Math.hypot(probes[i], probes[i + 1]));
+		}
+		final int limit = Math.min(orbit.length - 2, max - 1);
+		final double[] coefficients = new double[6 * (Math.max(limit, 0) + 1)];
+		int n = 0;
+		while (n < limit) {
+			final int from = 6 * n;
+			final double zr = 2 * orbit.real[n];
+			final double zi = 2 * orbit.imaginary[n];
+			final double ar = coefficients[from];
+			final double ai = coefficients[from + 1];
+			final double br = coefficients[from + 2];
+			final double bi = coefficients[from + 3];
+			final double cr = coefficients[from + 4];
+			final double ci = coefficients[from + 5];
+			// A' = 2ZA + 1, B' = 2ZB + A², C' = 2ZC + 2AB
+			final double nar = zr * ar - zi * ai + 1;
+			final double nai = zr * ai + zi * ar;
+			final double nbr = zr * br - zi * bi + ar * ar - ai * ai;
+			final double nbi = zr * bi + zi * br + 2 * ar * ai;
+			final double ncr = zr * cr - zi * ci + 2 * (ar * br - ai * bi);
+			final double nci = zr * ci + zi * cr + 2 * (ar * bi + ai * br);
+			if (!Double.isFinite(ncr) || !Double.isFinite(nci)
+				|| Math.hypot(ncr, nci) * radius > TRUNCATION_TOLERANCE * Math.hypot(nbr, nbi)) {
+				break;
+			}
+			final int to = from + 6;
+			coefficients[to] = nar;
+			coefficients[to + 1] = nai;
+			coefficients[to + 2] = nbr;
+			coefficients[to + 3] = nbi;
+			coefficients[to + 4] = ncr;
+			coefficients[to + 5] = nci;
+			n++;
+		}
+		while (n > 0 && !valid(orbit, n, coefficients, probes)) {
+			n /= 2;
+		}
+		if (n == 0 || radius == 0) {
+			return NONE;
+		}
+		final int at = 6 * n;
+		return new SeriesApproximation(n, coefficients[at], coefficients[at + 1], coefficients[at + 2], coefficients[at + 3], coefficients[at + 4], coefficients[at + 5]);
+	}
+
+	private static boolean valid(final ReferenceOrbit orbit, final int n, final double[] coefficients, final double... probes) {
+		final int at = 6 * n;
+		final SeriesApproximation series = new SeriesApproximation(n, coefficients[at], coefficients[at + 1], coefficients[at + 2], coefficients[at + 3], coefficients[at + 4], coefficients[at + 5]);
+		for (int p = 0; p < probes.length; p += 2) {
+			final double dcr = probes[p];
+			final double dci = probes[p + 1];
+			double dr = 0;
+			double di = 0;
+			for (int i = 0; i < n; i++) {
+				final double zr = orbit.real[i];
+				final double zi = orbit.imaginary[i];
+				final double ndr = 2 * (zr * dr - zi * di) + dr * dr - di * di + dcr;
+				di = 2 * (zr * di + zi * dr) + 2 * dr * di + dci;
+				dr = ndr;
+				final double x = orbit.real[i + 1] + dr;
+				final double y = orbit.imaginary[i + 1] + di;
+				if (!(x * x + y * y < 4)) {
+					return false;
+				}
+			}
+			final double er = series.real(dcr, dci) - dr;
+			final double ei = series.imaginary(dcr, dci) - di;
+			if (Math.hypot(er, ei) > PROBE_TOLERANCE * Math.hypot(dr, di)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the real component of δ<sub>skip</sub> for the given offset.
+	 * @param dcr the real component of the pixel offset
+	 * @param dci the imaginary component of the pixel offset
+	 * @return the real component of the approximated orbit offset
+	 */
+	double real(final double dcr, final double dci) {
+		final double d2r = dcr * dcr - dci * dci;
+		final double d2i = 2 * dcr * dci;
+		final double d3r = d2r * dcr - d2i * dci;
+		final double d3i = d2r * dci + d2i * dcr;
+		return ar * dcr - ai * dci + br * d2r - bi * d2i + cr * d3r - ci * d3i;
+	}
+
+	/**
+	 * Returns the imaginary component of δ<sub>skip</sub> for the given offset.
+	 * @param dcr the real component of the pixel offset
+	 * @param dci the imaginary component of the pixel offset
+	 * @return the imaginary component of the approximated orbit offset
+	 */
+	double imaginary(final double dcr, final double dci) {
+		final double d2r = dcr * dcr - dci * dci;
+		final double d2i = 2 * dcr * dci;
+		final double d3r = d2r * dcr - d2i * dci;
+		final double d3i = d2r * dci + d2i * dcr;
+		return ar * dci + ai * dcr + br * d2i + bi * d2r + cr * d3i + ci * d3r;
+	}
+
+}
@@ -0,0 +1,35 @@
+package de.engehausen.mb.math;
+
+/**
+ * Maps normalized iteration counts (see {@link EscapeTimeKernel#smooth(double, double, int, double)})
+ * to colors through the lookup table of {@link Colorizer#lut(int...)}. A count
+ * {@code n} gets the color of the count {@code n} in the palette of
+ * {@link Colorizer}, fractions of counts get the colors in between.
+ */
+final class SmoothPalette {
+
+	private final int[] lut;
+	private final double scale;
+	private final int offset;
+
+	/**
+	 * Creates the palette.
+	 * @param offset the color offset for the input colors
+	 * @param colors the RGB colors
+	 */
+	SmoothPalette(final int offset, final int... colors) {
+		this.lut = Colorizer.lut(colors);
+		this.scale = (double) lut.length / colors.length;
+		this.offset = offset % colors.length;
+	}
+
+	/**
+	 * Returns the color of the given normalized iteration count.
+	 * @param count the normalized iteration count, not negative
+	 * @return the RGB color
+	 */
+	int get(final double count) {
+		return lut[(int) ((long) ((count + offset) * scale) % lut.length)];
+	}
+
+}
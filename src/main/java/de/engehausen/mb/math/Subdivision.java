@@ -0,0 +1,199 @@
+package de.engehausen.mb.math;
+
+/**
+ * A rectangular area of the image rendered with the Mariani-Silver algorithm:
+ * the border of the rectangle is known, if it has a single iteration count
+ * the whole rectangle is filled with it. Otherwise the rectangle is split
+ * in halves, the dividing line is computed and both halves are handled
+ * recursively as fork/join tasks. Neighbouring rectangles share their borders.
+ */
+class Subdivision extends Area {
+
+	private static final long serialVersionUID = 1L;
+
+	/** rectangles with a smaller edge length are computed pixel by pixel */
+	private static final int MIN_SIZE = 6;
+
+	private final int[] field;
+	private final int width;
+	private final int left;
+	private final int top;
+	private final int right;
+	private final int bottom;
+
+	/**
+	 * Creates the area; its border must already be computed.
+	 * @param job the job the area belongs to
+	 * @param field the iteration counts of the image, row by row
+	 * @param width the width of the image
+	 * @param left the first column
+	 * @param top the first row
+	 * @param right the last column (inclusive)
+	 * @param bottom the last row (inclusive)
+	 */
+	private Subdivision(final RenderJob job, final int[] field, final int width, final int left, final int top, final int right, final int bottom) {
+		super(job);
+		this.field = field;
+		this.width = width;
+		this.left = left;
+		this.top = top;
+		this.right = right;
+		this.bottom = bottom;
+	}
+
+	/**
+	 * Creates the area covering the whole image and computes its border.
+	 * @param job the job to render
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @return the area for the whole image
+	 */
+	static Subdivision create(final RenderJob job, final int width, final int height) {
+		final Subdivision result = new Subdivision(job, new int[width * height], width, 0, 0, width - 1, height - 1);
+		result.computeBorder();
+		return result;
+	}
+
+	@Override
+	protected void compute() {
+		final int innerWidth = right - left - 1;
+		final int innerHeight = bottom - top - 1;
+		if (innerWidth > 0 && innerHeight > 0) {
+			final int inner = innerWidth * innerHeight;
+			if (isInterior(left, top, right, bottom)) {
+				fill(job.max + 1);
+				job.statistics.addInteriorTilePixels(inner);
+			} else if (isUniform()) {
+				fill(field[top * width + left]);
+				job.statistics.addGuessedPixels(inner);
+			} else if (innerWidth < MIN_SIZE || innerHeight < MIN_SIZE) {
+				final int[] pxs = new int[inner];
+				final int[] pys = new int[inner];
+				int size = 0;
+				for (int py = top + 1; py < bottom; py++) {
+					for (int px = left + 1; px < right; px++) {
+						pxs[size] = px;
+						pys[size++] = py;
+					}
+				}
+				computePixels(pxs, pys, size);
+				flushStatistics();
+			} else {
+				split();
+				return;
+			}
+			job.statistics.addPixels(inner);
+		}
+		write();
+	}
+
+	private void split() {
+		if (right - left >= bottom - top) {
+			final int middle = (left + right) / 2;
+			final int size = bottom - top - 1;
+			final int[] pxs = new int[size];
+			final int[] pys = new int[size];
+			for (int i = 0; i < size; i++) {
+				pxs[i] = middle;
+				pys[i] = top + 1 + i;
+			}
+			computePixels(pxs, pys, size);
+			job.statistics.addPixels(size);
+			flushStatistics();
+			invokeAll(
+				new Subdivision(job, field, width, left, top, middle, bottom),
+				new Subdivision(job, field, width, middle, top, right, bottom)
+			);
+		} else {
+			final int middle = (top + bottom) / 2;
+			final int size = right - left - 1;
+			final int[] pxs = new int[size];
+			final int[] pys = new int[size];
+			for (int i = 0; i < size; i++) {
+				pxs[i] = left + 1 + i;
+				pys[i] = middle;
+			}
+			computePixels(pxs, pys, size);
+			job.statistics.addPixels(size);
+			flushStatistics();
+			invokeAll(
+				new Subdivision(job, field, width, left, top, right, middle),
+				new Subdivision(job, field, width, left, middle, right, bottom)
+			);
+		}
+	}
+
+	private void computeBorder() {
+		final int length = 2 * (right - left + 1) + 2 * (bottom - top + 1);
+		final int[] pxs = new int[length];
+		final int[] pys = new int[length];
+		int count = 0;
+		for (int px = left; px <= right; px++) {
+			pxs[count] = px;
+			pys[count++] = top;
+			if (bottom > top) {
+				pxs[count] = px;
+				pys[count++] = bottom;
+			}
+		}
+		for (int py = top + 1; py < bottom; py++) {
+			pxs[count] = left;
+			pys[count++] = py;
+			if (right > left) {
+				pxs[count] = right;
+				pys[count++] = py;
+			}
+		}
+		computePixels(pxs, pys, count);
+		job.statistics.addPixels(count);
+		flushStatistics();
+	}
+
+	private void computePixels(final int[] pxs, final int[] pys, final int size) {
+		final int[] counts = new int[size];
+		iterate(pxs, pys, size, counts);
+		for (int i = 0; i < size; i++) {
+			field[pys[i] * width + pxs[i]] = counts[i];
+		}
+	}
+
+	private boolean isUniform() {
+		final int value = field[top * width + left];
+		final int topRow = top * width;
+		final int bottomRow = bottom * width;
+		for (int px = left; px <= right; px++) {
+			if (field[topRow + px] != value || field[bottomRow + px] != value) {
+				return false;
+			}
+		}
+		for (int py = top + 1; py < bottom; py++) {
+			final int row = py * width;
+			if (field[row + left] != value || field[row + right] != value) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void fill(final int value) {
+		for (int py = top + 1; py < bottom; py++) {
+			final int row = py * width;
+			for (int px = left + 1; px < right; px++) {
+				field[row + px] = value;
+			}
+		}
+	}
+
+	private void write() {
+		final int[] palette = job.palette;
+		final int[] rgbs = new int[right - left + 1];
+		for (int py = top; py <= bottom; py++) {
+			final int row = py * width;
+			for (int px = left; px <= right; px++) {
+				rgbs[px - left] = palette[field[row + px]];
+			}
+			job.writer.write(left, py, rgbs.length, rgbs);
+		}
+	}
+
+}
@@ -0,0 +1,267 @@
+package de.engehausen.mb.math;
+
+import java.math.MathContext;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Writes rows of a field of iteration counts into an image and anti-aliases the
+ * edges. A pixel is an edge if its color differs from the color of one of its four
+ * neighbours by more than the threshold in any channel; edges are sampled on a
+ * regular grid within the pixel and get the average color of the samples, all
+ * other pixels keep their single sample. With an odd grid the center sample
+ * is the pixel itself and takes its count from the field.
+ * Larger row ranges are split in halves. Images rendered in arbitrary precision
+ * are anti-aliased by {@link #perturbed(PerturbationEngine, PreciseNumber, double, int, int, int[], int, int, int, PixelWriter, RenderStatistics, int...)}
+ * instead.
+ */
+class Supersampler extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int ROWS = 16;
+
+	private final RenderJob job;
+	private final int[] field;
+	private final int height;
+	private final double[] offsets;
+	private final int threshold;
+	private final int top;
+	private final int bottom;
+
+	/**
+	 * Creates the task.
+	 * @param job the job holding the writer for the image, the coordinates of all pixels and the palette
+	 * @param field the iteration counts, row by row
+	 * @param height the height of the image
+	 * @param steps the pixel spacing
+	 * @param grid the number of samples per axis of an edge pixel
+	 * @param threshold the largest difference of a color channel to a neighbour which is not an edge
+	 * @param top the first row
+	 * @param bottom the last row (exclusive)
+	 */
+	Supersampler(final RenderJob job, final int[] field, final int height, final double steps, final int grid, final int threshold, final int top, final int bottom) {
+		this(job, field, height, offsets(grid, steps), threshold, top, bottom);
+	}
+
+	private Supersampler(final RenderJob job, final int[] field, final int height, final double[] offsets, final int threshold, final int top, final int bottom) {
+		this.job = job;
+		this.field = field;
+		this.height = height;
+		this.offsets = offsets;
+		this.threshold = threshold;
+		this.top = top;
+		this.bottom = bottom;
+	}
+
+	@Override
+	protected void compute() {
+		if (bottom - top > ROWS) {
+			final int middle = (top + bottom) / 2;
+			invokeAll(
+				new Supersampler(job, field, height, offsets, threshold, top, middle),
+				new Supersampler(job, field, height, offsets, threshold, middle, bottom)
+			);
+		} else {
+			final int width = job.xs.length;
+			final int[] palette = job.palette;
+			final int[] rgbs = new int[width];
+			final int n = offsets.length * offsets.length;
+			final double[] real = new double[n];
+			final double[] imaginary = new double[n];
+			final int[] counts = new int[n];
+			final double[] low = new double[2 * offsets.length];
+			long edges = 0;
+			long samples = 0;
+			for (int py = top; py < bottom; py++) {
+				final int row = py * width;
+				for (int px = 0; px < width; px++) {
+					final int rgb = palette[field[row + px]];
+					if (isEdge(rgb, px, py)) {
+						edges++;
+						samples += offsets.length * offsets.length - (offsets.length & 1);
+						rgbs[px] = sample(px, py, field[row + px], real, imaginary, low, counts);
+					} else {
+						rgbs[px] = rgb;
+					}
+				}
+				job.writer.write(0, py, width, rgbs);
+			}
+			job.statistics.addSupersampledPixels(edges);
+			job.statistics.addExtraSamples(samples);
+		}
+	}
+
+	private boolean isEdge(final int rgb, final int px, final int py) {
+		return isEdge(field, job.xs.length, height, job.palette, threshold, rgb, px, py);
+	}
+
+	private static boolean isEdge(final int[] field, final int width, final int height, final int[] palette, final int threshold, final int rgb, final int px, final int py) {
+		final int index = py * width + px;
+		return (px > 0 && differs(palette, threshold, rgb, field[index - 1]))
+			|| (px + 1 < width && differs(palette, threshold, rgb, field[index + 1]))
+			|| (py > 0 && differs(palette, threshold, rgb, field[index - width]))
+			|| (py + 1 < height && differs(palette, threshold, rgb, field[index + width]));
+	}
+
+	private static boolean differs(final int[] palette, final int threshold, final int rgb, final int count) {
+		final int other = palette[count];
+		return Math.abs(((rgb >> 16) & 0xff) - ((other >> 16) & 0xff)) > threshold
+			|| Math.abs(((rgb >> 8) & 0xff) - ((other >> 8) & 0xff)) > threshold
+			|| Math.abs((rgb & 0xff) - (other & 0xff)) > threshold;
+	}
+
+	private int sample(final int px, final int py, final int count, final double[] real, final double[] imaginary, final double[] low, final int[] counts) {
+		final int grid = offsets.length;
+		final int center = (grid & 1) == 1 ? grid / 2 : -1;
+		if (job.xsLow != null) {
+			// the double-double sample coordinates of the grid, x in real and the first half
+			// of low, y in imaginary and the second half
+			for (int i = 0; i < grid; i++) {
+				real[i] = offset(job.xs[px], job.xsLow[px], offsets[i], low, i);
+				imaginary[i] = offset(job.ys[py], job.ysLow[py], offsets[i], low, grid + i);
+			}
+		}
+		int size = 0;
+		for (int sy = 0; sy < grid; sy++) {
+			for (int sx = 0; sx < grid; sx++) {
+				if (sx != center || sy != center) {
+					if (job.xsLow != null) {
+						counts[size++] = EscapeTimeKernel.iterate(real[sx], low[sx], imaginary[sy], low[grid + sy], job.max, job.epsilon);
+					} else {
+						real[size] = job.xs[px] + offsets[sx];
+						imaginary[size++] = job.ys[py] + offsets[sy];
+					}
+				}
+			}
+		}
+		if (job.xsLow == null) {
+			// the samples of a pixel are iterated by the formula in one batch
+			job.formula.iterate(real, imaginary, size, job.max, job.epsilon, counts);
+		}
+		if (center >= 0) {
+			counts[size++] = count;
+		}
+		return average(job.palette, counts, size);
+	}
+
+	/**
+	 * Writes a field of iteration counts computed in arbitrary precision into an image
+	 * and anti-aliases the edges like the task does. The samples of all edges are
+	 * computed in one batch by perturbation, relative to the center of the image.
+	 * @param engine the engine to compute the samples with
+	 * @param topLeft the top left corner of the image
+	 * @param steps the pixel spacing
+	 * @param grid the number of samples per axis of an edge pixel
+	 * @param threshold the largest difference of a color channel to a neighbour which is not an edge
+	 * @param field the iteration counts, row by row
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param max the maximum number of iterations
+	 * @param writer the writer for the image
+	 * @param statistics the statistics to add the edges and extra samples to
+	 * @param palette the colors by iteration count
+	 */
+	static void perturbed(final PerturbationEngine engine, final PreciseNumber topLeft, final double steps, final int grid, final int threshold, final int[] field, final int width, final int height, final int max, final PixelWriter writer, final RenderStatistics statistics, final int... palette) {
+		final double[] offsets = offsets(grid, steps);
+		final int center = (grid & 1) == 1 ? grid / 2 : -1;
+		final int n = grid * grid - (grid & 1);
+		final boolean[] edges = new boolean[field.length];
+		int count = 0;
+		for (int py = 0; py < height; py++) {
+			for (int px = 0; px < width; px++) {
+				final int index = py * width + px;
+				if (isEdge(field, width, height, palette, threshold, palette[field[index]], px, py)) {
+					edges[index] = true;
+					count++;
+				}
+			}
+		}
+		final double[] real = new double[count * n];
+		final double[] imaginary = new double[real.length];
+		int k = 0;
+		for (int index = 0; index < field.length; index++) {
+			if (edges[index]) {
+				final double x = (index % width - width / 2) * steps;
+				final double y = (index / width - height / 2) * steps;
+				for (int sy = 0; sy < grid; sy++) {
+					for (int sx = 0; sx < grid; sx++) {
+						if (sx != center || sy != center) {
+							real[k] = x + offsets[sx];
+							imaginary[k++] = y + offsets[sy];
+						}
+					}
+				}
+			}
+		}
+		final int[] samples;
+		if (count > 0) {
+			final MathContext context = ReferenceOrbit.precision(steps / grid);
+			final PreciseNumber origin = topLeft.add(width / 2 * steps, height / 2 * steps, context);
+			// the samples are not pixels of the image, they are only counted as extra samples
+			samples = engine.render(origin, real, imaginary, new ReferenceOrbit(origin.getReal(), origin.getImaginary(), max, context), context, max, new RenderStatistics());
+		} else {
+			samples = new int[0];
+		}
+		final int[] rgbs = new int[width];
+		final int[] counts = new int[n + 1];
+		k = 0;
+		for (int py = 0; py < height; py++) {
+			for (int px = 0; px < width; px++) {
+				final int index = py * width + px;
+				if (edges[index]) {
+					System.arraycopy(samples, k, counts, 0, n);
+					k += n;
+					int size = n;
+					if (center >= 0) {
+						counts[size++] = field[index];
+					}
+					rgbs[px] = average(palette, counts, size);
+				} else {
+					rgbs[px] = palette[field[index]];
+				}
+			}
+			writer.write(0, py, width, rgbs);
+		}
+		statistics.addSupersampledPixels(count);
+		statistics.addExtraSamples(real.length);
+	}
+
+	// the average color of the first counts
+	private static int average(final int[] palette, final int[] counts, final int size) {
+		int red = 0;
+		int green = 0;
+		int blue = 0;
+		for (int i = 0; i < size; i++) {
+			final int rgb = palette[counts[i]];
+			red += (rgb >> 16) & 0xff;
+			green += (rgb >> 8) & 0xff;
+			blue += rgb & 0xff;
+		}
+		return ((red + size / 2) / size) << 16 | ((green + size / 2) / size) << 8 | (blue + size / 2) / size;
+	}
+
+	// adds the offset to the double-double coordinate hi + lo, stores the
+	// trailing part of the sum at the index of low and returns the leading part
+	private static double offset(final double hi, final double lo, final double offset, final double[] low, final int index) {
+		final double s = hi + offset;
+		final double e = DoubleDouble.sumError(hi, offset, s) + lo;
+		final double result = s + e;
+		low[index] = DoubleDouble.normalizeError(s, e, result);
+		return result;
+	}
+
+	/**
+	 * Returns the offsets of the samples along one axis of a pixel, centered on the pixel.
+	 * @param grid the number of samples per axis
+	 * @param steps the pixel spacing
+	 * @return the offsets of the samples
+	 */
+	static double[] offsets(final int grid, final double steps) {
+		final double[] result = new double[grid];
+		for (int i = 0; i < grid; i++) {
+			result[i] = ((i + 0.5) / grid - 0.5) * steps;
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,158 @@
+package de.engehausen.mb.math;
+
+/**
+ * A rectangular area of the image which computes every pixel. Tiles larger
+ * than the tile size are split in halves, which idle workers of the pool can steal.
+ * If the job asks for it, the pixels of a tile in {@code double} precision are
+ * collected and iterated in lockstep by a {@link LockstepKernel}. Formulas
+ * other than the Mandelbrot set iterate the tile row by row in their own loop.
+ * For smooth coloring the normalized iteration count of every pixel is
+ * computed and colored through the lookup table of the job, or split into
+ * its integer and fractional part if the job collects the fractions.
+ */
+class Tile extends Area {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int tileSize;
+	private final int left;
+	private final int top;
+	private final int right;
+	private final int bottom;
+
+	/**
+	 * Creates the tile.
+	 * @param job the job the tile belongs to
+	 * @param tileSize the maximum edge length of a tile which is not split further
+	 * @param left the first column
+	 * @param top the first row
+	 * @param right the last column (exclusive)
+	 * @param bottom the last row (exclusive)
+	 */
+	Tile(final RenderJob job, final int tileSize, final int left, final int top, final int right, final int bottom) {
+		super(job);
+		this.tileSize = tileSize;
+		this.left = left;
+		this.top = top;
+		this.right = right;
+		this.bottom = bottom;
+	}
+
+	@Override
+	protected void compute() {
+		final int width = right - left;
+		final int height = bottom - top;
+		if (isInterior(left, top, right - 1, bottom - 1)) {
+			fillInterior(left, top, right, bottom);
+		} else if (width > tileSize || height > tileSize) {
+			if (width >= height) {
+				final int middle = left + width / 2;
+				invokeAll(
+					new Tile(job, tileSize, left, top, middle, bottom),
+					new Tile(job, tileSize, middle, top, right, bottom)
+				);
+			} else {
+				final int middle = top + height / 2;
+				invokeAll(
+					new Tile(job, tileSize, left, top, right, middle),
+					new Tile(job, tileSize, left, middle, right, bottom)
+				);
+			}
+		} else {
+			render();
+		}
+	}
+
+	private void render() {
+		final long start = System.nanoTime();
+		final int[] palette = job.palette;
+		final int[] rgbs = new int[right - left];
+		if (job.smooth != null || job.fractions != null) {
+			final int[] bits = job.fractions != null ? new int[rgbs.length] : null;
+			for (int py = top; py < bottom; py++) {
+				for (int px = left; px < right; px++) {
+					final int count = lookup(px, py);
+					if (count != Reprojection.UNKNOWN) {
+						rgbs[px - left] = palette[count];
+						if (bits != null) {
+							bits[px - left] = 0;
+						}
+					} else {
+						final double smooth = EscapeTimeKernel.smooth(job.xs[px], job.ys[py], job.max, job.epsilon);
+						if (bits != null) {
+							final int integer = smooth > job.max ? job.max + 1 : (int) smooth;
+							rgbs[px - left] = palette[integer];
+							bits[px - left] = Float.floatToIntBits((float) (smooth - integer));
+						} else {
+							rgbs[px - left] = smooth > job.max ? palette[job.max + 1] : job.smooth.get(smooth);
+						}
+					}
+				}
+				job.writer.write(left, py, rgbs.length, rgbs);
+				if (bits != null) {
+					job.fractions.write(left, py, bits.length, bits);
+				}
+			}
+		} else if (job.formula != Formula.MANDELBROT) {
+			final int[] counts = new int[rgbs.length];
+			for (int py = top; py < bottom; py++) {
+				for (int px = left; px < right; px++) {
+					counts[px - left] = lookup(px, py);
+				}
+				job.formula.iterate(job.xs, left, right, job.ys[py], job.max, job.epsilon, counts);
+				for (int x = 0; x < rgbs.length; x++) {
+					rgbs[x] = palette[counts[x]];
+				}
+				job.writer.write(left, py, rgbs.length, rgbs);
+			}
+		} else if (job.lockstep && job.precision == Precision.DOUBLE) {
+			final int[] counts = iterateLockstep();
+			for (int py = top; py < bottom; py++) {
+				final int row = (py - top) * rgbs.length;
+				for (int x = 0; x < rgbs.length; x++) {
+					rgbs[x] = palette[counts[row + x]];
+				}
+				job.writer.write(left, py, rgbs.length, rgbs);
+			}
+		} else {
+			for (int py = top; py < bottom; py++) {
+				for (int px = left; px < right; px++) {
+					rgbs[px - left] = palette[iterate(px, py)];
+				}
+				job.writer.write(left, py, rgbs.length, rgbs);
+			}
+		}
+		job.statistics.addPixels(rgbs.length * (bottom - top));
+		flushStatistics();
+		job.statistics.addBusyTime(System.nanoTime() - start);
+	}
+
+	private int[] iterateLockstep() {
+		final int width = right - left;
+		final int[] counts = new int[width * (bottom - top)];
+		final double[] real = new double[counts.length];
+		final double[] imaginary = new double[counts.length];
+		final int[] pending = new int[counts.length];
+		int size = 0;
+		for (int py = top; py < bottom; py++) {
+			for (int px = left; px < right; px++) {
+				final int index = (py - top) * width + px - left;
+				final int count = lookup(px, py);
+				if (count == Reprojection.UNKNOWN) {
+					real[size] = job.xs[px];
+					imaginary[size] = job.ys[py];
+					pending[size++] = index;
+				} else {
+					counts[index] = count;
+				}
+			}
+		}
+		final int[] results = new int[size];
+		new LockstepKernel().iterate(real, imaginary, size, job.max, job.epsilon, results);
+		for (int i = 0; i < size; i++) {
+			counts[pending[i]] = results[i];
+		}
+		return counts;
+	}
+
+}
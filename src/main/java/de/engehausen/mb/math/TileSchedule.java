@@ -0,0 +1,167 @@
+package de.engehausen.mb.math;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders the tiles of an image in the order of their predicted cost, the most
+ * expensive tile first ("longest processing time first"). The cost of a tile
+ * varies by orders of magnitude between the exterior and the interior of the set;
+ * splitting the image evenly leaves threads idle while the last expensive tile
+ * is computed. Taking the expensive tiles first leaves only cheap tiles for the end.
+ * <p>The cost of a tile is predicted from a few sample pixels. A sample is
+ * free if its count is already known, it takes the count of the previous field
+ * if there is one covering it and is iterated otherwise.</p>
+ */
+class TileSchedule extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	// samples per axis and tile
+	private static final int SAMPLES = 4;
+
+	private final RenderJob job;
+	private final Reprojection reprojection;
+	private final int width;
+	private final int parallelism;
+	private final int[] bounds;
+	private final long[] costs;
+	private final AtomicInteger next = new AtomicInteger();
+	private Integer[] order;
+
+	/**
+	 * Creates the schedule for a whole image.
+	 * @param job the job to render
+	 * @param reprojection the reprojection of the previous field, {@code null} if there is none
+	 * @param tileSize the edge length of a tile
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param parallelism the number of threads to render with
+	 */
+	TileSchedule(final RenderJob job, final Reprojection reprojection, final int tileSize, final int width, final int height, final int parallelism) {
+		this.job = job;
+		this.reprojection = reprojection;
+		this.width = width;
+		this.parallelism = parallelism;
+		final int columns = (width + tileSize - 1) / tileSize;
+		final int rows = (height + tileSize - 1) / tileSize;
+		bounds = new int[4 * columns * rows];
+		int i = 0;
+		for (int y = 0; y < height; y += tileSize) {
+			for (int x = 0; x < width; x += tileSize) {
+				bounds[i++] = x;
+				bounds[i++] = y;
+				bounds[i++] = Math.min(width, x + tileSize);
+				bounds[i++] = Math.min(height, y + tileSize);
+			}
+		}
+		costs = new long[columns * rows];
+	}
+
+	@Override
+	protected void compute() {
+		invokeAll(workers(true));
+		order = new Integer[costs.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = Integer.valueOf(i);
+		}
+		Arrays.sort(order, Comparator.comparingLong((Integer tile) -> costs[tile.intValue()]).reversed());
+		next.set(0);
+		invokeAll(workers(false));
+	}
+
+	private Worker[] workers(final boolean estimate) {
+		final Worker[] result = new Worker[Math.min(parallelism, costs.length)];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = new Worker(estimate);
+		}
+		return result;
+	}
+
+	private long estimate(final int tile) {
+		final int left = bounds[4 * tile];
+		final int top = bounds[4 * tile + 1];
+		final int tileWidth = bounds[4 * tile + 2] - left;
+		final int tileHeight = bounds[4 * tile + 3] - top;
+		long cost = 0;
+		// samples of other formulas than the Mandelbrot set are iterated in one batch
+		final double[] real = new double[SAMPLES * SAMPLES];
+		final double[] imaginary = new double[real.length];
+		int pending = 0;
+		for (int sy = 0; sy < SAMPLES; sy++) {
+			final int py = top + (2 * sy + 1) * tileHeight / (2 * SAMPLES);
+			for (int sx = 0; sx < SAMPLES; sx++) {
+				final int px = left + (2 * sx + 1) * tileWidth / (2 * SAMPLES);
+				final int count = sample(px, py);
+				if (count != Reprojection.UNKNOWN) {
+					cost += 1 + count;
+				} else {
+					real[pending] = job.xs[px];
+					imaginary[pending++] = job.ys[py];
+				}
+			}
+		}
+		if (pending > 0) {
+			final int[] counts = new int[pending];
+			job.formula.iterate(real, imaginary, pending, job.max, job.epsilon, counts);
+			for (final int count : counts) {
+				cost += 1 + count;
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * Returns the cost of a sample.
+	 * @param px the pixel column
+	 * @param py the pixel row
+	 * @return the cost, {@link Reprojection#UNKNOWN} if the sample has to be iterated with the formula of the job
+	 */
+	private int sample(final int px, final int py) {
+		if (job.known != null && job.known[py * width + px] != Reprojection.UNKNOWN) {
+			return 0;
+		}
+		if (reprojection != null) {
+			final int count = reprojection.nearest(px, py);
+			if (count != Reprojection.UNKNOWN) {
+				return count;
+			}
+		}
+		if (job.formula != Formula.MANDELBROT) {
+			return Reprojection.UNKNOWN;
+		}
+		final double x = job.xs[px];
+		final double y = job.ys[py];
+		return EscapeTimeKernel.isInterior(x, y) ? 0 : EscapeTimeKernel.iterate(x, y, job.max, job.epsilon);
+	}
+
+	/**
+	 * Takes the next tile until all tiles are done.
+	 */
+	private class Worker extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final boolean estimate;
+
+		protected Worker(final boolean estimate) {
+			this.estimate = estimate;
+		}
+
+		@Override
+		protected void compute() {
+			for (int i = next.getAndIncrement(); i < costs.length; i = next.getAndIncrement()) {
+				if (estimate) {
+					costs[i] = TileSchedule.this.estimate(i);
+				} else {
+					final int tile = order[i].intValue();
+					new Tile(job, Integer.MAX_VALUE, bounds[4 * tile], bounds[4 * tile + 1], bounds[4 * tile + 2], bounds[4 * tile + 3]).invoke();
+				}
+			}
+		}
+
+	}
+
+}
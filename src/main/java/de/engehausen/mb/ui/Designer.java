@@ -4,7 +4,6 @@ import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Frame;
-import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
@@ -13,7 +12,6 @@ import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -46,7 +44,6 @@ import de.engehausen.mb.FrameData;
 import de.engehausen.mb.Messages;
 import de.engehausen.mb.PngSupport;
 import de.engehausen.mb.math.MandelbrotSet;
-import de.engehausen.mb.math.Number;
 
 /**
  * User interface to display frames and to zoom in.
@@ -72,11 +69,22 @@ public class Designer extends JFrame implements ActionListener {
 	 * @param colors the RGB colors used for rendering
 	 */
 	public Designer(final FrameData frameData, final int... colors) {
+		this(frameData, new MandelbrotSet(), colors);
+	}
+
+	/**
+	 * Creates the designer UI rendering with the given Mandelbrot set, for example
+	 * one set up with the formula and coloring of a loaded frame.
+	 * @param frameData frame data for the initial Mandelbrot set view
+	 * @param mandelbrot the Mandelbrot set rendering component
+	 * @param colors the RGB colors used for rendering
+	 */
+	public Designer(final FrameData frameData, final MandelbrotSet mandelbrot, final int... colors) {
 		super(Messages.getString("title")); //$NON-NLS-1$
 		setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
 		setResizable(false);
 
-		mandelbrot = new MandelbrotSet();
+		this.mandelbrot = mandelbrot;
 		aspectRatio = frameData.dimension.getHeight() / frameData.dimension.getWidth();
 
 		saveFrame = new JMenuItem(Messages.getString("save.frame")); //$NON-NLS-1$
@@ -209,10 +217,10 @@ public class Designer extends JFrame implements ActionListener {
 						final Preview thumb = thumbnails.getElementAt(idx-1);
 						previews.setSelectedIndex(idx-1);
 						SwingUtilities.invokeLater(() -> {
-							preview.frameData.topLeft = new Number(thumb.frameData.topLeft);
-							preview.frameData.scale = thumb.frameData.scale;
+							preview.frameData.center = thumb.frameData.center;
+							preview.frameData.logScale = thumb.frameData.logScale;
 							preview.frameData.frameOffset = thumb.frameData.frameOffset;
-							preview.image = mandelbrot.render(preview.frameData, colors);
+							preview.refresh(mandelbrot);
 							preview.repaint();
 						});
 					}
@@ -258,22 +266,17 @@ public class Designer extends JFrame implements ActionListener {
 	}
 
 	protected final void createThumbnail(final FramePreview frame) {
-		final BufferedImage original = frame.image;
-		final double scale = 128d / original.getWidth();
-		final double relative = original.getHeight() / (double) original.getWidth();
+		final Dimension original = frame.frameData.dimension;
+		final double relative = original.getHeight() / original.getWidth();
 		final int thumbHeight = (int) (128*relative);
 		final Dimension thumbDimension = new Dimension(128, thumbHeight);
-		final Preview result = new Preview(new FrameData(thumbDimension, new Number(frame.frameData.topLeft), frame.frameData.scale, frame.frameData.frameOffset));
-		final BufferedImage image = new BufferedImage(128, thumbHeight, BufferedImage.TYPE_INT_RGB);
-		result.image = image;
-		final Graphics2D g2d = image.createGraphics();
-		try {
-			final AffineTransform transform = AffineTransform.getTranslateInstance(0, 0);
-			transform.scale(scale, scale);
-			g2d.drawRenderedImage(original, transform);
-		} finally {
-			g2d.dispose();
-		}
+		final Preview result = new Preview(new FrameData(thumbDimension, frame.frameData.center, frame.frameData.logScale, frame.frameData.frameOffset));
+		// rendering the small area directly is cheaper than scaling down the frame
+		result.image = mandelbrot.render(
+			result.frameData,
+			new BufferedImage(128, thumbHeight, BufferedImage.TYPE_INT_RGB),
+			frame.colors
+		);
 		thumbnails.addElement(result);
 		renderMovie.setEnabled(thumbnails.size() > 1);
 	}
@@ -296,6 +299,7 @@ public class Designer extends JFrame implements ActionListener {
 				final PngSupport.MandelbrotMetaData metaData = new PngSupport.MandelbrotMetaData();
 				metaData.frameData = getFramePreview().frameData;
 				metaData.colors = getColors();
+				metaData.formula = mandelbrot.getFormula();
 				SwingUtilities.invokeLater(() -> {
 					try {
 						new PngSupport().writeImageWithMetaData(preview.image, file, metaData);
@@ -3,13 +3,15 @@ package de.engehausen.mb.ui;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Point;
+import java.awt.image.BufferedImage;
 import java.util.Arrays;
 
 import javax.swing.SwingUtilities;
 
 import de.engehausen.mb.FrameData;
+import de.engehausen.mb.math.IterationField;
 import de.engehausen.mb.math.MandelbrotSet;
-import de.engehausen.mb.math.Number;
+import de.engehausen.mb.math.PreciseNumber;
 
 /**
  * Visual component to show a preview of a Mandelbrot set frame.
@@ -22,6 +24,11 @@ public class FramePreview extends Preview {
 	
 	protected final int[] colors;
 
+	private IterationField field;
+	private PreciseNumber fieldCenter;
+	private double fieldLogScale;
+	private boolean fieldSmooth;
+
 	/**
 	 * Creates the component.
 	 * @param frameData the frame data describing the position and zoom on the Mandelbrot set.
@@ -31,7 +38,26 @@ public class FramePreview extends Preview {
 	public FramePreview(final FrameData frameData, final MandelbrotSet mandelbrot, final int... colors) {
 		super(frameData);
 		this.colors = colors;
-		image = mandelbrot.render(frameData, colors);
+		refresh(mandelbrot);
+	}
+
+	/**
+	 * Updates the image to show the current frame data. The iteration counts
+	 * are only computed again if the area or the coloring mode changed, a changed
+	 * color offset just colors the cached counts again. For smooth coloring the
+	 * cached counts include their fractions.
+	 * @param mandelbrot the Mandelbrot set rendering component
+	 */
+	public void refresh(final MandelbrotSet mandelbrot) {
+		final boolean smooth = mandelbrot.isSmoothColoring();
+		if (field == null || fieldCenter != frameData.center || fieldLogScale != frameData.logScale || fieldSmooth != smooth) {
+			field = mandelbrot.computeField(frameData, mandelbrot.getIterations(frameData, colors.length), smooth);
+			fieldCenter = frameData.center;
+			fieldLogScale = frameData.logScale;
+			fieldSmooth = smooth;
+		}
+		final BufferedImage target = new BufferedImage(field.getWidth(), field.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+		image = smooth ? mandelbrot.colorizeSmooth(field, frameData.frameOffset, target, colors) : mandelbrot.colorize(field, frameData.frameOffset, target, colors);
 	}
 
 	/**
@@ -41,17 +67,12 @@ public class FramePreview extends Preview {
 	public void reframe(final Designer parentView) {
 		if (selection[0] + selection[1] > 0) {
 			// recompute parameters
-			final double min = Math.min(frameData.dimension.getWidth(), frameData.dimension.getHeight());
-			
 			final double minX = getMinX();
-			final double minY = getMinY();
-			final Number offset = new Number(frameData.scale * minX / min, frameData.scale * minY / min);
-			frameData.topLeft.add(offset);
 			final double percent = (getMaxX() - minX) / frameData.dimension.getWidth();
-			frameData.scale *= percent;
+			frameData.zoom(minX, getMinY(), percent);
 			Arrays.fill(selection, 0);
 			SwingUtilities.invokeLater(() -> {
-				image = parentView.mandelbrot.render(frameData, colors);
+				refresh(parentView.mandelbrot);
 				parentView.createThumbnail(this);
 				repaint();
 			});
@@ -10,6 +10,7 @@ import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JDialog;
 import javax.swing.JFileChooser;
@@ -23,6 +24,7 @@ import javax.swing.SwingUtilities;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import de.engehausen.mb.Messages;
+import de.engehausen.mb.MovieMode;
 import de.engehausen.mb.MovieRenderer;
 
 /**
@@ -38,6 +40,8 @@ public class MovieDialog extends AbstractDialog implements ActionListener, KeyLi
 	private final JSlider qualityScale;
 	private final JSlider bitrate;
 	private final JTextField fileName;
+	private final JComboBox<MovieMode> mode;
+	private final JSlider keyFrameInterval;
 	private final JButton confirm;
 	private final JButton cancel;
 	private final JButton choose;
@@ -72,6 +76,17 @@ public class MovieDialog extends AbstractDialog implements ActionListener, KeyLi
 			dLabel.setText(Integer.toString(duration.getValue()));
 		});
 
+		keyFrameInterval = new JSlider(SwingConstants.HORIZONTAL, 2, 16, 4);
+		keyFrameInterval.setEnabled(false);
+		final JLabel kLabel = new JLabel(Integer.toString(keyFrameInterval.getValue()));
+		keyFrameInterval.addChangeListener(e -> {
+			kLabel.setText(Integer.toString(keyFrameInterval.getValue()));
+		});
+		mode = new JComboBox<>(MovieMode.values());
+		mode.addActionListener(e -> {
+			keyFrameInterval.setEnabled(mode.getSelectedItem() == MovieMode.RESAMPLED_ZOOM);
+		});
+
 		background = framesPerSecond.getBackground();
 
 		fileName = new JTextField(30);
@@ -96,6 +111,8 @@ public class MovieDialog extends AbstractDialog implements ActionListener, KeyLi
 		contentPane.setLayout(gridbag);
 
 		final String[] labels = {
+			Messages.getString("movie.mode"), //$NON-NLS-1$
+			Messages.getString("key.frame.interval"), //$NON-NLS-1$
 			Messages.getString("frame.rate"), //$NON-NLS-1$
 			Messages.getString("quality"), //$NON-NLS-1$
 			Messages.getString("bitrate"), //$NON-NLS-1$
@@ -117,7 +134,16 @@ public class MovieDialog extends AbstractDialog implements ActionListener, KeyLi
 		dBorder.setLayout(new FlowLayout(FlowLayout.LEFT));
 		dBorder.add(duration);
 		dBorder.add(dLabel);
+		final JPanel mBorder = new JPanel();
+		mBorder.setLayout(new FlowLayout(FlowLayout.LEFT));
+		mBorder.add(mode);
+		final JPanel kBorder = new JPanel();
+		kBorder.setLayout(new FlowLayout(FlowLayout.LEFT));
+		kBorder.add(keyFrameInterval);
+		kBorder.add(kLabel);
 		final JComponent[] components = {
+			mBorder,
+			kBorder,
 			fpsBorder,
 			qBorder,
 			bBorder,
@@ -151,11 +177,13 @@ public class MovieDialog extends AbstractDialog implements ActionListener, KeyLi
 				final int qScale = qualityScale.getValue();
 				final int bitRate = bitrate.getValue() * 1000;
 				final int seconds = duration.getValue();
+				final MovieMode movieMode = (MovieMode) mode.getSelectedItem();
+				final int interval = keyFrameInterval.getValue();
 				SwingUtilities.invokeLater(() -> {
-					final ProgressMonitor progress = new ProgressMonitor(this, Messages.getString("rendering"), null, 0, seconds * fps); //$NON-NLS-1$
+					final ProgressMonitor progress = new ProgressMonitor(this, Messages.getString("rendering"), "", 0, seconds * fps); //$NON-NLS-1$ //$NON-NLS-2$
 					progress.setMillisToDecideToPopup(50);
 					progress.setMillisToPopup(250);
-					new MovieRenderer(designer, fps, seconds, qScale, bitRate, fileName.getText(), progress).execute();
+					new MovieRenderer(designer, fps, seconds, qScale, bitRate, fileName.getText(), movieMode, interval, progress).execute();
 				});
 			}
 		} else if (choose.equals(source)) {
@@ -48,6 +48,14 @@ public class Preview extends JPanel {
 		}
 	}
 
+	/**
+	 * Returns the data describing the area of the Mandelbrot set shown.
+	 * @return the data describing the area of the Mandelbrot set shown.
+	 */
+	public FrameData getFrameData() {
+		return frameData;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
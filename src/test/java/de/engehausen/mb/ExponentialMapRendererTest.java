@@ -0,0 +1,51 @@
+package de.engehausen.mb;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.engehausen.mb.math.MandelbrotSet;
+import de.engehausen.mb.math.Number;
+import de.engehausen.mb.math.PixelDiff;
+
+public class ExponentialMapRendererTest {
+
+	@Test
+	public void testRemappedFramesCloseToRendered() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		final List<FrameData> keyFrames = zoom();
+		ZoomFixture.assertClose(ZoomFixture.render(set, keyFrames), remap(set, keyFrames));
+	}
+
+	@Test
+	public void testFramesAwayFromCenterRendered() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		final List<FrameData> keyFrames = Arrays.asList(
+			new FrameData(ZoomFixture.DIMENSION, new Number(-1.5, 0), 0.4, 0),
+			new FrameData(ZoomFixture.DIMENSION, new Number(-0.7454, 0.1130), 0.002, 0)
+		);
+		final List<BufferedImage> expected = ZoomFixture.render(set, keyFrames);
+		final List<BufferedImage> actual = remap(set, keyFrames);
+		// the first frame does not show the center of the last frame
+		final PixelDiff diff = PixelDiff.compare(expected.get(0), actual.get(0));
+		Assert.assertTrue(diff.toString(), diff.within(0));
+	}
+
+	private static List<FrameData> zoom() {
+		return Arrays.asList(
+			new FrameData(ZoomFixture.DIMENSION, new Number(-0.7454 - 0.05 * 16 / 9, 0.1130 - 0.05), 0.1, 0),
+			new FrameData(ZoomFixture.DIMENSION, new Number(-0.7454 - 0.0002 * 16 / 9, 0.1130 - 0.0002), 0.0004, 0)
+		);
+	}
+
+	private static List<BufferedImage> remap(final MandelbrotSet set, final List<FrameData> keyFrames) {
+		final List<BufferedImage> result = new ArrayList<>();
+		new ExponentialMapRenderer(set, ZoomFixture.DIMENSION, ZoomFixture.COLORS).run(FrameStreams.buildLogarithmic(keyFrames, ZoomFixture.FRAMES), frame -> result.add(frame.image));
+		return result;
+	}
+
+}
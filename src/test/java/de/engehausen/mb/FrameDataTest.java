@@ -0,0 +1,50 @@
+package de.engehausen.mb;
+
+import java.awt.Dimension;
+import java.math.BigDecimal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.engehausen.mb.math.Number;
+import de.engehausen.mb.math.PreciseNumber;
+
+public class FrameDataTest {
+
+	private static final PreciseNumber DEEP = new PreciseNumber(
+		new BigDecimal("-0.74364388703715870475219150611477436"), //$NON-NLS-1$
+		new BigDecimal("0.13182590420531197049313205638513923") //$NON-NLS-1$
+	);
+
+	@Test
+	public void testParseDoubleFormat() {
+		final FrameData frameData = FrameData.parseFrameData("640,360,-2.25,-1.0,2.0,3"); //$NON-NLS-1$
+		final Number topLeft = frameData.getTopLeft().toNumber();
+		Assert.assertEquals(-2.25, topLeft.getReal(), 0);
+		Assert.assertEquals(-1, topLeft.getImaginary(), 0);
+		Assert.assertEquals(2, frameData.getScale(), 1e-15);
+		Assert.assertEquals(3, frameData.frameOffset);
+	}
+
+	@Test
+	public void testDeepRoundTrip() {
+		final FrameData frameData = new FrameData(new Dimension(640, 360), DEEP, Math.log(1e-30), 7);
+		final FrameData parsed = FrameData.parseFrameData(FrameData.toString(frameData));
+		Assert.assertEquals(frameData.dimension, parsed.dimension);
+		Assert.assertEquals(0, DEEP.getReal().compareTo(parsed.center.getReal()));
+		Assert.assertEquals(0, DEEP.getImaginary().compareTo(parsed.center.getImaginary()));
+		Assert.assertEquals(frameData.logScale, parsed.logScale, 0);
+		Assert.assertEquals(7, parsed.frameOffset);
+	}
+
+	@Test
+	public void testZoomKeepsPrecision() {
+		final FrameData frameData = new FrameData(new Dimension(640, 360), DEEP, Math.log(1e-30), 0);
+		// selecting the middle half keeps the center
+		frameData.zoom(160, 90, 0.5);
+		Assert.assertEquals(1e-30 / 2, frameData.getScale(), 1e-45);
+		Assert.assertTrue(DEEP.getReal().subtract(frameData.center.getReal()).abs().doubleValue() < 1e-45);
+		Assert.assertTrue(DEEP.getImaginary().subtract(frameData.center.getImaginary()).abs().doubleValue() < 1e-45);
+	}
+
+}
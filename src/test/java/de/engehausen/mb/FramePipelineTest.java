@@ -0,0 +1,62 @@
+package de.engehausen.mb;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.engehausen.mb.math.MandelbrotSet;
+import de.engehausen.mb.math.PreciseNumber;
+
+public class FramePipelineTest {
+
+	@Test
+	public void testFramesInOrder() throws Exception {
+		final MandelbrotSet set = new MandelbrotSet(4, 8);
+		final List<FrameData> expected = new ArrayList<>();
+		FrameStreams.buildLogarithmic(ZoomFixture.keyFrames(), 15).forEach(frameData -> expected.add(new FrameData(frameData)));
+		final List<BufferedImage> actual = new ArrayList<>();
+		new FramePipeline(set, ZoomFixture.DIMENSION, 3, ZoomFixture.COLORS).run(FrameStreams.buildLogarithmic(ZoomFixture.keyFrames(), 15), frame -> {
+			Assert.assertEquals(ZoomFixture.DIMENSION.width * ZoomFixture.DIMENSION.height, frame.statistics.getPixels());
+			return actual.add(frame.image);
+		});
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			final BufferedImage image = set.render(expected.get(i), ZoomFixture.COLORS);
+			for (int y = 0; y < ZoomFixture.DIMENSION.height; y++) {
+				for (int x = 0; x < ZoomFixture.DIMENSION.width; x++) {
+					Assert.assertEquals("frame " + i, image.getRGB(x, y), actual.get(i).getRGB(x, y)); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testBudgetDecidedOncePerFrame() throws Exception {
+		final AtomicInteger budgets = new AtomicInteger();
+		final MandelbrotSet set = new MandelbrotSet(2, 8) {
+			@Override
+			public int getIterations(final PreciseNumber topLeft, final double scale, final int width, final int height, final int colors) {
+				budgets.incrementAndGet();
+				return super.getIterations(topLeft, scale, width, height, colors);
+			}
+		};
+		final List<FramePipeline.Frame> frames = new ArrayList<>();
+		new FramePipeline(set, ZoomFixture.DIMENSION, 2, ZoomFixture.COLORS).run(FrameStreams.buildLogarithmic(ZoomFixture.keyFrames(), 15), frames::add);
+		Assert.assertEquals(frames.size(), budgets.get());
+	}
+
+	@Test
+	public void testStop() throws Exception {
+		final List<FramePipeline.Frame> frames = new ArrayList<>();
+		new FramePipeline(new MandelbrotSet(2, 8), ZoomFixture.DIMENSION, 2, ZoomFixture.COLORS).run(FrameStreams.buildLinear(ZoomFixture.keyFrames(), 100), frame -> {
+			frames.add(frame);
+			return frames.size() < 3;
+		});
+		Assert.assertEquals(3, frames.size());
+	}
+
+}
@@ -0,0 +1,56 @@
+package de.engehausen.mb;
+
+import java.awt.Dimension;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.engehausen.mb.math.Number;
+
+public class FrameScheduleTest {
+
+	private static final Dimension DIMENSION = new Dimension(160, 90);
+
+	@Test
+	public void testRandomAccessMatchesStream() {
+		final FrameSchedule schedule = FrameSchedule.logarithmic(keyFrames(), 60);
+		final List<FrameData> frames = schedule.stream().collect(Collectors.toList());
+		Assert.assertEquals(61, schedule.size());
+		Assert.assertEquals(schedule.size(), frames.size());
+		for (int i = frames.size() - 1; i >= 0; i--) {
+			Assert.assertEquals(FrameData.toString(frames.get(i)), FrameData.toString(schedule.get(i)));
+		}
+		// every frame is a separate instance
+		Assert.assertNotSame(frames.get(0), frames.get(1));
+		// the last frame lies between the last two key frames
+		Assert.assertEquals(2, frames.get(frames.size() - 1).frameOffset);
+	}
+
+	@Test
+	public void testParallelAndResumedStreams() {
+		final FrameSchedule schedule = FrameSchedule.linear(keyFrames(), 40);
+		final List<String> sequential = schedule.stream().map(frameData -> FrameData.toString(frameData)).collect(Collectors.toList());
+		final List<String> parallel = schedule.stream().parallel().map(frameData -> FrameData.toString(frameData)).collect(Collectors.toList());
+		Assert.assertEquals(sequential, parallel);
+		final List<String> resumed = schedule.stream(25).map(frameData -> FrameData.toString(frameData)).collect(Collectors.toList());
+		Assert.assertEquals(sequential.subList(25, sequential.size()), resumed);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds() {
+		FrameSchedule.linear(keyFrames(), 10).get(11);
+	}
+
+	private static List<FrameData> keyFrames() {
+		return Arrays.asList(
+			new FrameData(DIMENSION, new Number(-2.25, -1), 2, 0),
+			new FrameData(DIMENSION, new Number(-0.8, -0.2), 0.4, 1),
+			new FrameData(DIMENSION, new Number(-0.75, 0.1), 0.01, 2),
+			new FrameData(DIMENSION, new Number(-0.7454, 0.1130), 0.0002, 3)
+		);
+	}
+
+}
@@ -0,0 +1,64 @@
+package de.engehausen.mb;
+
+import java.awt.Dimension;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.engehausen.mb.math.PreciseNumber;
+
+public class FrameStreamsTest {
+
+	private static final Dimension DIMENSION = new Dimension(160, 90);
+	private static final PreciseNumber FROM = new PreciseNumber(
+		new BigDecimal("-0.7436438870371587047521915061147"), //$NON-NLS-1$
+		new BigDecimal("0.1318259042053119704931320563851") //$NON-NLS-1$
+	);
+	private static final PreciseNumber TO = new PreciseNumber(
+		new BigDecimal("-0.7436438870371587047521915061144"), //$NON-NLS-1$
+		new BigDecimal("0.1318259042053119704931320563853") //$NON-NLS-1$
+	);
+
+	@Test
+	public void testDeepLinear() {
+		assertInterpolated(FrameStreams.buildLinear(keyFrames(), 20));
+	}
+
+	@Test
+	public void testDeepLogarithmic() {
+		assertInterpolated(FrameStreams.buildLogarithmic(keyFrames(), 20));
+	}
+
+	private static List<FrameData> keyFrames() {
+		return Arrays.asList(
+			new FrameData(DIMENSION, FROM, Math.log(1e-28), 0),
+			new FrameData(DIMENSION, TO, Math.log(1e-32), 0)
+		);
+	}
+
+	private static void assertInterpolated(final Stream<FrameData> stream) {
+		final List<FrameData> frames = new ArrayList<>();
+		stream.forEach(frames::add);
+		Assert.assertEquals(21, frames.size());
+		Assert.assertEquals(0, FROM.getReal().compareTo(frames.get(0).center.getReal()));
+		for (int i = 1; i < frames.size(); i++) {
+			final FrameData previous = frames.get(i - 1);
+			final FrameData frame = frames.get(i);
+			// every frame is a new instance owned by the caller
+			Assert.assertFalse(frame == previous);
+			Assert.assertTrue(frame.logScale < previous.logScale);
+			// the centers move monotonically from the first to the last key frame
+			Assert.assertTrue(frame.center.getReal().compareTo(previous.center.getReal()) > 0);
+			Assert.assertTrue(frame.center.getImaginary().compareTo(previous.center.getImaginary()) > 0);
+		}
+		final FrameData last = frames.get(frames.size() - 1);
+		Assert.assertTrue(TO.getReal().subtract(last.center.getReal()).abs().doubleValue() < 1e-33);
+		Assert.assertEquals(Math.log(1e-32), last.logScale, 1e-6);
+	}
+
+}
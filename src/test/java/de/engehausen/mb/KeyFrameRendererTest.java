@@ -0,0 +1,39 @@
+package de.engehausen.mb;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.engehausen.mb.math.MandelbrotSet;
+import de.engehausen.mb.math.PixelDiff;
+
+public class KeyFrameRendererTest {
+
+	@Test
+	public void testSingleFrameInterval() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		final List<BufferedImage> expected = ZoomFixture.render(set, ZoomFixture.keyFrames());
+		final List<BufferedImage> actual = resample(set, 1);
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			final PixelDiff diff = PixelDiff.compare(expected.get(i), actual.get(i));
+			Assert.assertTrue(diff.toString(), diff.within(0.01));
+		}
+	}
+
+	@Test
+	public void testResampledFramesCloseToRendered() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		ZoomFixture.assertClose(ZoomFixture.render(set, ZoomFixture.keyFrames()), resample(set, 5));
+	}
+
+	private static List<BufferedImage> resample(final MandelbrotSet set, final int interval) {
+		final List<BufferedImage> result = new ArrayList<>();
+		new KeyFrameRenderer(set, ZoomFixture.DIMENSION, interval, ZoomFixture.COLORS).run(FrameStreams.buildLogarithmic(ZoomFixture.keyFrames(), ZoomFixture.FRAMES), frame -> result.add(frame.image));
+		return result;
+	}
+
+}
@@ -0,0 +1,28 @@
+package de.engehausen.mb;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.engehausen.mb.math.MandelbrotSet;
+
+public class ReprojectingRendererTest {
+
+	@Test
+	public void testValidation() {
+		final ReprojectingRenderer renderer = new ReprojectingRenderer(new MandelbrotSet(2, 16), ZoomFixture.DIMENSION, true, ZoomFixture.COLORS);
+		final AtomicInteger frames = new AtomicInteger();
+		renderer.run(
+			FrameStreams.buildLogarithmic(ZoomFixture.keyFrames(), ZoomFixture.FRAMES),
+			frame -> {
+				Assert.assertEquals(ZoomFixture.DIMENSION.width, frame.image.getWidth());
+				return frames.incrementAndGet() < 15;
+			}
+		);
+		Assert.assertEquals(15, frames.get());
+		Assert.assertTrue(Double.toString(renderer.getReuseRate()), renderer.getReuseRate() > 0.2);
+		Assert.assertTrue(Double.toString(renderer.getErrorRate()), renderer.getErrorRate() < 0.01);
+	}
+
+}
@@ -0,0 +1,73 @@
+package de.engehausen.mb;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+
+import de.engehausen.mb.math.MandelbrotSet;
+import de.engehausen.mb.math.Number;
+import de.engehausen.mb.math.PixelDiff;
+
+/**
+ * The zoom, colors and size shared by the movie renderer tests, and the
+ * reference rendering of zooms frame by frame for the renderers which
+ * derive frames from other frames.
+ */
+final class ZoomFixture {
+
+	static final Dimension DIMENSION = new Dimension(96, 54);
+	static final int FRAMES = 20;
+	static final int[] COLORS = new int[64];
+
+	static {
+		// a smooth gradient, so interpolation errors stay small
+		for (int i = 0; i < COLORS.length; i++) {
+			COLORS[i] = (4 * i) << 16 | (255 - 4 * i) << 8 | (64 + 2 * i);
+		}
+	}
+
+	private ZoomFixture() {
+	}
+
+	/**
+	 * Returns the key frames of a zoom from the upper half of the set
+	 * into seahorse valley.
+	 * @return the key frames
+	 */
+	static List<FrameData> keyFrames() {
+		return Arrays.asList(
+			new FrameData(DIMENSION, new Number(-0.8, -0.2), 0.4, 0),
+			new FrameData(DIMENSION, new Number(-0.7454, 0.1130), 0.002, 0)
+		);
+	}
+
+	/**
+	 * Renders every frame of the logarithmic zoom through the key frames.
+	 * @param set the Mandelbrot set to render with
+	 * @param keyFrames the key frames of the zoom
+	 * @return the rendered frames
+	 */
+	static List<BufferedImage> render(final MandelbrotSet set, final List<FrameData> keyFrames) {
+		final List<BufferedImage> result = new ArrayList<>();
+		FrameStreams.buildLogarithmic(keyFrames, FRAMES).forEach(frameData -> result.add(set.render(frameData, COLORS)));
+		return result;
+	}
+
+	/**
+	 * Asserts that the derived frames are close to the rendered frames.
+	 * @param expected the rendered frames
+	 * @param actual the derived frames
+	 */
+	static void assertClose(final List<BufferedImage> expected, final List<BufferedImage> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			// on average the color channels differ by less than 3 percent
+			Assert.assertTrue("frame " + i, PixelDiff.meanError(expected.get(i), actual.get(i)) < 8); //$NON-NLS-1$
+		}
+	}
+
+}
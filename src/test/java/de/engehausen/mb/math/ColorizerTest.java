@@ -0,0 +1,99 @@
+package de.engehausen.mb.math;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColorizerTest {
+
+	private static final int[] COLORS = { 0x000000, 0xffffff, 0xff0000, 0x00ff00 };
+
+	@Test
+	public void testLutInterpolatesCyclically() {
+		final int[] lut = Colorizer.lut(COLORS);
+		Assert.assertEquals(Colorizer.LUT_SIZE, lut.length);
+		for (int i = 0; i < COLORS.length; i++) {
+			Assert.assertEquals(COLORS[i], lut[i * Colorizer.LUT_SIZE / COLORS.length]);
+		}
+		// half way from black to white and from green back to black
+		Assert.assertEquals(0x808080, lut[Colorizer.LUT_SIZE / 8]);
+		Assert.assertEquals(0x008000, lut[7 * Colorizer.LUT_SIZE / 8]);
+	}
+
+	@Test
+	public void testSmoothPaletteMatchesPalette() {
+		final int[] palette = Colorizer.palette(20, 3, COLORS);
+		final SmoothPalette smooth = new SmoothPalette(3, COLORS);
+		for (int i = 0; i <= 20; i++) {
+			Assert.assertEquals(palette[i], smooth.get(i));
+		}
+	}
+
+	@Test
+	public void testSmoothCountIsContinuous() {
+		Assert.assertEquals(101, EscapeTimeKernel.smooth(-0.1, 0.1, 100, 1e-9), 0);
+		double previous = EscapeTimeKernel.smooth(-2, 0.5, 100, 1e-9);
+		for (double x = -2; x < -1; x += 1e-4) {
+			final double count = EscapeTimeKernel.smooth(x, 0.5, 100, 1e-9);
+			Assert.assertTrue(Math.abs(count - EscapeTimeKernel.iterate(x, 0.5, 100, 1e-9)) < 2);
+			// the integer counts jump by one between bands
+			Assert.assertTrue(x + ": " + previous + " " + count, Math.abs(count - previous) < 0.1);
+			previous = count;
+		}
+	}
+
+	@Test
+	public void testSmoothColoring() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		final PreciseNumber topLeft = new PreciseNumber(new Number(-2.25, -1.3));
+		final BufferedImage banded = set.render(topLeft, 2.6, 0, RenderMode.BRUTE_FORCE, new BufferedImage(90, 70, BufferedImage.TYPE_INT_RGB), COLORS);
+		set.setSmoothColoring(true);
+		final BufferedImage smooth = set.render(topLeft, 2.6, 0, RenderMode.BRUTE_FORCE, new BufferedImage(90, 70, BufferedImage.TYPE_INT_RGB), COLORS);
+		final BufferedImage subdivided = set.render(topLeft, 2.6, 0, RenderMode.SUBDIVISION, new BufferedImage(90, 70, BufferedImage.TYPE_INT_RGB), COLORS);
+		final int interior = Colorizer.palette(COLORS.length, 0, COLORS)[COLORS.length + 1] | 0xff000000;
+		final int[] counts = set.computeField(topLeft, 2.6, 90, 70, COLORS.length, RenderMode.BRUTE_FORCE).getCounts();
+		int differences = 0;
+		for (int y = 0; y < 70; y++) {
+			for (int x = 0; x < 90; x++) {
+				// the interior keeps its color, escaped pixels get colors in between
+				if (counts[y * 90 + x] > COLORS.length) {
+					Assert.assertEquals(interior, smooth.getRGB(x, y));
+				} else if (banded.getRGB(x, y) != smooth.getRGB(x, y)) {
+					differences++;
+				}
+				Assert.assertEquals(smooth.getRGB(x, y), subdivided.getRGB(x, y));
+			}
+		}
+		Assert.assertTrue(differences > 1000);
+	}
+
+	@Test
+	public void testSmoothFieldMatchesSmoothRendering() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		set.setSmoothColoring(true);
+		final PreciseNumber topLeft = new PreciseNumber(new Number(-2.25, -1.3));
+		final IterationField field = set.computeField(topLeft, 2.6, 90, 70, COLORS.length, RenderMode.SUBDIVISION, null, true);
+		Assert.assertEquals(90 * 70, field.getFractions().length);
+		Assert.assertNull(set.computeField(topLeft, 2.6, 90, 70, COLORS.length, RenderMode.SUBDIVISION).getFractions());
+		for (int offset = 0; offset < COLORS.length; offset++) {
+			final BufferedImage expected = set.render(topLeft, 2.6, offset, RenderMode.BRUTE_FORCE, new BufferedImage(90, 70, BufferedImage.TYPE_INT_RGB), COLORS);
+			final BufferedImage actual = Colorizer.colorizeSmooth(field, offset, new BufferedImage(90, 70, BufferedImage.TYPE_INT_RGB), COLORS);
+			// the fractions are stored as float, which rarely moves a count to the next entry of the table
+			final PixelDiff diff = PixelDiff.compare(expected, actual);
+			Assert.assertTrue(diff.toString(), diff.within(0.001));
+		}
+	}
+
+	@Test
+	public void testColorizeInPool() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		final PreciseNumber topLeft = new PreciseNumber(new Number(-2.25, -1.3));
+		final IterationField field = set.computeField(topLeft, 2.6, 90, 70, COLORS.length, RenderMode.SUBDIVISION, null, true);
+		final BufferedImage plain = Colorizer.colorize(field, 1, new BufferedImage(90, 70, BufferedImage.TYPE_INT_RGB), COLORS);
+		final BufferedImage smooth = Colorizer.colorizeSmooth(field, 1, new BufferedImage(90, 70, BufferedImage.TYPE_INT_RGB), COLORS);
+		Assert.assertTrue(PixelDiff.compare(plain, set.colorize(field, 1, new BufferedImage(90, 70, BufferedImage.TYPE_INT_RGB), COLORS)).within(0));
+		Assert.assertTrue(PixelDiff.compare(smooth, set.colorizeSmooth(field, 1, new BufferedImage(90, 70, BufferedImage.TYPE_INT_RGB), COLORS)).within(0));
+	}
+
+}
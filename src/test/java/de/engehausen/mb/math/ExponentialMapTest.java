@@ -0,0 +1,108 @@
+package de.engehausen.mb.math;
+
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExponentialMapTest {
+
+	private static final int MAX = 1000;
+
+	@Test
+	public void testDeepRowsMatchExactIteration() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		// the tip of the set at i has detail at every scale
+		final PreciseNumber center = new PreciseNumber(BigDecimal.ZERO, BigDecimal.ONE);
+		final ExponentialMap map = set.createExponentialMap(center, 1e-40, 1e-38, 16, MAX);
+		final int[] counts = new int[map.getRows() * map.getAngles()];
+		final RenderStatistics statistics = new RenderStatistics();
+		set.computeRows(map, 0, map.getRows(), counts, statistics);
+		Assert.assertEquals(counts.length, statistics.getPixels());
+		Assert.assertEquals(Precision.ARBITRARY, statistics.getPrecision());
+		final Random random = new Random(5);
+		for (int n = 0; n < 20; n++) {
+			final int row = random.nextInt(map.getRows());
+			final int column = random.nextInt(map.getAngles());
+			final int expected = PerturbationEngineTest.exact(
+				new BigDecimal(map.real(row, column)),
+				BigDecimal.ONE.add(new BigDecimal(map.imaginary(row, column)))
+			);
+			Assert.assertEquals(row + "," + column, expected, counts[row * map.getAngles() + column]); //$NON-NLS-1$
+		}
+	}
+
+	@Test
+	public void testAngleWrapsAround() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		final ExponentialMap map = set.createExponentialMap(new PreciseNumber(new Number(-0.7454, 0.1130)), 1e-6, 1, 64, 256);
+		final int[] colors = new int[64];
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = (4 * i) << 16 | (255 - 4 * i) << 8 | (64 + 2 * i);
+		}
+		// two pixels right above and below the ray of angle zero, the lower one
+		// interpolates between the last and the first column of the map
+		final BufferedImage image = map.remap(1e-3, -5e-13, 1e-12, 0, new BufferedImage(1, 2, BufferedImage.TYPE_INT_RGB), colors);
+		final int above = image.getRGB(0, 0);
+		final int below = image.getRGB(0, 1);
+		for (int shift = 0; shift < 24; shift += 8) {
+			Assert.assertTrue(Integer.toHexString(above) + " " + Integer.toHexString(below), Math.abs(((above >> shift) & 0xff) - ((below >> shift) & 0xff)) <= 1); //$NON-NLS-1$
+		}
+	}
+
+	@Test
+	public void testSegmentsComputedOnDemand() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		final ExponentialMap map = set.createExponentialMap(new PreciseNumber(new Number(-0.7454, 0.1130)), 1e-6, 1, 64, 256);
+		final int[] colors = new int[64];
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = i * 0x040404;
+		}
+		// a frame around the center needs all rows from its corners inwards
+		final BufferedImage shallow = map.remap(-0.4, -0.4, 0.05, 0, new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB), colors);
+		final long all = map.getStatistics().getPixels();
+		Assert.assertEquals((long) map.getRows() * map.getAngles(), all);
+		map.remap(-0.4, -0.4, 0.05, 0, new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB), colors);
+		Assert.assertEquals(all, map.getStatistics().getPixels());
+		// a deep frame drops the two outer segments of 32 rows, which are computed again
+		map.remap(-8e-5, -8e-5, 1e-5, 0, new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB), colors);
+		Assert.assertEquals(all, map.getStatistics().getPixels());
+		final BufferedImage again = map.remap(-0.4, -0.4, 0.05, 0, new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB), colors);
+		Assert.assertEquals(all + 2 * 32 * map.getAngles(), map.getStatistics().getPixels());
+		final PixelDiff diff = PixelDiff.compare(shallow, again);
+		Assert.assertTrue(diff.toString(), diff.within(0));
+	}
+
+	@Test
+	public void testRemapAtLastPreparedRow() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		final ExponentialMap map = set.createExponentialMap(new PreciseNumber(new Number(-0.7454, 0.1130)), 1e-6, 1, 64, 256);
+		final int[] colors = new int[64];
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = i * 0x040404;
+		}
+		// a radius falling exactly on row 31, the last row of the first segment,
+		// which is interpolated with the first row of the next segment
+		final double step = 2 * Math.PI / map.getAngles();
+		double radius = Math.exp(-31 * step);
+		while (-Math.log(radius) / step < 31) {
+			radius = Math.nextDown(radius);
+		}
+		while (-Math.log(radius) / step > 31) {
+			radius = Math.nextUp(radius);
+		}
+		Assert.assertEquals(31, -Math.log(radius) / step, 0);
+		final BufferedImage single = map.remap(radius, 0, radius, 0, new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), colors);
+		// the same pixel in a frame reaching further in
+		final BufferedImage wider = map.remap(radius / 2, 0, radius / 2, 0, new BufferedImage(2, 1, BufferedImage.TYPE_INT_RGB), colors);
+		Assert.assertEquals(wider.getRGB(1, 0), single.getRGB(0, 0));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidRadii() {
+		new MandelbrotSet(1, 16).createExponentialMap(new PreciseNumber(new Number(0, 0)), 1, 1, 16, MAX);
+	}
+
+}
@@ -0,0 +1,132 @@
+package de.engehausen.mb.math;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FormulaTest {
+
+	private static final Formula[] FORMULAS = {
+		Formula.MANDELBROT,
+		Formula.multibrot(3),
+		Formula.burningShip(),
+		Formula.julia(-0.8, 0.156)
+	};
+
+	@Test
+	public void testValueOf() {
+		for (final Formula formula : FORMULAS) {
+			Assert.assertEquals(formula, Formula.valueOf(formula.toString()));
+		}
+		Assert.assertSame(Formula.MANDELBROT, Formula.valueOf("mandelbrot"));
+		Assert.assertEquals(Formula.multibrot(4), Formula.valueOf("multibrot:4"));
+		Assert.assertEquals("multibrot:4", Formula.multibrot(4).toString());
+		Assert.assertFalse(Formula.multibrot(4).equals(Formula.multibrot(5)));
+		for (final String invalid : new String[] { "", "mandelbrot:2", "multibrot", "multibrot:1", "multibrot:2.5", "multibrot:1e9", "julia:0", "julia:a:b", "cubic" }) {
+			try {
+				Formula.valueOf(invalid);
+				Assert.fail(invalid);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testRowMatchesPoints() {
+		final double[] real = new double[64];
+		for (int i = 0; i < real.length; i++) {
+			real[i] = -2 + i / 16d;
+		}
+		for (final Formula formula : FORMULAS) {
+			final int[] counts = new int[real.length - 8];
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = i % 5 == 0 ? 7 : Reprojection.UNKNOWN;
+			}
+			formula.iterate(real, 4, real.length - 4, 0.3, 500, 1e-6, counts);
+			for (int i = 0; i < counts.length; i++) {
+				final int expected = i % 5 == 0 ? 7 : formula.iterate(real[i + 4], 0.3, 500, 1e-6);
+				Assert.assertEquals(formula + " at " + i, expected, counts[i]);
+			}
+			final double[] imaginary = new double[real.length];
+			for (int i = 0; i < imaginary.length; i++) {
+				imaginary[i] = 1 - i / 32d;
+			}
+			final int[] batch = new int[real.length];
+			formula.iterate(real, imaginary, real.length - 1, 500, 1e-6, batch);
+			for (int i = 0; i < real.length - 1; i++) {
+				Assert.assertEquals(formula + " at " + i, formula.iterate(real[i], imaginary[i], 500, 1e-6), batch[i]);
+			}
+			Assert.assertEquals(0, batch[real.length - 1]);
+		}
+	}
+
+	@Test
+	public void testJuliaOfZeroIsTheUnitDisc() {
+		final Formula formula = Formula.julia(0, 0);
+		Assert.assertTrue(formula.isConjugateSymmetric());
+		Assert.assertFalse(Formula.julia(0, 0.5).isConjugateSymmetric());
+		Assert.assertEquals(1001, formula.iterate(0.5, 0.5, 1000, 1e-9));
+		Assert.assertEquals(1001, formula.iterate(0, -0.9, 1000, 1e-9));
+		Assert.assertTrue(formula.iterate(0.8, 0.7, 1000, 1e-9) < 1000);
+		Assert.assertTrue(formula.iterate(-1.1, 0, 1000, 1e-9) < 1000);
+	}
+
+	@Test
+	public void testMultibrotOfDegreeTwoIsTheMandelbrotSet() {
+		final Formula formula = Formula.multibrot(2);
+		int differences = 0;
+		for (int y = 0; y < 40; y++) {
+			for (int x = 0; x < 60; x++) {
+				final double cr = -2.25 + x * 0.05;
+				final double ci = -1 + y * 0.05;
+				if (formula.iterate(cr, ci, 255, 0) != EscapeTimeKernel.iterate(cr, ci, 255, 0)) {
+					differences++;
+				}
+			}
+		}
+		// z² is rounded differently, which may change points on the boundary
+		Assert.assertTrue(Integer.toString(differences), differences < 10);
+	}
+
+	@Test
+	public void testRenderMatchesPointByPoint() {
+		final MandelbrotSet set = new MandelbrotSet(3, 16);
+		final PreciseNumber topLeft = new PreciseNumber(new Number(-2, -1.2));
+		final int width = 83;
+		final int height = 61;
+		final double scale = 2.4;
+		final double steps = scale / Math.min(width, height);
+		final int axis = MandelbrotSet.axis(-1.2, steps, height);
+		Assert.assertEquals(61, axis);
+		for (final Formula formula : FORMULAS) {
+			set.setFormula(formula);
+			// subdivision guesses uniform rectangles, its borders are iterated in batches
+			set.computeField(topLeft, scale, width, height, 300, RenderMode.SUBDIVISION);
+			Assert.assertEquals(width * height, set.getStatistics().getPixels());
+			for (final boolean costScheduling : new boolean[] { true, false }) {
+				set.setCostScheduling(costScheduling);
+				final int[] counts = set.computeField(topLeft, scale, width, height, 300, RenderMode.BRUTE_FORCE).getCounts();
+				Assert.assertEquals(Precision.DOUBLE, set.getStatistics().getPrecision());
+				if (formula != Formula.MANDELBROT) {
+					Assert.assertEquals(0, set.getStatistics().getSkippedPixels());
+				}
+				for (int y = 0; y < height; y++) {
+					// mirrored rows take the negated coordinates of their counterparts
+					final int row = formula.isConjugateSymmetric() && 2 * y > axis ? axis - y : y;
+					final double ci = row == y ? -1.2 + y * steps : -(-1.2 + row * steps);
+					for (int x = 0; x < width; x++) {
+						Assert.assertEquals(formula + " at " + x + "," + y, formula.iterate(-2 + x * steps, ci, 300, set.getCycleTolerance() * steps), counts[y * width + x]);
+					}
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNoExponentialMap() {
+		final MandelbrotSet set = new MandelbrotSet(1, 16);
+		set.setFormula(Formula.burningShip());
+		set.createExponentialMap(new PreciseNumber(new Number(-1.7, 0)), 1e-6, 1, 16, 100);
+	}
+
+}
@@ -0,0 +1,97 @@
+package de.engehausen.mb.math;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IterationBudgetTest {
+
+	private static final PreciseNumber TOP_LEFT = new PreciseNumber(new Number(-2.25, -1));
+
+	@Test
+	public void testPaletteAndFixed() {
+		final MandelbrotSet set = new MandelbrotSet(1, 16);
+		Assert.assertEquals(8, IterationBudget.palette().getMax(set, TOP_LEFT, 2, 64, 64, 8));
+		Assert.assertEquals(1000, IterationBudget.fixed(1000).getMax(set, TOP_LEFT, 2, 64, 64, 8));
+	}
+
+	@Test
+	public void testScaledGrowsWithDepth() {
+		final IterationBudget budget = IterationBudget.scaled(100, 50);
+		final MandelbrotSet set = new MandelbrotSet(1, 16);
+		Assert.assertEquals(100, budget.getMax(set, TOP_LEFT, 4, 64, 64, 8));
+		Assert.assertEquals(100, budget.getMax(set, TOP_LEFT, 2, 64, 64, 8));
+		Assert.assertEquals(150, budget.getMax(set, TOP_LEFT, 0.2, 64, 64, 8));
+		Assert.assertEquals(800, budget.getMax(set, TOP_LEFT, 2e-14, 64, 64, 8));
+	}
+
+	@Test
+	public void testTune() {
+		final int[] counts = new int[1000];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = i + 1;
+		}
+		Assert.assertEquals(995, IterationBudget.tune(counts, 10, 5000));
+		Assert.assertEquals(2000, IterationBudget.tune(counts, 2000, 5000));
+		// points not escaping are not counted
+		counts[0] = 5001;
+		Assert.assertEquals(996, IterationBudget.tune(counts, 10, 5000));
+		Assert.assertEquals(10, IterationBudget.tune(new int[] { 5001, 5001 }, 10, 5000));
+	}
+
+	@Test
+	public void testAutoNeedsMoreIterationsCloseToTheBoundary() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		final IterationBudget budget = IterationBudget.auto(16, 20000);
+		final int overview = budget.getMax(set, TOP_LEFT, 2, 200, 200, 8);
+		final int seahorses = budget.getMax(set, new PreciseNumber(new Number(-0.7454, 0.1130)), 0.0002, 200, 200, 8);
+		Assert.assertTrue(overview >= 16 && overview < seahorses && seahorses <= 20000);
+	}
+
+	@Test
+	public void testAutoRemembersPrePass() {
+		final int[] prePasses = new int[1];
+		final MandelbrotSet set = new MandelbrotSet(2, 16) {
+			@Override
+			public IterationField computeField(final PreciseNumber topLeft, final double scale, final int width, final int height, final int max, final RenderMode mode) {
+				prePasses[0]++;
+				return super.computeField(topLeft, scale, width, height, max, mode);
+			}
+		};
+		final IterationBudget budget = IterationBudget.auto(16, 2000);
+		final int max = budget.getMax(set, TOP_LEFT, 2, 200, 200, 8);
+		Assert.assertEquals(max, budget.getMax(set, new PreciseNumber(new Number(-2.25, -1)), 2, 200, 200, 8));
+		Assert.assertEquals(1, prePasses[0]);
+		// another area, size or formula runs its own pre-pass
+		budget.getMax(set, TOP_LEFT, 1, 200, 200, 8);
+		budget.getMax(set, TOP_LEFT, 2, 100, 200, 8);
+		set.setFormula(Formula.valueOf("burningShip")); //$NON-NLS-1$
+		budget.getMax(set, TOP_LEFT, 2, 200, 200, 8);
+		Assert.assertEquals(4, prePasses[0]);
+	}
+
+	@Test
+	public void testValueOf() {
+		Assert.assertSame(IterationBudget.palette(), IterationBudget.valueOf("palette"));
+		for (final IterationBudget budget : new IterationBudget[] { IterationBudget.fixed(500), IterationBudget.scaled(10, 20), IterationBudget.auto(30, 40) }) {
+			Assert.assertEquals(budget.toString(), IterationBudget.valueOf(budget.toString()).toString());
+		}
+		Assert.assertEquals(IterationBudget.scaled(IterationBudget.DEFAULT_BASE, IterationBudget.DEFAULT_PER_DECADE).toString(), IterationBudget.valueOf("scaled").toString());
+		for (final String invalid : new String[] { "", "many", "scaled:1", "auto:5:1", "0" }) {
+			try {
+				IterationBudget.valueOf(invalid);
+				Assert.fail(invalid);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testPaletteRepeatsColors() {
+		final int[] palette = Colorizer.palette(10, 1, 0, 1, 2);
+		Assert.assertArrayEquals(new int[] { 1, 2, 0, 1, 2, 0, 1, 2, 0, 1, 2, 2 }, palette);
+		// with as many iterations as colors nothing changes
+		Assert.assertArrayEquals(new int[] { 1, 2, 0, 1, 2 }, Colorizer.palette(3, 1, 0, 1, 2));
+	}
+
+}
@@ -0,0 +1,33 @@
+package de.engehausen.mb.math;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LockstepKernelTest {
+
+	@Test
+	public void testMatchesScalarKernel() {
+		final Random random = new Random(17);
+		final LockstepKernel kernel = new LockstepKernel();
+		// more points than lanes, fewer points than lanes and no points at all
+		for (final int count : new int[] { 1000, LockstepKernel.LANES - 3, 0 }) {
+			final double[] real = new double[count];
+			final double[] imaginary = new double[count];
+			for (int i = 0; i < count; i++) {
+				real[i] = -0.7454 + random.nextDouble() * 0.0004;
+				imaginary[i] = 0.1130 + random.nextDouble() * 0.0004;
+			}
+			// with and without cycle detection
+			for (final double epsilon : new double[] { 1e-9, 0 }) {
+				final int[] counts = new int[count];
+				kernel.iterate(real, imaginary, count, 1000, epsilon, counts);
+				for (int i = 0; i < count; i++) {
+					Assert.assertEquals(EscapeTimeKernel.iterate(real[i], imaginary[i], 1000, epsilon), counts[i]);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,472 @@
+package de.engehausen.mb.math;
+
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MandelbrotSetTest {
+
+	private static final int[] COLORS = { 0x000000, 0xff0000, 0x00ff00, 0x0000ff, 0xffff00, 0x00ffff, 0xff00ff, 0xffffff };
+
+	private static final double[][] VIEWS = {
+		{ -2.25, -1, 2 },
+		{ -0.75, -0.1, 0.05 },
+		{ -0.7454, 0.1130, 0.0002 }
+	};
+
+	@Test
+	public void testTilesMatchSerial() {
+		final MandelbrotSet[] sets = {
+			new MandelbrotSet(1, 1024),
+			new MandelbrotSet(4, 16),
+			new MandelbrotSet(3, 7)
+		};
+		for (final double[] view : VIEWS) {
+			final Number topLeft = new Number(view[0], view[1]);
+			final BufferedImage expected = reference(topLeft, view[2], 101, 67, 3, COLORS);
+			for (final MandelbrotSet set : sets) {
+				assertSameImage(expected, set.render(topLeft, view[2], 101, 67, 3, COLORS));
+			}
+		}
+	}
+
+	@Test
+	public void testCycleDetectionMatchesReference() {
+		final int[] colors = new int[255];
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = i * 0x010203;
+		}
+		final MandelbrotSet set = new MandelbrotSet(2, 64);
+		final double[][] views = {
+			{ -2.25, -1, 2 },
+			{ -1.7497, -0.00003, 0.00006 },
+			{ -0.1592, 1.0317, 0.001 },
+			{ 0.25, -0.01, 0.02 }
+		};
+		for (final double[] view : views) {
+			final Number topLeft = new Number(view[0], view[1]);
+			assertSameImage(reference(topLeft, view[2], 160, 90, 0, colors), set.render(topLeft, view[2], 160, 90, 0, colors));
+		}
+	}
+
+	@Test
+	public void testSubdivisionMatchesBruteForce() {
+		final MandelbrotSet set = new MandelbrotSet(3, 64);
+		for (final double[] view : VIEWS) {
+			final Number topLeft = new Number(view[0], view[1]);
+			final BufferedImage expected = set.render(topLeft, view[2], 0, RenderMode.BRUTE_FORCE, new BufferedImage(320, 180, BufferedImage.TYPE_3BYTE_BGR), COLORS);
+			final BufferedImage actual = set.render(topLeft, view[2], 0, RenderMode.SUBDIVISION, new BufferedImage(320, 180, BufferedImage.TYPE_3BYTE_BGR), COLORS);
+			final PixelDiff diff = PixelDiff.compare(expected, actual);
+			Assert.assertTrue(diff.toString(), diff.within(0.001));
+			Assert.assertEquals(320 * 180, set.getStatistics().getPixels());
+		}
+	}
+
+	@Test
+	public void testImageTypes() {
+		final MandelbrotSet set = new MandelbrotSet(2, 32);
+		final Number topLeft = new Number(-2.25, -1);
+		final BufferedImage expected = reference(topLeft, 2, 75, 50, 1, COLORS);
+		for (final int type : new int[] { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR }) {
+			final BufferedImage actual = set.render(topLeft, 2, 1, new BufferedImage(75, 50, type), COLORS);
+			for (int y = 0; y < 50; y++) {
+				for (int x = 0; x < 75; x++) {
+					Assert.assertEquals(expected.getRGB(x, y) & 0xffffff, actual.getRGB(x, y) & 0xffffff);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testKernelMatchesNumber() {
+		final Random random = new Random(42);
+		for (int n = 0; n < 10000; n++) {
+			final Number c = new Number(4 * random.nextDouble() - 2.5, 3 * random.nextDouble() - 1.5);
+			final Number number = new Number(0, 0);
+			int i = 0;
+			do {
+				number.multiply(number).add(c);
+			} while (i++ < 255 && number.inside());
+			Assert.assertEquals(c.toString(), i, EscapeTimeKernel.iterate(c.getReal(), c.getImaginary(), 255));
+		}
+	}
+
+	@Test
+	public void testInteriorRectangles() {
+		final Random random = new Random(7);
+		int found = 0;
+		for (int n = 0; n < 100000; n++) {
+			final double left = 2.5 * random.nextDouble() - 2;
+			final double top = 2 * random.nextDouble() - 1;
+			final double size = 0.5 * random.nextDouble();
+			if (EscapeTimeKernel.isInterior(left, top, left + size, top + size)) {
+				found++;
+				for (int i = 0; i <= 16; i++) {
+					for (int j = 0; j <= 16; j++) {
+						Assert.assertTrue(EscapeTimeKernel.isInterior(left + i * size / 16, top + j * size / 16));
+					}
+				}
+			}
+		}
+		Assert.assertTrue(found > 0);
+		Assert.assertFalse(EscapeTimeKernel.isInterior(0.2, -0.2, 0.38, 0.2));
+	}
+
+	@Test
+	public void testInteriorStatistics() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		set.render(new Number(-2.25, -1), 2, 200, 100, 0, COLORS);
+		final RenderStatistics statistics = set.getStatistics();
+		Assert.assertEquals(20000, statistics.getPixels());
+		Assert.assertTrue(statistics.getInteriorTilePixels() > 0);
+		Assert.assertTrue(statistics.getSkippedPixels() > statistics.getInteriorTilePixels());
+	}
+
+	@Test
+	public void testColorizedFieldMatchesRender() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		for (final double[] view : VIEWS) {
+			final PreciseNumber topLeft = new PreciseNumber(new Number(view[0], view[1]));
+			final BufferedImage expected = set.render(topLeft, view[2], 3, RenderMode.BRUTE_FORCE, new BufferedImage(120, 80, BufferedImage.TYPE_3BYTE_BGR), COLORS);
+			final IterationField exact = set.computeField(topLeft, view[2], 120, 80, COLORS.length, RenderMode.BRUTE_FORCE);
+			assertSameImage(expected, Colorizer.colorize(exact, 3, COLORS));
+			// a field with more iterations than colors repeats the colors
+			final IterationField deeper = set.computeField(topLeft, view[2], 120, 80, 255, RenderMode.BRUTE_FORCE);
+			Assert.assertEquals(255, deeper.getMax());
+			Assert.assertEquals(120 * 80, deeper.getStatistics().getPixels());
+			set.setIterationBudget(IterationBudget.fixed(255));
+			final BufferedImage repeated = set.render(topLeft, view[2], 3, RenderMode.BRUTE_FORCE, new BufferedImage(120, 80, BufferedImage.TYPE_3BYTE_BGR), COLORS);
+			set.setIterationBudget(IterationBudget.palette());
+			assertSameImage(repeated, Colorizer.colorize(deeper, 3, COLORS));
+		}
+	}
+
+	@Test
+	public void testLockstepMatchesPixelByPixel() {
+		final MandelbrotSet lockstep = new MandelbrotSet(2, 16);
+		lockstep.setLockstep(true);
+		Assert.assertTrue(lockstep.isLockstep());
+		final MandelbrotSet plain = new MandelbrotSet(2, 16);
+		Assert.assertFalse(plain.isLockstep());
+		lockstep.setIterationBudget(IterationBudget.fixed(500));
+		plain.setIterationBudget(IterationBudget.fixed(500));
+		for (final double[] view : VIEWS) {
+			final Number topLeft = new Number(view[0], view[1]);
+			assertSameImage(plain.render(topLeft, view[2], 101, 67, 3, COLORS), lockstep.render(topLeft, view[2], 101, 67, 3, COLORS));
+		}
+	}
+
+	@Test
+	public void testSinglePrecision() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		set.setIterationBudget(IterationBudget.fixed(500));
+		set.setVerifySinglePrecision(true);
+		set.render(new Number(-2.25, -1), 2, 200, 100, 0, COLORS);
+		Assert.assertEquals(Precision.DOUBLE, set.getStatistics().getPrecision());
+		Assert.assertEquals(0, set.getStatistics().getVerifiedPixels());
+		set.setSinglePrecision(true);
+		set.render(new Number(-2.25, -1), 2, 200, 100, 0, COLORS);
+		final RenderStatistics statistics = set.getStatistics();
+		Assert.assertEquals(Precision.FLOAT, statistics.getPrecision());
+		Assert.assertEquals(statistics.getPixels() - statistics.getSkippedPixels() - statistics.getMirroredPixels(), statistics.getVerifiedPixels());
+		Assert.assertTrue(statistics.getMismatchedPixels() < statistics.getVerifiedPixels() / 50);
+		// too deep for single precision
+		set.render(new Number(VIEWS[2][0], VIEWS[2][1]), VIEWS[2][2], 200, 100, 0, COLORS);
+		Assert.assertEquals(Precision.DOUBLE, set.getStatistics().getPrecision());
+		Assert.assertEquals(0, set.getStatistics().getVerifiedPixels());
+	}
+
+	@Test
+	public void testSymmetryMirrorsRows() {
+		final MandelbrotSet mirrored = new MandelbrotSet(2, 16);
+		final MandelbrotSet plain = new MandelbrotSet(2, 16);
+		plain.setSymmetry(false);
+		Assert.assertTrue(mirrored.isSymmetry());
+		Assert.assertFalse(plain.isSymmetry());
+		final int[] colors = new int[255];
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = i * 0x010203;
+		}
+		// the axis on a row, between two rows and close to the border
+		for (final int[] size : new int[][] { { 120, 80, 40 }, { 121, 81, 40 }, { 60, 90, 20 } }) {
+			final Number topLeft = new Number(-2.25, -size[2] * 2.4 / Math.min(size[0], size[1]));
+			for (final RenderMode mode : RenderMode.values()) {
+				final BufferedImage image = mirrored.render(new PreciseNumber(topLeft), 2.4, 0, mode, new BufferedImage(size[0], size[1], BufferedImage.TYPE_INT_RGB), colors);
+				final RenderStatistics statistics = mirrored.getStatistics();
+				Assert.assertEquals(size[0] * size[1], statistics.getPixels());
+				final int axis = MandelbrotSet.axis(topLeft.getImaginary(), 2.4 / Math.min(size[0], size[1]), size[1]);
+				Assert.assertEquals(2 * size[2], axis);
+				int pairs = 0;
+				for (int y = 0; y < size[1]; y++) {
+					if (axis - y >= 0 && axis - y < size[1] && axis - y != y) {
+						pairs++;
+						for (int x = 0; x < size[0]; x++) {
+							Assert.assertEquals(image.getRGB(x, y), image.getRGB(x, axis - y));
+						}
+					}
+				}
+				Assert.assertEquals(pairs / 2 * size[0], statistics.getMirroredPixels());
+				// the mirrored rows may differ in the last bit of their coordinates
+				final BufferedImage expected = plain.render(new PreciseNumber(topLeft), 2.4, 0, mode, new BufferedImage(size[0], size[1], BufferedImage.TYPE_INT_RGB), colors);
+				int differences = 0;
+				for (int y = 0; y < size[1]; y++) {
+					for (int x = 0; x < size[0]; x++) {
+						if (expected.getRGB(x, y) != image.getRGB(x, y)) {
+							differences++;
+						}
+					}
+				}
+				Assert.assertTrue(differences <= size[0] * size[1] / 1000);
+			}
+		}
+	}
+
+	@Test
+	public void testAxis() {
+		Assert.assertEquals(100, MandelbrotSet.axis(-1, 0.02, 100));
+		Assert.assertEquals(67, MandelbrotSet.axis(-1, 2d / 67, 67));
+		// the axis outside of the image, on its border or off the rows
+		Assert.assertEquals(-1, MandelbrotSet.axis(0.5, 0.02, 100));
+		Assert.assertEquals(-1, MandelbrotSet.axis(0, 0.02, 100));
+		Assert.assertEquals(-1, MandelbrotSet.axis(-1.98, 0.02, 100));
+		Assert.assertEquals(-1, MandelbrotSet.axis(-1.005, 0.02, 100));
+		Assert.assertEquals(-1, MandelbrotSet.axis(-1.003, 0.02, 100));
+		Assert.assertEquals(-1, MandelbrotSet.axis(-1.002, 0.02, 100));
+		Assert.assertEquals(-1, MandelbrotSet.axis(-1 - 1e-7, 0.02, 100));
+	}
+
+	@Test
+	public void testSymmetryNearTheAxis() {
+		final MandelbrotSet mirrored = new MandelbrotSet(2, 16);
+		final MandelbrotSet plain = new MandelbrotSet(2, 16);
+		plain.setSymmetry(false);
+		final int[] colors = new int[255];
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = i * 0x010203;
+		}
+		// the axis a tenth and a thousandth of a pixel below row 40: no row has an exact
+		// mirror image, so all rows are computed and the image equals the plain render
+		for (final double offset : new double[] { 0.1, 0.001 }) {
+			final Number topLeft = new Number(-2.25, -(40 + offset) * 0.03);
+			for (final RenderMode mode : RenderMode.values()) {
+				final BufferedImage image = mirrored.render(new PreciseNumber(topLeft), 2.4, 0, mode, new BufferedImage(120, 80, BufferedImage.TYPE_INT_RGB), colors);
+				Assert.assertEquals(0, mirrored.getStatistics().getMirroredPixels());
+				final BufferedImage expected = plain.render(new PreciseNumber(topLeft), 2.4, 0, mode, new BufferedImage(120, 80, BufferedImage.TYPE_INT_RGB), colors);
+				final PixelDiff diff = PixelDiff.compare(expected, image);
+				Assert.assertTrue(diff.toString(), diff.within(0));
+			}
+		}
+	}
+
+	@Test
+	public void testCostSchedulingMatchesSplitting() {
+		final MandelbrotSet scheduled = new MandelbrotSet(3, 16);
+		final MandelbrotSet split = new MandelbrotSet(3, 16);
+		split.setCostScheduling(false);
+		Assert.assertTrue(scheduled.isCostScheduling());
+		for (final double[] view : VIEWS) {
+			final Number topLeft = new Number(view[0], view[1]);
+			assertSameImage(split.render(topLeft, view[2], 101, 67, 3, COLORS), scheduled.render(topLeft, view[2], 101, 67, 3, COLORS));
+			final RenderStatistics statistics = scheduled.getStatistics();
+			Assert.assertTrue(statistics.getElapsedTime() > 0);
+			Assert.assertTrue(statistics.getBusyTimes().length > 0);
+			Assert.assertTrue(statistics.getUtilization() > 0 && statistics.getUtilization() <= 1);
+		}
+	}
+
+	@Test
+	public void testReusedFieldCloseToComputed() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		// the same zoom step at double and at arbitrary precision
+		for (final double scale : new double[] { 1e-3, 1e-35 }) {
+			final PreciseNumber center = new PreciseNumber(BigDecimal.ZERO, BigDecimal.ONE);
+			final MathContext context = new MathContext(60);
+			final PreciseNumber topLeft = center.add(-scale * 1.5, -scale, context);
+			final PreciseNumber zoomed = center.add(-scale * 1.425, -scale * 0.95, context);
+			final IterationField previous = set.computeField(topLeft, 2 * scale, 120, 80, 500, RenderMode.BRUTE_FORCE);
+			final IterationField reused = set.computeField(zoomed, 1.9 * scale, 120, 80, 500, RenderMode.BRUTE_FORCE, previous);
+			final IterationField computed = set.computeField(zoomed, 1.9 * scale, 120, 80, 500, RenderMode.BRUTE_FORCE);
+			Assert.assertEquals(120 * 80, reused.getStatistics().getPixels());
+			Assert.assertTrue(reused.getStatistics().getReusedPixels() > 0);
+			int wrong = 0;
+			for (int i = 0; i < computed.getCounts().length; i++) {
+				if (computed.getCounts()[i] != reused.getCounts()[i]) {
+					wrong++;
+				}
+			}
+			Assert.assertTrue(scale + ": " + wrong, wrong <= reused.getStatistics().getReusedPixels() / 100); //$NON-NLS-1$
+		}
+	}
+
+	@Test
+	public void testPrecisionTiers() {
+		Assert.assertEquals(Precision.DOUBLE, Precision.select(new Number(-2.25, -1), 2.0 / 90));
+		Assert.assertEquals(Precision.DOUBLE, Precision.select(new Number(0, 0), 1e-30));
+		Assert.assertEquals(Precision.DOUBLE_DOUBLE, Precision.select(new Number(-0.75, 0.1), 1e-20));
+		Assert.assertEquals(Precision.ARBITRARY, Precision.select(new Number(-0.75, 0.1), 1e-40));
+	}
+
+	@Test
+	public void testDoubleDoubleMatchesExactIteration() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		final int[] colors = new int[1000];
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = i;
+		}
+		final double steps = 1e-20 / 90;
+		// the tip of the set at i has detail at every scale
+		final Number topLeft = new Number(-steps * 80, 1);
+		final BufferedImage image = set.render(topLeft, 1e-20, 160, 90, 0, colors);
+		Assert.assertEquals(Precision.DOUBLE_DOUBLE, set.getStatistics().getPrecision());
+		final Random random = new Random(5);
+		for (int n = 0; n < 20; n++) {
+			final int x = random.nextInt(160);
+			final int y = random.nextInt(90);
+			final int expected = PerturbationEngineTest.exact(
+				new BigDecimal(topLeft.getReal()).add(new BigDecimal(steps).multiply(BigDecimal.valueOf(x))),
+				new BigDecimal(topLeft.getImaginary()).add(new BigDecimal(steps).multiply(BigDecimal.valueOf(y)))
+			);
+			Assert.assertEquals(x + "," + y, expected % colors.length, image.getRGB(x, y) & 0xffffff);
+		}
+	}
+
+	@Test
+	public void testSupersamplingOnlyTouchesEdges() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		final PreciseNumber topLeft = new PreciseNumber(new Number(-2.25, -1.3));
+		final BufferedImage plain = set.render(topLeft, 2.6, 0, RenderMode.BRUTE_FORCE, new BufferedImage(90, 70, BufferedImage.TYPE_INT_RGB), COLORS);
+		Assert.assertEquals(0, set.getStatistics().getExtraSamples());
+		for (final int grid : new int[] { 2, 3 }) {
+			set.setSupersampling(grid);
+			final BufferedImage image = set.render(topLeft, 2.6, 0, RenderMode.BRUTE_FORCE, new BufferedImage(90, 70, BufferedImage.TYPE_INT_RGB), COLORS);
+			int edges = 0;
+			int changed = 0;
+			for (int y = 0; y < plain.getHeight(); y++) {
+				for (int x = 0; x < plain.getWidth(); x++) {
+					final int rgb = plain.getRGB(x, y);
+					final boolean edge = differs(rgb, plain, x - 1, y) || differs(rgb, plain, x + 1, y) || differs(rgb, plain, x, y - 1) || differs(rgb, plain, x, y + 1);
+					if (edge) {
+						edges++;
+						if (rgb != image.getRGB(x, y)) {
+							changed++;
+						}
+					} else {
+						Assert.assertEquals(x + "," + y, rgb, image.getRGB(x, y));
+					}
+				}
+			}
+			final RenderStatistics statistics = set.getStatistics();
+			Assert.assertTrue(changed > 0);
+			Assert.assertEquals(edges, statistics.getSupersampledPixels());
+			// the center sample of an odd grid is the pixel itself
+			Assert.assertEquals(edges * (grid == 3 ? 8 : 4), statistics.getExtraSamples());
+		}
+		set.setSupersamplingThreshold(255);
+		assertSameImage(plain, set.render(topLeft, 2.6, 0, RenderMode.BRUTE_FORCE, new BufferedImage(90, 70, BufferedImage.TYPE_INT_RGB), COLORS));
+		Assert.assertEquals(0, set.getStatistics().getSupersampledPixels());
+	}
+
+	@Test
+	public void testSupersamplingDeepZoom() {
+		final MandelbrotSet set = new MandelbrotSet(2, 16);
+		final int[] colors = new int[1000];
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = i;
+		}
+		final double steps = 1e-40 / 60;
+		final PreciseNumber topLeft = new PreciseNumber(new BigDecimal(-steps * 40), BigDecimal.ONE.subtract(new BigDecimal(steps * 30)));
+		final BufferedImage plain = set.render(topLeft, 1e-40, 0, RenderMode.BRUTE_FORCE, new BufferedImage(80, 60, BufferedImage.TYPE_INT_RGB), colors);
+		Assert.assertEquals(Precision.ARBITRARY, set.getStatistics().getPrecision());
+		set.setSupersampling(2);
+		final BufferedImage image = set.render(topLeft, 1e-40, 0, RenderMode.BRUTE_FORCE, new BufferedImage(80, 60, BufferedImage.TYPE_INT_RGB), colors);
+		int edges = 0;
+		int checked = 0;
+		for (int y = 0; y < plain.getHeight(); y++) {
+			for (int x = 0; x < plain.getWidth(); x++) {
+				final int rgb = plain.getRGB(x, y);
+				if (differs(rgb, plain, x - 1, y) || differs(rgb, plain, x + 1, y) || differs(rgb, plain, x, y - 1) || differs(rgb, plain, x, y + 1)) {
+					edges++;
+					if (edges % 50 == 1) {
+						// the average of the four samples at a quarter pixel from the center
+						int green = 0;
+						int blue = 0;
+						for (int sy = -1; sy <= 1; sy += 2) {
+							for (int sx = -1; sx <= 1; sx += 2) {
+								final int sample = PerturbationEngineTest.exact(
+									topLeft.getReal().add(new BigDecimal(steps).multiply(BigDecimal.valueOf(x + 0.25 * sx))),
+									topLeft.getImaginary().add(new BigDecimal(steps).multiply(BigDecimal.valueOf(y + 0.25 * sy)))
+								) % colors.length;
+								green += sample >> 8;
+								blue += sample & 0xff;
+							}
+						}
+						checked++;
+						Assert.assertEquals(x + "," + y, (green + 2) / 4 << 8 | (blue + 2) / 4, image.getRGB(x, y) & 0xffffff);
+					}
+				} else {
+					Assert.assertEquals(x + "," + y, rgb, image.getRGB(x, y));
+				}
+			}
+		}
+		Assert.assertTrue(checked > 0);
+		Assert.assertEquals(edges, set.getStatistics().getSupersampledPixels());
+		Assert.assertEquals(4 * edges, set.getStatistics().getExtraSamples());
+	}
+
+	private static boolean differs(final int rgb, final BufferedImage image, final int x, final int y) {
+		if (x < 0 || y < 0 || x >= image.getWidth() || y >= image.getHeight()) {
+			return false;
+		}
+		final int other = image.getRGB(x, y);
+		for (int shift = 0; shift < 24; shift += 8) {
+			if (Math.abs(((rgb >> shift) & 0xff) - ((other >> shift) & 0xff)) > MandelbrotSet.DEFAULT_SUPERSAMPLING_THRESHOLD) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidTileSize() {
+		new MandelbrotSet(1, 0);
+	}
+
+	protected static void assertSameImage(final BufferedImage expected, final BufferedImage actual) {
+		Assert.assertEquals(expected.getWidth(), actual.getWidth());
+		Assert.assertEquals(expected.getHeight(), actual.getHeight());
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				Assert.assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+			}
+		}
+	}
+
+	/**
+	 * The original single-threaded renderer, kept as the reference for the optimized one.
+	 * The pixel coordinates are computed from their index like the optimized renderer does.
+	 */
+	protected static BufferedImage reference(final Number topLeft, final double scale, final int width, final int height, final int offset, final int... colors) {
+		final BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		final double steps = scale / Math.min(width, height);
+		for (int py = 0; py < height; py++) {
+			final double y = topLeft.getImaginary() + py * steps;
+			final Number c = new Number(0, 0);
+			for (int px = 0; px < width; px++) {
+				final double x = topLeft.getReal() + px * steps;
+				final Number number = new Number(0, 0);
+				c.set(x, y);
+				int i = 0;
+				do {
+					number.multiply(number).add(c);
+				} while (i++ < colors.length && number.inside());
+				img.setRGB(px, py, colors[(offset + i) % colors.length]);
+			}
+		}
+		return img;
+	}
+
+}
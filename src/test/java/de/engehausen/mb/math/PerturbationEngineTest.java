@@ -0,0 +1,87 @@
+package de.engehausen.mb.math;
+
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PerturbationEngineTest {
+
+	private static final int WIDTH = 160;
+	private static final int HEIGHT = 90;
+	private static final int MAX = 1000;
+
+	@Test
+	public void testMatchesExactIteration() {
+		final PerturbationEngine engine = new PerturbationEngine(new ForkJoinPool(2), 16);
+		for (final double scale : new double[] { 1e-10, 1e-30, 1e-50 }) {
+			final double steps = scale / HEIGHT;
+			// the tip of the set at i has detail at every scale
+			final BigDecimal left = new BigDecimal(-steps * WIDTH / 2);
+			final BigDecimal top = BigDecimal.ONE.subtract(new BigDecimal(steps * HEIGHT / 2));
+			final RenderStatistics statistics = new RenderStatistics();
+			final int[] field = engine.render(left, top, steps, WIDTH, HEIGHT, MAX, statistics);
+			Assert.assertEquals(WIDTH * HEIGHT, statistics.getPixels());
+			Assert.assertTrue(statistics.getReferences() > 0);
+			final Random random = new Random(3);
+			for (int n = 0; n < 20; n++) {
+				final int x = random.nextInt(WIDTH);
+				final int y = random.nextInt(HEIGHT);
+				final int expected = exact(
+					left.add(new BigDecimal(steps).multiply(BigDecimal.valueOf(x))),
+					top.add(new BigDecimal(steps).multiply(BigDecimal.valueOf(y)))
+				);
+				Assert.assertEquals(scale + " at " + x + "," + y, expected, field[y * WIDTH + x]);
+			}
+		}
+	}
+
+	@Test
+	public void testSeriesSkipsIterations() {
+		final PerturbationEngine engine = new PerturbationEngine(new ForkJoinPool(2), 16);
+		final double steps = 1e-30 / HEIGHT;
+		final RenderStatistics statistics = new RenderStatistics();
+		engine.render(new BigDecimal(-steps * WIDTH / 2), BigDecimal.ONE.subtract(new BigDecimal(steps * HEIGHT / 2)), steps, WIDTH, HEIGHT, MAX, statistics);
+		Assert.assertTrue(statistics.getSkippedIterations() >= WIDTH * HEIGHT);
+		Assert.assertEquals(0, SeriesApproximation.NONE.skip);
+	}
+
+	@Test
+	public void testDeepZoomShowsDetail() {
+		final MandelbrotSet set = new MandelbrotSet(2, 32);
+		final int[] colors = new int[MAX];
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = i;
+		}
+		final BufferedImage image = set.render(new Number(-1e-40, 1 - 1e-40), 1e-40, WIDTH, HEIGHT, 0, colors);
+		Assert.assertTrue(set.getStatistics().getReferences() > 0);
+		final Set<Integer> distinct = new HashSet<>();
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				distinct.add(Integer.valueOf(image.getRGB(x, y)));
+			}
+		}
+		Assert.assertTrue(distinct.size() > 10);
+	}
+
+	static int exact(final BigDecimal cr, final BigDecimal ci) {
+		final MathContext context = new MathContext(80);
+		final BigDecimal four = BigDecimal.valueOf(4);
+		BigDecimal x = BigDecimal.ZERO;
+		BigDecimal y = BigDecimal.ZERO;
+		int i = 0;
+		do {
+			final BigDecimal nx = x.multiply(x, context).subtract(y.multiply(y, context), context).add(cr, context);
+			y = x.multiply(y, context).multiply(BigDecimal.valueOf(2)).add(ci, context);
+			x = nx;
+		} while (i++ < MAX && x.multiply(x, context).add(y.multiply(y, context), context).compareTo(four) < 0);
+		return i;
+	}
+
+}